@@ -0,0 +1,78 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.eventbus;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of triggering events and of creating request event buses, for {@link DefaultEventBus} and the map based bus it replaced.
+ * The buses are set up like a request: one permanent callback per event on the root bus and four callbacks subscribed on the request bus.
+ * Run with {@code ./gradlew :client:jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventBusBenchmark {
+	private static final int TRIGGERED_EVENTS = 3;
+
+	@Param({"array", "map"})
+	public String bus;
+
+	private RootEventBus rootEventBus;
+	private RequestEventBus requestEventBus;
+	private ByteBuf contentPart;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		rootEventBus = "array".equals(bus) ? new DefaultEventBus() : new MapEventBus();
+		rootEventBus.subscribePermanently(Event.onConnected, payload -> blackhole.consume(payload));
+		rootEventBus.subscribePermanently(Event.onReceivedStatus, payload -> blackhole.consume(payload));
+		rootEventBus.subscribePermanently(Event.onReceivedContentPart, (length, buffer) -> blackhole.consume(length));
+
+		requestEventBus = rootEventBus.createRequestEventBus();
+		requestEventBus.subscribe(Event.onConnected, payload -> blackhole.consume(payload));
+		requestEventBus.subscribe(Event.onReceivedStatus, payload -> blackhole.consume(payload));
+		requestEventBus.subscribe(Event.onReceivedContentPart, (length, buffer) -> blackhole.consume(buffer));
+		requestEventBus.subscribe(Event.COMPLETED, payload -> blackhole.consume(payload));
+
+		contentPart = Unpooled.wrappedBuffer(new byte[16]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRIGGERED_EVENTS)
+	public void triggerEvent() {
+		requestEventBus.triggerEvent(Event.onConnected);
+		requestEventBus.triggerEvent(Event.onReceivedStatus, HttpResponseStatus.OK);
+		requestEventBus.triggerEvent(Event.onReceivedContentPart, 16, contentPart);
+	}
+
+	@Benchmark
+	public RequestEventBus createRequestEventBus(Blackhole blackhole) {
+		RequestEventBus requestEventBus = rootEventBus.createRequestEventBus();
+		requestEventBus.subscribe(Event.COMPLETED, payload -> blackhole.consume(payload));
+		return requestEventBus;
+	}
+}
@@ -7,11 +7,17 @@ package com.king.platform.net.http;
 
 
 import com.king.platform.net.http.netty.NettyChannelOptions;
+import com.king.platform.net.http.netty.compression.ContentCodec;
+import com.king.platform.net.http.netty.compression.ContentCodecs;
 import io.netty.resolver.AddressResolverGroup;
 import io.netty.resolver.DefaultAddressResolverGroup;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ConfKeys<T> {
 	/**
@@ -19,6 +25,17 @@ public class ConfKeys<T> {
 	 */
 	public static final ConfKeys<Integer> CONNECT_TIMEOUT_MILLIS = new ConfKeys<>(1000);
 
+	/**
+	 * Should connections to hosts with several addresses race staggered attempts over the addresses (happy eyeballs), defaults to false.
+	 * The first connection that succeeds is used, so a slow or unreachable address doesn't have to wait for the connect timeout.
+	 */
+	public static final ConfKeys<Boolean> HAPPY_EYEBALLS = new ConfKeys<>(false);
+
+	/**
+	 * How long to wait for a connection attempt before the next address is also tried in milli seconds, defaults to 250
+	 */
+	public static final ConfKeys<Integer> HAPPY_EYEBALLS_CONNECTION_ATTEMPT_DELAY_MILLIS = new ConfKeys<>(250);
+
 	/**
 	 * Timeout for idle in milli seconds, defaults to 1000
 	 */
@@ -40,6 +57,23 @@ public class ConfKeys<T> {
 	 */
 	public static final ConfKeys<Integer> SSL_HANDSHAKE_TIMEOUT_MILLIS = new ConfKeys<>(1000);
 
+	/**
+	 * How many ssl sessions should be cached for resuming connections to the same host and port without a full handshake,
+	 * defaults to 0 which uses the default of the ssl provider
+	 */
+	public static final ConfKeys<Integer> SSL_SESSION_CACHE_SIZE = new ConfKeys<>(0);
+
+	/**
+	 * How long should cached ssl sessions be resumed in seconds, defaults to 0 which uses the default of the ssl provider
+	 */
+	public static final ConfKeys<Integer> SSL_SESSION_TIMEOUT_SECONDS = new ConfKeys<>(0);
+
+	/**
+	 * Should the native OpenSSL (or BoringSSL) engine from netty-tcnative be used for https, defaults to false.
+	 * The JDK engine is used if netty-tcnative is not on the classpath.
+	 */
+	public static final ConfKeys<Boolean> SSL_USE_OPENSSL = new ConfKeys<>(false);
+
 
 	/**
 	 * Set the max initial line length for the http codec, defaults to 4096
@@ -73,15 +107,31 @@ public class ConfKeys<T> {
 	 */
 	public static final ConfKeys<Boolean> EXECUTE_ON_CALLING_THREAD = new ConfKeys<>(false);
 
+	/**
+	 * Should the per request time stamp recorders be returned to a per thread pool when a request has completed successfully,
+	 * defaults to false. When enabled the {@link com.king.platform.net.http.netty.metric.RecordedTimeStamps} given to the metric callback
+	 * must not be kept after the callback has returned.
+	 */
+	public static final ConfKeys<Boolean> RECYCLE_REQUEST_OBJECTS = new ConfKeys<>(false);
+
 
 	/**
 	 * Use epoll if available
 	 */
 	public static final ConfKeys<Boolean> USE_EPOLL = new ConfKeys<>(false);
 
+	/**
+	 * Use io_uring if available, which needs netty-incubator-transport-native-io_uring on the classpath and a recent linux kernel.
+	 * Falls back to epoll, and then to nio, when it is not available. The incubator transport needs netty 4.1.52 or later while this
+	 * client is built against an older netty, so with the netty version of this client io_uring is never available and this behaves as
+	 * {@link #USE_EPOLL}.
+	 */
+	public static final ConfKeys<Boolean> USE_IO_URING = new ConfKeys<>(false);
+
 
 	/**
-	 * Use custom dns resolver instead of standard {@link io.netty.resolver.DefaultAddressResolverGroup}
+	 * Use custom dns resolver instead of standard {@link io.netty.resolver.DefaultAddressResolverGroup}, which does a blocking lookup for every new connection.
+	 * {@link com.king.platform.net.http.netty.dns.CachingDnsAddressResolverGroup} resolves without blocking and caches the addresses for their ttl.
 	 */
 	public static final ConfKeys<AddressResolverGroup<?>> DNS_RESOLVER = new ConfKeys<>(DefaultAddressResolverGroup.INSTANCE);
 
@@ -100,6 +150,18 @@ public class ConfKeys<T> {
 	 */
 	public static final ConfKeys<Boolean> AUTOMATICALLY_DECOMPRESS_RESPONSE = new ConfKeys<>(true);
 
+	/**
+	 * Content codecs the client can use beyond gzip and deflate. Responses encoded with them are decompressed, their encodings are added to the
+	 * accepted encodings and they can encode request bodies. Defaults to brotli and zstd when their libraries are on the classpath, see {@link ContentCodecs}.
+	 */
+	public static final ConfKeys<List<ContentCodec>> CONTENT_CODECS = new ConfKeys<>(ContentCodecs.available());
+
+	/**
+	 * The content encoding, for example gzip or zstd, request bodies are compressed with while they are streamed to the server, defaults to null (not compressed).
+	 * The Content-Encoding header is set and the body is sent chunked. Only enable this for servers that accept compressed request bodies.
+	 */
+	public static final ConfKeys<String> REQUEST_BODY_CONTENT_ENCODING = new ConfKeys<>(null);
+
 	/**
 	 * Should the client keep the connections alive between requests, defaults to true
 	 */
@@ -110,6 +172,47 @@ public class ConfKeys<T> {
 	 */
 	public static final ConfKeys<Integer> KEEP_ALIVE_TIMEOUT_MILLIS = new ConfKeys<>(30_000);
 
+	/**
+	 * Should the client negotiate http2 with https servers (through ALPN) and send the requests as streams on shared connections, defaults to false.
+	 * Servers that don't agree to http2 are called with http/1.1 as before.
+	 */
+	public static final ConfKeys<Boolean> HTTP2 = new ConfKeys<>(false);
+
+	/**
+	 * Max number of concurrent requests (streams) sent on each http2 connection, defaults to 100.
+	 * The lower value of this and the limit sent by the server is used.
+	 */
+	public static final ConfKeys<Integer> HTTP2_MAX_CONCURRENT_STREAMS = new ConfKeys<>(100);
+
+	/**
+	 * Should the client speak cleartext http2 (h2c) with prior knowledge to all http servers, defaults to false.
+	 * Only enable this when all servers called with http are known to accept h2c.
+	 */
+	public static final ConfKeys<Boolean> HTTP2_PRIOR_KNOWLEDGE = new ConfKeys<>(false);
+
+	/**
+	 * The http servers, as "host" or "host:port", the client should speak cleartext http2 (h2c) with prior knowledge to, defaults to none.
+	 */
+	public static final ConfKeys<Set<String>> HTTP2_PRIOR_KNOWLEDGE_HOSTS = new ConfKeys<>(Collections.emptySet());
+
+	/**
+	 * Servers, as "host" or "host:port", that should be connected to through a unix domain socket instead of tcp, mapped to the path of the socket.
+	 * Requests still use the host in their urls and headers, and the connections are pooled as usual. Needs the epoll transport, defaults to none.
+	 */
+	public static final ConfKeys<Map<String, String>> UNIX_DOMAIN_SOCKETS = new ConfKeys<>(Collections.emptyMap());
+
+	/**
+	 * Should GET and HEAD requests without body be pipelined on pooled http/1.1 connections that are already waiting for responses, defaults to false.
+	 * Only enable this for servers that support pipelining. A slow response delays the requests pipelined after it,
+	 * and all of them fail if the connection is closed.
+	 */
+	public static final ConfKeys<Boolean> HTTP_PIPELINING = new ConfKeys<>(false);
+
+	/**
+	 * Max number of requests waiting for responses on each pipelined connection, defaults to 8
+	 */
+	public static final ConfKeys<Integer> HTTP_PIPELINING_MAX_REQUESTS = new ConfKeys<>(8);
+
 	/**
 	 * Set default request body charset, defaults to iso-8859-1
 	 */
@@ -159,6 +262,12 @@ public class ConfKeys<T> {
 	 */
 	public static final ConfKeys<Boolean> WEB_SOCKET_AUTO_CLOSE_FRAME = new ConfKeys<>(true);
 
+	/**
+	 * Should web socket requests take an idle pooled http connection to the same host and port (http for ws, https for wss) and upgrade it,
+	 * instead of opening a new connection, defaults to false. The upgraded connection leaves the pool.
+	 */
+	public static final ConfKeys<Boolean> WEB_SOCKET_UPGRADE_POOLED_CONNECTION = new ConfKeys<>(false);
+
 
 	private final T defaultValue;
 
@@ -5,6 +5,7 @@
 
 package com.king.platform.net.http;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
 /**
@@ -127,4 +128,16 @@ public interface HttpClient {
 	 * @return the builder
 	 */
 	HttpClientWebSocketRequestBuilder createWebSocket(String uri);
+
+	/**
+	 * Open connections to the server ahead of time, including the ssl handshake for https, and keep them in the connection pool.
+	 * The client has to be started before this method is called.
+	 *
+	 * @param uri the http/https uri of the server
+	 * @param connections the number of connections to open
+	 * @return future completed with the number of connections that was opened, failed if the uri is invalid or not http/https
+	 */
+	default CompletableFuture<Integer> prewarm(String uri, int connections) {
+		return CompletableFuture.completedFuture(0);
+	}
 }
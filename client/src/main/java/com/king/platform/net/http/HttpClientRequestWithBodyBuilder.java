@@ -68,6 +68,14 @@ public interface HttpClientRequestWithBodyBuilder extends HttpClientRequestHeade
 	 */
 	HttpClientRequestWithBodyBuilder bodyCharset(Charset charset);
 
+	/**
+	 * Compress the body with this content encoding, for example gzip or zstd, while it is streamed to the server <br>
+	 * Overrides {@link ConfKeys#REQUEST_BODY_CONTENT_ENCODING}
+	 * @param contentEncoding the content encoding, or null to send the body uncompressed
+	 * @return the builder
+	 */
+	HttpClientRequestWithBodyBuilder compressContent(String contentEncoding);
+
 	/**
 	 * Add a parameter to a form urlencoded body
 	 * @param name the parameter name
@@ -7,40 +7,70 @@ package com.king.platform.net.http.netty;
 
 
 import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.compression.ContentCodec;
+import com.king.platform.net.http.netty.compression.ContentCodecDecompressor;
+import com.king.platform.net.http.netty.compression.ContentEncoder;
 import com.king.platform.net.http.netty.eventbus.*;
+import com.king.platform.net.http.netty.pool.ChannelAcquireCallback;
+import com.king.platform.net.http.netty.pool.ChannelConnector;
 import com.king.platform.net.http.netty.pool.ChannelPool;
+import com.king.platform.net.http.netty.pool.MultiplexedChannelPool;
 import com.king.platform.net.http.netty.response.NettyHttpClientResponse;
 import com.king.platform.net.http.netty.util.TimeProvider;
 import com.king.platform.net.http.netty.websocket.WebSocketHandler;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.websocketx.WebSocket13FrameDecoder;
 import io.netty.handler.codec.http.websocketx.WebSocket13FrameEncoder;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.OpenSsl;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.resolver.AddressResolver;
 import io.netty.resolver.AddressResolverGroup;
 import io.netty.util.Timer;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
 import org.slf4j.Logger;
 
 import javax.net.ssl.SSLException;
 import java.net.ConnectException;
-import java.util.concurrent.TimeUnit;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
-public class ChannelManager {
+public class ChannelManager implements ChannelConnector {
 	private final Logger logger = getLogger(getClass());
 
 	private final TimeProvider timeProvider;
@@ -48,27 +78,60 @@ public class ChannelManager {
 	private final ChannelPool channelPool;
 	private final Bootstrap httpBootstrap;
 	private final SslContext sslContext;
+	private final HappyEyeballsConnector happyEyeballsConnector;
+	private final int sslHandshakeTimeoutMillis;
 	private final Bootstrap wsBootstrap;
+	private final WebSocketHandler webSocketHandler;
+	private final boolean webSocketUpgradePooledConnection;
+	private final Bootstrap httpDomainSocketBootstrap;
+	private final Bootstrap wsDomainSocketBootstrap;
+	private final Map<String, String> unixDomainSockets;
 	private final Timer nettyTimer;
+	private final EventLoopGroup nioEventLoop;
+	private final SslContext http2SslContext;
+	private final ChannelHandler http2StreamInitializer;
+	private final Http2ConnectionStateHandler http2ConnectionStateHandler = new Http2ConnectionStateHandler();
+	private final MultiplexedChannelPool multiplexedChannelPool;
+	private final boolean http2;
+	private final boolean http2PriorKnowledge;
+	private final Set<String> http2PriorKnowledgeHosts;
+	private final boolean httpPipelining;
+	private final int httpPipeliningMaxRequests;
+	private final List<ContentCodec> contentCodecs;
+	private final ConcurrentHashMap<ServerInfo, Queue<HttpPipeliningHandler>> httpPipelines = new ConcurrentHashMap<>();
+
+	private final FastThreadLocal<EventLoop> currentEventLoop = new FastThreadLocal<EventLoop>() {
+		@Override
+		protected EventLoop initialValue() {  //looked up once per thread, null for threads outside of the event loop group
+			for (EventExecutor eventExecutor : nioEventLoop) {
+				if (eventExecutor.inEventLoop()) {
+					return (EventLoop) eventExecutor;
+				}
+			}
+			return null;
+		}
+	};
 
 
 	public ChannelManager(EventLoopGroup nioEventLoop, final HttpClientHandler httpClientHandler, WebSocketHandler webSocketHandler, Timer nettyTimer, TimeProvider timeProvider, ChannelPool
 		channelPool, final ConfMap confMap) {
 		this.nettyTimer = nettyTimer;
+		this.nioEventLoop = nioEventLoop;
 		this.timeProvider = timeProvider;
 		this.channelPool = channelPool;
 		this.confMap = confMap;
+		this.webSocketHandler = webSocketHandler;
 
-		final Class<? extends SocketChannel> socketChannelClass;
+		final Class<? extends SocketChannel> socketChannelClass = NettyTransport.of(nioEventLoop).getSocketChannelClass();
 
-		if (Epoll.isAvailable() && confMap.get(ConfKeys.USE_EPOLL)) {
-			socketChannelClass = EpollSocketChannel.class;
+		final AddressResolverGroup<?> addressResolverGroup = confMap.get(ConfKeys.DNS_RESOLVER);
+
+		if (confMap.get(ConfKeys.HAPPY_EYEBALLS)) {
+			happyEyeballsConnector = new HappyEyeballsConnector(addressResolverGroup, confMap.get(ConfKeys.HAPPY_EYEBALLS_CONNECTION_ATTEMPT_DELAY_MILLIS));
 		} else {
-			socketChannelClass = NioSocketChannel.class;
+			happyEyeballsConnector = null;
 		}
 
-		final AddressResolverGroup<?> addressResolverGroup = confMap.get(ConfKeys.DNS_RESOLVER);
-
 		httpBootstrap = new Bootstrap().channel(socketChannelClass).group(nioEventLoop).resolver(addressResolverGroup);
 		httpBootstrap.handler(new ChannelInitializer() {
 			@Override
@@ -98,7 +161,46 @@ public class ChannelManager {
 		});
 
 
-		sslContext = getSslContext(confMap);
+		Http2StreamFrameToHttpObjectCodec http2StreamCodec = new Http2StreamFrameToHttpObjectCodec(false);
+		Http2StreamAdapter http2StreamAdapter = new Http2StreamAdapter();
+		http2StreamInitializer = new ChannelInitializer() {
+			@Override
+			protected void initChannel(Channel ch) throws Exception {
+				ChannelPipeline pipeline = ch.pipeline();
+
+				addLoggingIfDesired(pipeline, confMap.get(ConfKeys.NETTY_TRACE_LOGS));
+				pipeline.addLast("http-codec", http2StreamCodec);
+				pipeline.addLast("http2-stream-adapter", http2StreamAdapter);
+				pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
+				pipeline.addLast("httpClientHandler", httpClientHandler);
+			}
+		};
+
+
+		sslHandshakeTimeoutMillis = confMap.get(ConfKeys.SSL_HANDSHAKE_TIMEOUT_MILLIS);
+		sslContext = getSslContext(confMap, null);
+		http2 = confMap.get(ConfKeys.HTTP2);
+		http2PriorKnowledge = confMap.get(ConfKeys.HTTP2_PRIOR_KNOWLEDGE);
+		http2PriorKnowledgeHosts = confMap.get(ConfKeys.HTTP2_PRIOR_KNOWLEDGE_HOSTS);
+		httpPipelining = confMap.get(ConfKeys.HTTP_PIPELINING);
+		httpPipeliningMaxRequests = confMap.get(ConfKeys.HTTP_PIPELINING_MAX_REQUESTS);
+		contentCodecs = confMap.get(ConfKeys.CONTENT_CODECS);
+		webSocketUpgradePooledConnection = confMap.get(ConfKeys.WEB_SOCKET_UPGRADE_POOLED_CONNECTION);
+
+		if (http2) {
+			http2SslContext = getSslContext(confMap, new ApplicationProtocolConfig(ApplicationProtocolConfig.Protocol.ALPN,
+				ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE, ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+				ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1));
+		} else {
+			http2SslContext = null;
+		}
+
+		if (http2 || http2PriorKnowledge || !http2PriorKnowledgeHosts.isEmpty()) {
+			multiplexedChannelPool = new MultiplexedChannelPool(nettyTimer, timeProvider, confMap.get(ConfKeys.HTTP2_MAX_CONCURRENT_STREAMS), this);
+		} else {
+			multiplexedChannelPool = null;
+		}
+
 		httpBootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, confMap.get(ConfKeys.CONNECT_TIMEOUT_MILLIS));
 		wsBootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, confMap.get(ConfKeys.CONNECT_TIMEOUT_MILLIS));
 
@@ -108,9 +210,35 @@ public class ChannelManager {
 			wsBootstrap.option(channelOption, nettyChannelOptions.get(channelOption));
 		}
 
+		unixDomainSockets = confMap.get(ConfKeys.UNIX_DOMAIN_SOCKETS);
+		if (!unixDomainSockets.isEmpty()) {
+			if (NettyTransport.of(nioEventLoop) != NettyTransport.EPOLL) {
+				throw new IllegalStateException("Unix domain sockets need the epoll transport, which is not available");
+			}
+			httpDomainSocketBootstrap = newDomainSocketBootstrap(httpBootstrap);
+			wsDomainSocketBootstrap = newDomainSocketBootstrap(wsBootstrap);
+		} else {
+			httpDomainSocketBootstrap = null;
+			wsDomainSocketBootstrap = null;
+		}
+
 
 	}
 
+	private Bootstrap newDomainSocketBootstrap(Bootstrap tcpBootstrap) {  //the tcp specific channel options don't apply to domain sockets
+		return new Bootstrap()
+			.channel(EpollDomainSocketChannel.class)
+			.group(nioEventLoop)
+			.handler(tcpBootstrap.config().handler())
+			.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, confMap.get(ConfKeys.CONNECT_TIMEOUT_MILLIS));
+	}
+
+	public void shutdown() {
+		if (multiplexedChannelPool != null) {
+			multiplexedChannelPool.shutdown();
+		}
+	}
+
 	public void subscribeToRootBus(RootEventBus rootEventBus) {
 		rootEventBus.subscribePermanently(Event.ERROR, new ErrorCallback());
 		rootEventBus.subscribePermanently(Event.onInternalCompletion, new CompletedCallback());
@@ -136,14 +264,24 @@ public class ChannelManager {
 	}
 
 
-	private SslContext getSslContext(ConfMap confMap) {
+	private SslContext getSslContext(ConfMap confMap, ApplicationProtocolConfig applicationProtocolConfig) {
 		SslContextBuilder sslContextBuilder = SslContextBuilder.forClient();
 
+		SslProvider sslProvider = getSslProvider(confMap.get(ConfKeys.SSL_USE_OPENSSL), applicationProtocolConfig != null);
+		logger.debug("Using ssl provider {}", sslProvider);
+		sslContextBuilder.sslProvider(sslProvider);
+
+		if (applicationProtocolConfig != null) {
+			sslContextBuilder.applicationProtocolConfig(applicationProtocolConfig);
+		}
+
 		if (confMap.get(ConfKeys.SSL_ALLOW_ALL_CERTIFICATES)) {
 			sslContextBuilder.trustManager(InsecureTrustManagerFactory.INSTANCE);
 		}
 
-		sslContextBuilder.sessionTimeout(confMap.get(ConfKeys.SSL_HANDSHAKE_TIMEOUT_MILLIS));
+		//sessions are cached per host and port, and resumed (with session ids or session tickets) when reconnecting
+		sslContextBuilder.sessionCacheSize(confMap.get(ConfKeys.SSL_SESSION_CACHE_SIZE));
+		sslContextBuilder.sessionTimeout(confMap.get(ConfKeys.SSL_SESSION_TIMEOUT_SECONDS));
 
 		try {
 			return sslContextBuilder.build();
@@ -172,39 +310,239 @@ public class ChannelManager {
 
 		logger.trace("Sending request {} to server {}", httpRequestContext, serverInfo);
 
-		scheduleTimeOutTasks(requestEventBus, httpRequestContext, httpRequestContext.getTotalRequestTimeoutMillis(), httpRequestContext.getIdleTimeoutMillis());
+		scheduleTimeOutTasks(httpRequestContext, httpRequestContext.getTotalRequestTimeoutMillis(), httpRequestContext.getIdleTimeoutMillis());
 
 		requestEventBus.triggerEvent(Event.onConnecting);
 
 		boolean keepAlive = httpRequestContext.isKeepAlive();
 
-		if (keepAlive && channelPool.isActive()) {
-			final Channel channel = channelPool.get(serverInfo);
-			if (channel != null) {
-				logger.trace("Got old channel {} for request {}", channel, httpRequestContext);
-				requestEventBus.triggerEvent(Event.REUSED_CONNECTION, serverInfo);
-				requestEventBus.triggerEvent(Event.onConnected);
+		if (keepAlive && isMultiplexed(serverInfo)) {
+			sendOnMultiplexedConnection(httpRequestContext, requestEventBus);
+		} else {
+			sendOnHttp1Channel(httpRequestContext, requestEventBus);
+		}
 
-				sendOnChannel(channel, httpRequestContext, requestEventBus);
-			} else {
-				logger.trace("Sending on a new channel for request {}", httpRequestContext);
-				sendOnNewChannel(httpRequestContext, requestEventBus);
+	}
+
+	private boolean isMultiplexed(ServerInfo serverInfo) {
+		if (multiplexedChannelPool == null || serverInfo.isWebSocket() || !multiplexedChannelPool.isMultiplexed(serverInfo)) {
+			return false;
+		}
+
+		if (serverInfo.isSecure()) {
+			return http2;
+		}
+
+		return isHttp2PriorKnowledge(serverInfo);
+	}
+
+	private boolean isHttp2PriorKnowledge(ServerInfo serverInfo) {
+		return http2PriorKnowledge || http2PriorKnowledgeHosts.contains(serverInfo.getHost())
+			|| http2PriorKnowledgeHosts.contains(serverInfo.getHost() + ":" + serverInfo.getPort());
+	}
+
+	private boolean isPipelinable(HttpRequestContext httpRequestContext) {
+		HttpMethod httpMethod = httpRequestContext.getHttpMethod();
+		return httpPipelining && httpRequestContext.isKeepAlive() && channelPool.isActive() && !httpRequestContext.getServerInfo().isWebSocket()
+			&& (HttpMethod.GET.equals(httpMethod) || HttpMethod.HEAD.equals(httpMethod)) && httpRequestContext.getNettyHttpClientRequest().getHttpBody() == null;
+	}
+
+	private boolean sendOnPipelinedChannel(HttpRequestContext httpRequestContext, RequestEventBus requestEventBus) {
+		Queue<HttpPipeliningHandler> pipelines = httpPipelines.get(httpRequestContext.getServerInfo());
+		if (pipelines == null) {
+			return false;
+		}
+
+		for (HttpPipeliningHandler pipeliningHandler : pipelines) {
+			if (pipeliningHandler.tryReserve(httpRequestContext)) {
+				Channel channel = pipeliningHandler.getChannel();
+				logger.trace("Pipelining request {} on channel {}", httpRequestContext, channel);
+				requestEventBus.triggerEvent(Event.REUSED_CONNECTION, httpRequestContext.getServerInfo());
+				requestEventBus.triggerEvent(Event.onConnected);
+				attachToChannel(channel, httpRequestContext, requestEventBus);
+				pipeliningHandler.write(httpRequestContext, () -> flushOnChannel(channel, httpRequestContext, requestEventBus));
+				return true;
 			}
+		}
+
+		return false;
+	}
+
+	private void sendOnHttp1Channel(HttpRequestContext httpRequestContext, RequestEventBus requestEventBus) {
+		if (isPipelinable(httpRequestContext) && sendOnPipelinedChannel(httpRequestContext, requestEventBus)) {
+			return;
+		}
+
+		if (isWebSocketUpgradeOfPooledChannel(httpRequestContext) && sendOnUpgradedPooledChannel(httpRequestContext, requestEventBus)) {
+			return;
+		}
+
+		if (httpRequestContext.isKeepAlive() && channelPool.isActive()) {
+			channelPool.acquire(httpRequestContext.getServerInfo(), new PooledChannelAcquirer(httpRequestContext, requestEventBus));
 		} else {
 			logger.trace("Sending on a new channel for request {}", httpRequestContext);
-			sendOnNewChannel(httpRequestContext, requestEventBus);
+			sendOnNewChannel(httpRequestContext, requestEventBus, false, null, null);
+		}
+
+	}
+
+	private boolean isWebSocketUpgradeOfPooledChannel(HttpRequestContext httpRequestContext) {
+		return webSocketUpgradePooledConnection && httpRequestContext.getServerInfo().isWebSocket() && channelPool.isActive();
+	}
+
+	private boolean sendOnUpgradedPooledChannel(HttpRequestContext httpRequestContext, RequestEventBus requestEventBus) {
+		ServerInfo serverInfo = httpRequestContext.getServerInfo();
+		ServerInfo httpServerInfo = serverInfo.getHttpServerInfo();
+
+		Channel channel = channelPool.get(httpServerInfo);
+		if (channel == null) {
+			return false;
 		}
 
+		channelPool.detach(httpServerInfo, channel);  //the channel will never be an http channel again
+
+		channel.eventLoop().execute(() -> {
+			logger.trace("Upgrading pooled channel {} for web socket request {}", channel, httpRequestContext);
+			replaceHttpHandlersWithWebSocketHandler(channel.pipeline());
+			channel.attr(ServerInfo.ATTRIBUTE_KEY).set(serverInfo);
+
+			requestEventBus.triggerEvent(Event.REUSED_CONNECTION, serverInfo);
+			requestEventBus.triggerEvent(Event.onConnected);
+
+			sendOnChannel(channel, httpRequestContext, requestEventBus);
+		});
+		return true;
+	}
+
+	/**
+	 * Make the pipeline of an http channel look like one opened by the web socket bootstrap, the upgrade response then swaps the http codec out as usual
+	 */
+	private void replaceHttpHandlersWithWebSocketHandler(ChannelPipeline pipeline) {
+		for (String name : new String[]{"inflater", "content-encoder", HttpPipeliningHandler.NAME, "chunkedWriter"}) {
+			if (pipeline.get(name) != null) {
+				pipeline.remove(name);
+			}
+		}
+		pipeline.replace("httpClientHandler", "webSocketHandler", webSocketHandler);
+	}
+
+	private void sendOnMultiplexedConnection(HttpRequestContext httpRequestContext, RequestEventBus requestEventBus) {
+		ServerInfo serverInfo = httpRequestContext.getServerInfo();
+
+		AtomicBoolean errorHappened = new AtomicBoolean();
+		requestEventBus.subscribe(Event.ERROR, (payload1, payload2) -> errorHappened.set(true));
+
+		CompletableFuture<Channel> connectionFuture = multiplexedChannelPool.acquire(serverInfo);
+		boolean reusedConnection = connectionFuture.isDone();
+
+		connectionFuture.whenComplete((connection, throwable) -> {
+			if (throwable != null) {
+				logger.trace("Failed to open a multiplexed connection for request {}", httpRequestContext);
+				if (!errorHappened.get()) {
+					requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, unrollNettyException(throwable));
+				}
+				return;
+			}
+
+			if (connection == null) {  //the server did not agree to http2
+				if (!errorHappened.get()) {
+					sendOnHttp1Channel(httpRequestContext, requestEventBus);
+				}
+				return;
+			}
+
+			if (errorHappened.get()) {  //we have already triggered an error while we waited for the connection
+				multiplexedChannelPool.release(serverInfo, connection);
+				return;
+			}
+
+			new Http2StreamChannelBootstrap(connection).handler(http2StreamInitializer).open().addListener((FutureListener<Http2StreamChannel>) future -> {
+				if (!future.isSuccess()) {
+					multiplexedChannelPool.release(serverInfo, connection);
+					if (!errorHappened.get()) {
+						requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, unrollNettyException(future.cause()));
+					}
+					return;
+				}
+
+				Http2StreamChannel streamChannel = future.getNow();
+				streamChannel.closeFuture().addListener(closeFuture -> multiplexedChannelPool.release(serverInfo, connection));
+
+				if (errorHappened.get()) {
+					streamChannel.close();
+					return;
+				}
+
+				httpRequestContext.getLifecycleListener().onTouch();
+				requestEventBus.triggerEvent(reusedConnection ? Event.REUSED_CONNECTION : Event.CREATED_CONNECTION, serverInfo);
+				requestEventBus.triggerEvent(Event.onConnected);
+
+				logger.trace("Opened stream {} for request {}", streamChannel, httpRequestContext);
+				streamChannel.attr(ServerInfo.ATTRIBUTE_KEY).set(serverInfo);
+				sendOnChannel(streamChannel, httpRequestContext, requestEventBus);
+			});
+		});
 	}
 
 	private void sendOnChannel(final Channel channel, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
-		addOrRemoveInflaterFromChannel(channel, httpRequestContext);
+		addOrRemoveContentCodecsFromChannel(channel, httpRequestContext);
+
+		if (isPipelinable(httpRequestContext) && !(channel instanceof Http2StreamChannel)) {
+			HttpPipeliningHandler pipeliningHandler = startPipelining(channel, httpRequestContext);
+			writeOnChannel(channel, httpRequestContext, requestEventBus);
+			//only let other requests be pipelined after this request has been written
+			addPipeline(httpRequestContext.getServerInfo(), pipeliningHandler);
+			return;
+		}
 
+		writeOnChannel(channel, httpRequestContext, requestEventBus);
+	}
+
+	private HttpPipeliningHandler startPipelining(Channel channel, HttpRequestContext httpRequestContext) {
+		ServerInfo serverInfo = httpRequestContext.getServerInfo();
+		HttpPipeliningHandler pipeliningHandler = new HttpPipeliningHandler(channel, httpRequestContext,
+			closedPipeline -> removePipeline(serverInfo, closedPipeline), httpPipeliningMaxRequests);
+		channel.pipeline().addBefore("httpClientHandler", HttpPipeliningHandler.NAME, pipeliningHandler);
+		return pipeliningHandler;
+	}
+
+	private void addPipeline(ServerInfo serverInfo, HttpPipeliningHandler pipeliningHandler) {
+		httpPipelines.compute(serverInfo, (key, pipelines) -> {
+			if (pipelines == null) {
+				pipelines = new ConcurrentLinkedQueue<>();
+			}
+			pipelines.add(pipeliningHandler);
+			return pipelines;
+		});
+
+		if (pipeliningHandler.isClosed()) {  //closed before it was added, so its own removal did not find it
+			removePipeline(serverInfo, pipeliningHandler);
+		}
+	}
+
+	/**
+	 * Remove the pipeline, and the queue of the server when it was the last pipeline to it
+	 */
+	private void removePipeline(ServerInfo serverInfo, HttpPipeliningHandler pipeliningHandler) {
+		httpPipelines.computeIfPresent(serverInfo, (key, pipelines) -> {
+			pipelines.remove(pipeliningHandler);
+			return pipelines.isEmpty() ? null : pipelines;
+		});
+	}
+
+	private void writeOnChannel(final Channel channel, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		attachToChannel(channel, httpRequestContext, requestEventBus);
+		flushOnChannel(channel, httpRequestContext, requestEventBus);
+	}
+
+	private void attachToChannel(final Channel channel, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
 		httpRequestContext.attachedToChannel(channel);
 		requestEventBus.triggerEvent(Event.onAttachedToChannel, channel);
 
 		requestEventBus.subscribe(Event.CLOSE, (payload) -> channel.close());
+	}
 
+	private void flushOnChannel(final Channel channel, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
 		ChannelFuture channelFuture = channel.writeAndFlush(httpRequestContext);
 		channelFuture.addListener(future -> {
             if (!future.isSuccess()) {
@@ -215,10 +553,10 @@ public class ChannelManager {
 		logger.trace("Wrote {} to channel {}", httpRequestContext, channel);
 	}
 
-	private void addOrRemoveInflaterFromChannel(Channel channel, HttpRequestContext httpRequestContext) {
+	private void addOrRemoveContentCodecsFromChannel(Channel channel, HttpRequestContext httpRequestContext) {
 		if (httpRequestContext.automaticallyDecompressResponse()) {
 			if (channel.pipeline().get("inflater") == null) {
-				channel.pipeline().addAfter("http-codec", "inflater", new HttpContentDecompressor());
+				channel.pipeline().addAfter("http-codec", "inflater", new ContentCodecDecompressor(contentCodecs));
 			}
 		} else {
 			if (channel.pipeline().get("inflater") != null) {
@@ -226,67 +564,98 @@ public class ChannelManager {
 			}
 		}
 
+		ContentCodec requestBodyContentCodec = httpRequestContext.requestBodyContentCodec();
+		ContentEncoder contentEncoder = (ContentEncoder) channel.pipeline().get("content-encoder");
+		if (contentEncoder != null && contentEncoder.getContentCodec() != requestBodyContentCodec) {
+			channel.pipeline().remove(contentEncoder);
+			contentEncoder = null;
+		}
+		if (contentEncoder == null && requestBodyContentCodec != null) {
+			channel.pipeline().addAfter("http-codec", "content-encoder", new ContentEncoder(requestBodyContentCodec));
+		}
 	}
 
-	private void scheduleTimeOutTasks(RequestEventBus requestEventBus, HttpRequestContext httpRequestContext, int totalRequestTimeoutMillis, int idleTimeoutMillis) {
-
-		if (totalRequestTimeoutMillis > 0) {
-			TotalRequestTimeoutTimerTask totalRequestTimeoutTimerTask = new TotalRequestTimeoutTimerTask(requestEventBus, httpRequestContext);
-			TimeoutTimerHandler timeoutTimerHandler = new TimeoutTimerHandler(nettyTimer, requestEventBus, totalRequestTimeoutTimerTask);
-			timeoutTimerHandler.scheduleTimeout(totalRequestTimeoutMillis, TimeUnit.MILLISECONDS);
+	private void scheduleTimeOutTasks(HttpRequestContext httpRequestContext, int totalRequestTimeoutMillis, int idleTimeoutMillis) {
+		if (idleTimeoutMillis >= totalRequestTimeoutMillis && totalRequestTimeoutMillis != 0) {
+			idleTimeoutMillis = 0;
 		}
 
+		RequestTimeout requestTimeout = httpRequestContext.getRequestTimeout();
+		if (requestTimeout == null) {
+			if (totalRequestTimeoutMillis <= 0 && idleTimeoutMillis == 0) {
+				return;
+			}
 
-		if (idleTimeoutMillis != 0 && (idleTimeoutMillis < totalRequestTimeoutMillis || totalRequestTimeoutMillis == 0)) {
-			IdleTimeoutTimerTask idleTimeoutTimerTask = new IdleTimeoutTimerTask(httpRequestContext, idleTimeoutMillis,
-				timeProvider, requestEventBus);
-
-			TimeoutTimerHandler timeoutTimerHandler = new TimeoutTimerHandler(nettyTimer, requestEventBus, idleTimeoutTimerTask);
-			timeoutTimerHandler.scheduleTimeout(idleTimeoutMillis, TimeUnit.MILLISECONDS);
-			idleTimeoutTimerTask.setTimeoutTimerHandler(timeoutTimerHandler);
-
+			requestTimeout = new RequestTimeout(nioEventLoop.next(), timeProvider);
+			httpRequestContext.setRequestTimeout(requestTimeout);
+			httpRequestContext.addLifecycleListener(requestTimeout);
 		}
 
+		requestTimeout.arm(httpRequestContext, totalRequestTimeoutMillis, idleTimeoutMillis);
 	}
 
 	private Bootstrap getBootstrap(ServerInfo serverInfo) {
+		boolean domainSocket = getDomainSocketAddress(serverInfo) != null;
 		if (serverInfo.isWebSocket()) {
-			return wsBootstrap;
+			return domainSocket ? wsDomainSocketBootstrap : wsBootstrap;
 		} else {
-			return httpBootstrap;
+			return domainSocket ? httpDomainSocketBootstrap : httpBootstrap;
 		}
 	}
 
-	private void sendOnNewChannel(final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+	private DomainSocketAddress getDomainSocketAddress(ServerInfo serverInfo) {
+		if (unixDomainSockets.isEmpty()) {
+			return null;
+		}
+
+		String path = unixDomainSockets.get(serverInfo.getHost() + ":" + serverInfo.getPort());
+		if (path == null) {
+			path = unixDomainSockets.get(serverInfo.getHost());
+		}
+		return path != null ? new DomainSocketAddress(path) : null;
+	}
+
+	private void sendOnNewChannel(final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus, boolean pooledConnection, EventLoop eventLoop,
+								  InetSocketAddress remoteAddress) {
 		final ServerInfo serverInfo = httpRequestContext.getServerInfo();
 
-		ChannelFuture channelFuture = getBootstrap(serverInfo).connect(serverInfo.getHost(), serverInfo.getPort());
+		Bootstrap bootstrap = getBootstrap(serverInfo);
+		if (eventLoop != null) {  //open the connection on the event loop the request is assigned to
+			bootstrap = bootstrap.clone(eventLoop);
+		}
+
+		Future<Channel> connectFuture = connectChannel(bootstrap, getRemoteAddress(serverInfo, remoteAddress));
 		AtomicBoolean errorHappened = new AtomicBoolean();
 		requestEventBus.subscribe(Event.ERROR, (payload1, payload2) -> errorHappened.set(true));
 
-		channelFuture.addListener((ChannelFutureListener) future -> {
+		connectFuture.addListener((FutureListener<Channel>) future -> {
 			if (errorHappened.get()) { //we have already triggered an error while we waited for the connection to happen
 				if (future.isSuccess()) {
-					future.channel().close();
+					future.getNow().close();
+				}
+				if (pooledConnection) {
+					channelPool.releaseConnection(serverInfo);
 				}
 				return;
 			}
 
-			requestEventBus.triggerEvent(Event.TOUCH);
+			httpRequestContext.getLifecycleListener().onTouch();
 			if (future.isSuccess()) {
+				Channel channel = future.getNow();
+				if (pooledConnection) {
+					channelPool.registerConnection(serverInfo, channel);
+				}
+
 				requestEventBus.triggerEvent(Event.CREATED_CONNECTION, serverInfo);
 				requestEventBus.triggerEvent(Event.onConnected);
 
-				Channel channel = future.channel();
 				logger.trace("Opened a new channel {}, for request {}", channel, httpRequestContext);
 				channel.attr(ServerInfo.ATTRIBUTE_KEY).set(serverInfo);
 
 				if (serverInfo.isSecure()) {
-					SslHandler sslHandler = sslContext.newHandler(channel.alloc(), serverInfo.getHost(), serverInfo.getPort());
-					channel.pipeline().addFirst("ssl", sslHandler);
-
+					SslHandler sslHandler = addSslHandler(channel, serverInfo);
 					sslHandler.handshakeFuture().addListener((FutureListener<Channel>) sslHandshakeFuture -> {
-						requestEventBus.triggerEvent(Event.TOUCH);
+						httpRequestContext.getLifecycleListener().onTouch();
 						if (sslHandshakeFuture.isSuccess()) {
 							logger.trace("SSL handshake successful, sending on channel {}, for request {}", channel, httpRequestContext);
 							sendOnChannel(channel, httpRequestContext, requestEventBus);
@@ -307,6 +676,9 @@ public class ChannelManager {
 
 			} else {
 				logger.trace("Failed to opened a new channel for request {}", httpRequestContext);
+				if (pooledConnection) {
+					channelPool.releaseConnection(serverInfo);
+				}
 				Throwable cause = unrollNettyException(future.cause());
 				requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, cause);
 			}
@@ -314,6 +686,155 @@ public class ChannelManager {
         });
 	}
 
+	private SslProvider getSslProvider(boolean useOpenSsl, boolean alpn) {
+		if (!useOpenSsl) {
+			return SslProvider.JDK;
+		}
+
+		if (!OpenSsl.isAvailable()) {
+			logger.warn("OpenSSL is not available, using the JDK ssl provider", OpenSsl.unavailabilityCause());
+			return SslProvider.JDK;
+		}
+
+		if (alpn && !SslProvider.isAlpnSupported(SslProvider.OPENSSL)) {
+			logger.warn("OpenSSL does not support ALPN, using the JDK ssl provider");
+			return SslProvider.JDK;
+		}
+
+		return SslProvider.OPENSSL;
+	}
+
+	private SslHandler addSslHandler(Channel channel, ServerInfo serverInfo) {
+		return addSslHandler(channel, serverInfo, sslContext);
+	}
+
+	private SslHandler addSslHandler(Channel channel, ServerInfo serverInfo, SslContext sslContext) {
+		SslHandler sslHandler = sslContext.newHandler(channel.alloc(), serverInfo.getHost(), serverInfo.getPort());
+		sslHandler.setHandshakeTimeoutMillis(sslHandshakeTimeoutMillis);
+		channel.pipeline().addFirst("ssl", sslHandler);
+		return sslHandler;
+	}
+
+	private SocketAddress getRemoteAddress(ServerInfo serverInfo, InetSocketAddress remoteAddress) {
+		DomainSocketAddress domainSocketAddress = getDomainSocketAddress(serverInfo);
+		if (domainSocketAddress != null) {
+			return domainSocketAddress;
+		}
+
+		if (remoteAddress != null) {
+			return remoteAddress;
+		}
+		return InetSocketAddress.createUnresolved(serverInfo.getHost(), serverInfo.getPort());
+	}
+
+	@Override
+	public Future<Channel> connect(ServerInfo serverInfo, InetSocketAddress remoteAddress) {
+		return connect(serverInfo, remoteAddress, sslContext);
+	}
+
+	@Override
+	public Future<Channel> connectMultiplexed(ServerInfo serverInfo) {
+		Future<Channel> connectFuture = connect(serverInfo, null, http2SslContext);
+		Promise<Channel> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+
+		connectFuture.addListener((FutureListener<Channel>) future -> {
+			if (!future.isSuccess()) {
+				promise.tryFailure(future.cause());
+				return;
+			}
+
+			Channel channel = future.getNow();
+			if (serverInfo.isSecure() && !ApplicationProtocolNames.HTTP_2.equals(channel.pipeline().get(SslHandler.class).applicationProtocol())) {  //hand the http/1.1 connection over to the normal pool
+				if (channelPool.isActive()) {
+					channelPool.adopt(serverInfo, channel, getKeepAliveTimeoutMillis());
+				} else {
+					channel.close();
+				}
+				promise.trySuccess(null);
+				return;
+			}
+
+			upgradePipelineToHttp2(channel.pipeline());
+			promise.trySuccess(channel);
+		});
+
+		return promise;
+	}
+
+	private void upgradePipelineToHttp2(ChannelPipeline pipeline) {
+		pipeline.remove("http-codec");
+		pipeline.remove("chunkedWriter");
+		pipeline.remove("httpClientHandler");
+
+		pipeline.addLast("http2-codec", Http2FrameCodecBuilder.forClient().initialSettings(Http2Settings.defaultSettings().pushEnabled(false)).build());
+		pipeline.addLast("http2-multiplex", new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+		pipeline.addLast("http2-connection-state", http2ConnectionStateHandler);
+	}
+
+	private Future<Channel> connectChannel(Bootstrap bootstrap, SocketAddress remoteAddress) {
+		if (happyEyeballsConnector != null && remoteAddress instanceof InetSocketAddress && ((InetSocketAddress) remoteAddress).isUnresolved()) {
+			return happyEyeballsConnector.connect(bootstrap, (InetSocketAddress) remoteAddress);
+		}
+
+		ChannelFuture channelFuture = bootstrap.connect(remoteAddress);
+		Promise<Channel> promise = channelFuture.channel().eventLoop().newPromise();
+		channelFuture.addListener((ChannelFutureListener) future -> {
+			if (future.isSuccess()) {
+				promise.trySuccess(future.channel());
+			} else {
+				promise.tryFailure(future.cause());
+			}
+		});
+		return promise;
+	}
+
+	private Future<Channel> connect(ServerInfo serverInfo, InetSocketAddress remoteAddress, SslContext sslContext) {
+		Future<Channel> connectFuture = connectChannel(getBootstrap(serverInfo), getRemoteAddress(serverInfo, remoteAddress));
+		Promise<Channel> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+
+		connectFuture.addListener((FutureListener<Channel>) future -> {
+			if (!future.isSuccess()) {
+				promise.tryFailure(future.cause());
+				return;
+			}
+
+			Channel channel = future.getNow();
+			channel.attr(ServerInfo.ATTRIBUTE_KEY).set(serverInfo);
+
+			if (serverInfo.isSecure()) {
+				SslHandler sslHandler = addSslHandler(channel, serverInfo, sslContext);
+				sslHandler.handshakeFuture().addListener((FutureListener<Channel>) sslHandshakeFuture -> {
+					if (sslHandshakeFuture.isSuccess()) {
+						promise.trySuccess(channel);
+					} else {
+						channel.close();
+						promise.tryFailure(sslHandshakeFuture.cause());
+					}
+				});
+			} else {
+				promise.trySuccess(channel);
+			}
+		});
+
+		return promise;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Future<List<InetSocketAddress>> resolveAll(ServerInfo serverInfo) {
+		if (getDomainSocketAddress(serverInfo) != null) {  //connections to domain sockets are not spread over addresses
+			return ImmediateEventExecutor.INSTANCE.newSucceededFuture(Collections.emptyList());
+		}
+
+		AddressResolver<InetSocketAddress> addressResolver = (AddressResolver<InetSocketAddress>) confMap.get(ConfKeys.DNS_RESOLVER).getResolver(nioEventLoop.next());
+		return addressResolver.resolveAll(InetSocketAddress.createUnresolved(serverInfo.getHost(), serverInfo.getPort()));
+	}
+
+	@Override
+	public int getKeepAliveTimeoutMillis() {
+		return confMap.get(ConfKeys.KEEP_ALIVE_TIMEOUT_MILLIS);
+	}
+
 	private Throwable unrollNettyException(Throwable cause) {
 		if (cause != null) {
 			String packageString = cause.getClass().getPackage().getName();
@@ -330,10 +851,92 @@ public class ChannelManager {
 	}
 
 
+	private EventLoop currentOrNextEventLoop() {
+		EventLoop eventLoop = currentEventLoop.get();
+		return eventLoop != null ? eventLoop : nioEventLoop.next();
+	}
+
+	private class PooledChannelAcquirer implements ChannelAcquireCallback {
+		private final AtomicBoolean done = new AtomicBoolean();
+		private final HttpRequestContext httpRequestContext;
+		private final RequestEventBus requestEventBus;
+		private volatile boolean errorHappened;
+		private volatile EventLoop eventLoop;
+
+		PooledChannelAcquirer(HttpRequestContext httpRequestContext, RequestEventBus requestEventBus) {
+			this.httpRequestContext = httpRequestContext;
+			this.requestEventBus = requestEventBus;
+
+			requestEventBus.subscribe(Event.ERROR, (payload1, payload2) -> {
+				errorHappened = true;
+				done.set(true);
+			});
+		}
+
+		@Override
+		public void onPooledChannel(Channel channel) {
+			ServerInfo serverInfo = httpRequestContext.getServerInfo();
+			if (!done.compareAndSet(false, true)) {  //the request has failed while it was waiting, give the channel back
+				channelPool.offer(serverInfo, channel, httpRequestContext.getKeepAliveTimeoutMillis());
+				return;
+			}
+
+			channel.eventLoop().execute(() -> {
+				if (errorHappened) {
+					channelPool.offer(serverInfo, channel, httpRequestContext.getKeepAliveTimeoutMillis());
+					return;
+				}
+
+				logger.trace("Got old channel {} for request {}", channel, httpRequestContext);
+				requestEventBus.triggerEvent(Event.REUSED_CONNECTION, serverInfo);
+				requestEventBus.triggerEvent(Event.onConnected);
+
+				sendOnChannel(channel, httpRequestContext, requestEventBus);
+			});
+		}
+
+		@Override
+		public void onNewConnection() {
+			onNewConnection(null);
+		}
+
+		@Override
+		public void onNewConnection(InetSocketAddress remoteAddress) {
+			if (!done.compareAndSet(false, true)) {
+				channelPool.releaseConnection(httpRequestContext.getServerInfo());
+				return;
+			}
+
+			logger.trace("Sending on a new channel for request {}", httpRequestContext);
+			sendOnNewChannel(httpRequestContext, requestEventBus, true, eventLoop, remoteAddress);
+		}
+
+		@Override
+		public void onFailure(Throwable cause) {
+			if (done.compareAndSet(false, true)) {
+				requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, cause);
+			}
+		}
+
+		@Override
+		public boolean isDone() {
+			return done.get();
+		}
+
+		@Override
+		public EventLoop getEventLoop() {
+			if (eventLoop == null) {
+				eventLoop = currentOrNextEventLoop();
+			}
+			return eventLoop;
+		}
+	}
+
 	private class ErrorCallback implements EventBusCallback2<HttpRequestContext, Throwable> {
 
 		@Override
 		public void onEvent(HttpRequestContext httpRequestContext, Throwable throwable) {
+			httpRequestContext.cancelRequestTimeout();
 			ServerInfo serverInfo = httpRequestContext.getServerInfo();
 
 			Channel channel = httpRequestContext.getAndDetachChannel();
@@ -354,15 +957,14 @@ public class ChannelManager {
 
 		@Override
 		public void onEvent(HttpRequestContext httpRequestContext) {
+			httpRequestContext.cancelRequestTimeout();
 			RequestEventBus requestEventBus = httpRequestContext.getRequestEventBus();
 			Channel channel = httpRequestContext.getAndDetachChannel();
 			ServerInfo serverInfo = httpRequestContext.getServerInfo();
 
-			if (!channelPool.isActive()) {
-				if (channel != null) {
-					channel.close();
-				}
-				requestEventBus.triggerEvent(Event.CLOSED_CONNECTION, serverInfo);
+			if (channel instanceof Http2StreamChannel) {  //the stream is done, the connection stays in the multiplexed pool
+				channel.close();
+				requestEventBus.triggerEvent(Event.POOLED_CONNECTION, serverInfo);
 				return;
 			}
 
@@ -377,10 +979,29 @@ public class ChannelManager {
 				}
 			}
 
+			int completedRequests = 1;
+			HttpPipeliningHandler pipeliningHandler = channel != null ? (HttpPipeliningHandler) channel.pipeline().get(HttpPipeliningHandler.NAME) : null;
+			if (pipeliningHandler != null) {
+				boolean lastRequest = pipeliningHandler.complete(httpRequestContext);
+				if (!lastRequest && keepAlive && !pipeliningHandler.isClosed()) {  //other requests are still pipelined on the channel
+					requestEventBus.triggerEvent(Event.POOLED_CONNECTION, serverInfo);
+					return;
+				}
+				completedRequests = pipeliningHandler.getCompletedRequests();
+			}
+
+			if (!channelPool.isActive()) {
+				if (channel != null) {
+					channel.close();
+				}
+				requestEventBus.triggerEvent(Event.CLOSED_CONNECTION, serverInfo);
+				return;
+			}
+
 			if (keepAlive) {
 				if (channel != null) {
 					int keepAliveTimeoutMillis = httpRequestContext.getKeepAliveTimeoutMillis();
-					channelPool.offer(serverInfo, channel, keepAliveTimeoutMillis);
+					channelPool.offer(serverInfo, channel, keepAliveTimeoutMillis, completedRequests);
 					requestEventBus.triggerEvent(Event.POOLED_CONNECTION, serverInfo);
 				}
 
@@ -0,0 +1,48 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+/**
+ * Calls two listeners in the order they were added
+ */
+final class CompositeRequestLifecycleListener implements RequestLifecycleListener {
+	private final RequestLifecycleListener first;
+	private final RequestLifecycleListener second;
+
+	CompositeRequestLifecycleListener(RequestLifecycleListener first, RequestLifecycleListener second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	@Override
+	public void onTouch() {
+		first.onTouch();
+		second.onTouch();
+	}
+
+	@Override
+	public void onReceivedHeaders(HttpResponseStatus httpResponseStatus, HttpHeaders httpHeaders) {
+		first.onReceivedHeaders(httpResponseStatus, httpHeaders);
+		second.onReceivedHeaders(httpResponseStatus, httpHeaders);
+	}
+
+	@Override
+	public void onReceivedContentPart(int length, ByteBuf content) {
+		first.onReceivedContentPart(length, content);
+		second.onReceivedContentPart(length, content);
+	}
+
+	@Override
+	public void onReceivedCompleted(HttpResponseStatus httpResponseStatus, HttpHeaders httpHeaders) {
+		first.onReceivedCompleted(httpResponseStatus, httpHeaders);
+		second.onReceivedCompleted(httpResponseStatus, httpHeaders);
+	}
+}
@@ -0,0 +1,193 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoop;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Connects to hosts that resolve to several addresses by racing staggered connection attempts (happy eyeballs, RFC 8305).
+ * The addresses are tried with ipv6 and ipv4 interleaved, a new attempt is started when the previous one fails or has not succeeded within the attempt delay.
+ * The first connection that succeeds is used and the other attempts are closed.
+ */
+class HappyEyeballsConnector {
+	private final Logger logger = getLogger(getClass());
+
+	private final AddressResolverGroup<?> addressResolverGroup;
+	private final int connectionAttemptDelayMillis;
+
+	HappyEyeballsConnector(AddressResolverGroup<?> addressResolverGroup, int connectionAttemptDelayMillis) {
+		this.addressResolverGroup = addressResolverGroup;
+		this.connectionAttemptDelayMillis = connectionAttemptDelayMillis;
+	}
+
+	/**
+	 * Connect to any of the addresses the remote address resolves to
+	 * @param bootstrap the bootstrap the channel is opened with, all attempts are done on the same event loop
+	 * @param remoteAddress the unresolved address
+	 * @return future of the first connected channel
+	 */
+	@SuppressWarnings("unchecked")
+	Future<Channel> connect(Bootstrap bootstrap, InetSocketAddress remoteAddress) {
+		EventLoop eventLoop = bootstrap.config().group().next();
+		Bootstrap eventLoopBootstrap = bootstrap.clone(eventLoop);
+		Promise<Channel> promise = eventLoop.newPromise();
+
+		AddressResolver<InetSocketAddress> addressResolver = (AddressResolver<InetSocketAddress>) addressResolverGroup.getResolver(eventLoop);
+		addressResolver.resolveAll(remoteAddress).addListener((FutureListener<List<InetSocketAddress>>) future -> {
+			if (!future.isSuccess()) {
+				promise.tryFailure(future.cause());
+				return;
+			}
+
+			List<InetSocketAddress> addresses = interleaveAddressFamilies(future.getNow());
+			if (addresses.isEmpty()) {
+				promise.tryFailure(new UnknownHostException(remoteAddress.getHostString()));
+				return;
+			}
+
+			logger.trace("Connecting to {} using addresses {}", remoteAddress, addresses);
+			new ConnectionAttempts(eventLoopBootstrap, eventLoop, addresses, promise).startNextAttempt();
+		});
+
+		return promise;
+	}
+
+	/**
+	 * Order the addresses so that the address families alternate, starting with the family of the first address
+	 * @param addresses the resolved addresses
+	 * @return the addresses in the order they should be tried
+	 */
+	static List<InetSocketAddress> interleaveAddressFamilies(List<InetSocketAddress> addresses) {
+		if (addresses.isEmpty()) {
+			return addresses;
+		}
+
+		boolean firstIsIpv6 = addresses.get(0).getAddress() instanceof Inet6Address;
+		Deque<InetSocketAddress> preferred = new ArrayDeque<>();
+		Deque<InetSocketAddress> other = new ArrayDeque<>();
+		for (InetSocketAddress address : addresses) {
+			if (address.getAddress() instanceof Inet6Address == firstIsIpv6) {
+				preferred.add(address);
+			} else {
+				other.add(address);
+			}
+		}
+
+		List<InetSocketAddress> interleaved = new ArrayList<>(addresses.size());
+		while (!preferred.isEmpty() || !other.isEmpty()) {
+			if (!preferred.isEmpty()) {
+				interleaved.add(preferred.poll());
+			}
+			if (!other.isEmpty()) {
+				interleaved.add(other.poll());
+			}
+		}
+		return interleaved;
+	}
+
+	/**
+	 * The state of the attempts for one connect, only touched from the event loop
+	 */
+	private class ConnectionAttempts {
+		private final Bootstrap bootstrap;
+		private final EventLoop eventLoop;
+		private final List<InetSocketAddress> addresses;
+		private final Promise<Channel> promise;
+		private final List<ChannelFuture> attempts = new ArrayList<>();
+		private int nextAddress;
+		private int pendingAttempts;
+		private ScheduledFuture<?> delayedAttempt;
+
+		ConnectionAttempts(Bootstrap bootstrap, EventLoop eventLoop, List<InetSocketAddress> addresses, Promise<Channel> promise) {
+			this.bootstrap = bootstrap;
+			this.eventLoop = eventLoop;
+			this.addresses = addresses;
+			this.promise = promise;
+		}
+
+		void startNextAttempt() {
+			if (delayedAttempt != null) {
+				delayedAttempt.cancel(false);
+				delayedAttempt = null;
+			}
+
+			if (promise.isDone() || nextAddress >= addresses.size()) {
+				return;
+			}
+
+			InetSocketAddress address = addresses.get(nextAddress++);
+			pendingAttempts++;
+			ChannelFuture attempt = bootstrap.connect(address);
+			attempts.add(attempt);
+			attempt.addListener(future -> onAttemptCompleted(attempt));
+
+			if (nextAddress < addresses.size() && !promise.isDone()) {
+				delayedAttempt = eventLoop.schedule(this::startNextAttempt, connectionAttemptDelayMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		private void onAttemptCompleted(ChannelFuture attempt) {
+			pendingAttempts--;
+
+			if (attempt.isSuccess()) {
+				if (promise.trySuccess(attempt.channel())) {
+					logger.trace("Connected to {}", attempt.channel().remoteAddress());
+					closeOtherAttempts(attempt);
+				} else {
+					attempt.channel().close();
+				}
+				return;
+			}
+
+			if (promise.isDone()) {
+				return;
+			}
+
+			logger.trace("Connection attempt failed", attempt.cause());
+			if (nextAddress < addresses.size()) {  //don't wait for the attempt delay when an attempt has failed
+				startNextAttempt();
+			} else if (pendingAttempts == 0) {
+				promise.tryFailure(attempt.cause());
+			}
+		}
+
+		private void closeOtherAttempts(ChannelFuture winner) {
+			if (delayedAttempt != null) {
+				delayedAttempt.cancel(false);
+				delayedAttempt = null;
+			}
+
+			for (ChannelFuture attempt : attempts) {
+				if (attempt != winner) {
+					attempt.cancel(false);
+					attempt.channel().close();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import com.king.platform.net.http.netty.pool.MultiplexedChannelPool;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http2.Http2GoAwayFrame;
+import io.netty.handler.codec.http2.Http2SettingsFrame;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Last handler of an http2 connection. Keeps the connection attributes used by the {@link MultiplexedChannelPool} up to date
+ * with the settings and go away frames sent by the server.
+ */
+@Sharable
+public class Http2ConnectionStateHandler extends ChannelInboundHandlerAdapter {
+	private final Logger logger = getLogger(getClass());
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		try {
+			if (msg instanceof Http2SettingsFrame) {
+				Long maxConcurrentStreams = ((Http2SettingsFrame) msg).settings().maxConcurrentStreams();
+				if (maxConcurrentStreams != null) {
+					ctx.channel().attr(MultiplexedChannelPool.MAX_CONCURRENT_STREAMS).set((int) Math.min(maxConcurrentStreams, Integer.MAX_VALUE));
+				}
+			} else if (msg instanceof Http2GoAwayFrame) {
+				logger.trace("Server sent go away on channel {}", ctx.channel());
+				ctx.channel().attr(MultiplexedChannelPool.GOING_AWAY).set(true);
+			}
+		} finally {
+			ReferenceCountUtil.release(msg);
+		}
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+		logger.trace("Exception on http2 connection " + ctx.channel(), cause);
+		ctx.close();
+	}
+}
@@ -0,0 +1,49 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+
+/**
+ * Lets the http/1.1 request and response handlers run on an http2 stream. Request body bytes are wrapped into http content,
+ * and responses without body (which the http2 codec reads as full responses) are split into the response and its last content.
+ */
+@Sharable
+public class Http2StreamAdapter extends ChannelDuplexHandler {
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof FullHttpResponse) {
+			FullHttpResponse response = (FullHttpResponse) msg;
+			ctx.fireChannelRead(new DefaultHttpResponse(response.protocolVersion(), response.status(), response.headers()));
+			DefaultLastHttpContent lastHttpContent = new DefaultLastHttpContent(response.content());
+			lastHttpContent.trailingHeaders().set(response.trailingHeaders());
+			ctx.fireChannelRead(lastHttpContent);
+			return;
+		}
+
+		ctx.fireChannelRead(msg);
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (msg instanceof ByteBuf) {
+			ctx.write(new DefaultHttpContent((ByteBuf) msg), promise);
+			return;
+		}
+
+		ctx.write(msg, promise);
+	}
+}
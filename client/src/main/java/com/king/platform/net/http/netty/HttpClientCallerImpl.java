@@ -8,12 +8,17 @@ import com.king.platform.net.http.netty.metric.TimeStampRecorder;
 import com.king.platform.net.http.netty.request.NettyHttpClientRequest;
 import com.king.platform.net.http.netty.requestbuilder.UploadCallbackInvoker;
 import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -24,12 +29,16 @@ public class HttpClientCallerImpl implements HttpClientCaller {
 	private final boolean executeOnCallingThread;
 	private final BackPressure executionBackPressure;
 	private final TimeProvider timeProvider;
+	private final boolean recycleRequestObjects;
+	private final LongAdder outstandingRecyclableRequests = new LongAdder();
 
-	HttpClientCallerImpl(RootEventBus rootEventBus, boolean executeOnCallingThread, BackPressure executionBackPressure, TimeProvider timeProvider) {
+	HttpClientCallerImpl(RootEventBus rootEventBus, boolean executeOnCallingThread, BackPressure executionBackPressure, TimeProvider timeProvider,
+						 boolean recycleRequestObjects) {
 		this.rootEventBus = rootEventBus;
 		this.executeOnCallingThread = executeOnCallingThread;
 		this.executionBackPressure = executionBackPressure;
 		this.timeProvider = timeProvider;
+		this.recycleRequestObjects = recycleRequestObjects;
 	}
 
 	@Override
@@ -40,7 +49,9 @@ public class HttpClientCallerImpl implements HttpClientCaller {
 														  boolean followRedirects, boolean keepAlive, int keepAliveTimeoutMillis, boolean automaticallyDecompressResponse,
 														  WebSocketConf webSocketConf) {
 
+		boolean recyclable = recycleRequestObjects && webSocketConf == null;  //web sockets keep using the time stamp recorder after the upgrade
 		final RequestEventBus requestRequestEventBus = rootEventBus.createRequestEventBus();
+		final TimeStampRecorder timeStampRecorder = recyclable ? TimeStampRecorder.newInstance(timeProvider) : new TimeStampRecorder(timeProvider);
 
 		if (externalEventTrigger != null) {
 			externalEventTrigger.registerEventListener(new EventListener() {
@@ -72,11 +83,22 @@ public class HttpClientCallerImpl implements HttpClientCaller {
 
 		final HttpRequestContext<T> httpRequestContext = new HttpRequestContext<>(httpMethod, nettyHttpClientRequest, requestRequestEventBus,
 			responseBodyConsumer,
-			idleTimeoutMillis, totalRequestTimeoutMillis, followRedirects, keepAlive, keepAliveTimeoutMillis, new TimeStampRecorder(timeProvider), automaticallyDecompressResponse,
+			idleTimeoutMillis, totalRequestTimeoutMillis, followRedirects, keepAlive, keepAliveTimeoutMillis, timeStampRecorder, automaticallyDecompressResponse,
 			webSocketConf);
 
+		if (nioCallback != null) {
+			httpRequestContext.addLifecycleListener(new NioCallbackListener(nioCallback));
+		}
+
 		ResponseFuture<T> future = new ResponseFuture<>(requestRequestEventBus, httpRequestContext, callbackExecutor);
 
+		if (recyclable) {
+			outstandingRecyclableRequests.increment();
+			RecorderRelease recorderRelease = new RecorderRelease(timeStampRecorder);
+			requestRequestEventBus.subscribe(Event.COMPLETED, recorderRelease);
+			requestRequestEventBus.subscribe(Event.ERROR, recorderRelease);
+		}
+
 		if (!executionBackPressure.acquireSlot(nettyHttpClientRequest.getServerInfo())) {
 			requestRequestEventBus.triggerEvent(Event.ERROR, httpRequestContext, new KingHttpException("Too many concurrent connections"));
 			return future;
@@ -94,6 +116,10 @@ public class HttpClientCallerImpl implements HttpClientCaller {
 	}
 
 
+	long getOutstandingRecyclableRequests() {
+		return outstandingRecyclableRequests.sum();
+	}
+
 	@SuppressWarnings("unchecked")
 	private <T> ResponseBodyConsumer<T> getResponseBodyConsumer() {
 		return (ResponseBodyConsumer<T>) EMPTY_RESPONSE_BODY_CONSUMER;
@@ -120,10 +146,6 @@ public class HttpClientCallerImpl implements HttpClientCaller {
 		requestRequestEventBus.subscribePermanently(Event.onWroteHeaders, (payload) -> nioCallback.onWroteHeaders());
 		requestRequestEventBus.subscribePermanently(Event.onWroteContentProgressed, nioCallback::onWroteContentProgressed);
 		requestRequestEventBus.subscribePermanently(Event.onWroteContentCompleted, (payload) -> nioCallback.onWroteContentCompleted());
-		requestRequestEventBus.subscribePermanently(Event.onReceivedStatus, nioCallback::onReceivedStatus);
-		requestRequestEventBus.subscribePermanently(Event.onReceivedHeaders, nioCallback::onReceivedHeaders);
-		requestRequestEventBus.subscribePermanently(Event.onReceivedContentPart, nioCallback::onReceivedContentPart);
-		requestRequestEventBus.subscribePermanently(Event.onReceivedCompleted, nioCallback::onReceivedCompleted);
 		requestRequestEventBus.subscribePermanently(Event.ERROR, (httpRequestContext, throwable) -> nioCallback.onError(throwable));
 	}
 
@@ -145,6 +167,62 @@ public class HttpClientCallerImpl implements HttpClientCaller {
 	}
 
 
+	/**
+	 * Releases the time stamp recorder of a request on the first of COMPLETED and ERROR. COMPLETED is triggered after onInternalCompletion,
+	 * so the metric callback has read the recorder and the channel has been handed back. The recorder is only recycled if the request
+	 * has also been written completely, failed requests and responses that arrived before the write finished can still be written to
+	 * by the channel, so their recorders are left to the garbage collector.
+	 */
+	private class RecorderRelease implements EventBusCallback1<HttpRequestContext>, EventBusCallback2<HttpRequestContext, Throwable> {
+		private final TimeStampRecorder timeStampRecorder;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		RecorderRelease(TimeStampRecorder timeStampRecorder) {
+			this.timeStampRecorder = timeStampRecorder;
+		}
+
+		@Override
+		public void onEvent(HttpRequestContext httpRequestContext) {
+			if (released.compareAndSet(false, true)) {
+				outstandingRecyclableRequests.decrement();
+				if (timeStampRecorder.getCompletedWriteLastBody() != 0) {
+					timeStampRecorder.recycle();
+				}
+			}
+		}
+
+		@Override
+		public void onEvent(HttpRequestContext httpRequestContext, Throwable throwable) {
+			if (released.compareAndSet(false, true)) {
+				outstandingRecyclableRequests.decrement();
+			}
+		}
+	}
+
+	private static class NioCallbackListener implements RequestLifecycleListener {
+		private final NioCallback nioCallback;
+
+		NioCallbackListener(NioCallback nioCallback) {
+			this.nioCallback = nioCallback;
+		}
+
+		@Override
+		public void onReceivedHeaders(HttpResponseStatus httpResponseStatus, HttpHeaders httpHeaders) {
+			nioCallback.onReceivedStatus(httpResponseStatus);
+			nioCallback.onReceivedHeaders(httpHeaders);
+		}
+
+		@Override
+		public void onReceivedContentPart(int length, ByteBuf content) {
+			nioCallback.onReceivedContentPart(length, content);
+		}
+
+		@Override
+		public void onReceivedCompleted(HttpResponseStatus httpResponseStatus, HttpHeaders httpHeaders) {
+			nioCallback.onReceivedCompleted(httpResponseStatus, httpHeaders);
+		}
+	}
+
 	private static final ResponseBodyConsumer<Void> EMPTY_RESPONSE_BODY_CONSUMER = new ResponseBodyConsumer<Void>() {
 		@Override
 		public void onBodyStart(String contentType, String charset, long contentLength) throws Exception {
@@ -0,0 +1,191 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import com.king.platform.net.http.netty.eventbus.Event;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the requests pipelined on an http/1.1 channel. The responses are read in the same order as the requests were written,
+ * so when a response has been read completely the next request becomes the one the response handler reads for.
+ */
+class HttpPipeliningHandler extends ChannelInboundHandlerAdapter {
+	static final String NAME = "http-pipelining";
+
+	private final Channel channel;
+	private final Consumer<HttpPipeliningHandler> closeListener;
+	private final int maxRequests;
+	private final boolean automaticallyDecompressResponse;
+	private final ArrayDeque<HttpRequestContext> requests = new ArrayDeque<>();
+	private final ArrayDeque<HttpRequestContext> unwrittenRequests = new ArrayDeque<>();
+	private final Map<HttpRequestContext, Runnable> writers = new IdentityHashMap<>();
+	private int outstandingRequests;
+	private int completedRequests;
+	private boolean closed;
+
+	/**
+	 * @param closeListener called once when no more requests can be pipelined on the channel
+	 */
+	HttpPipeliningHandler(Channel channel, HttpRequestContext firstRequest, Consumer<HttpPipeliningHandler> closeListener, int maxRequests) {
+		this.channel = channel;
+		this.closeListener = closeListener;
+		this.maxRequests = maxRequests;
+		this.automaticallyDecompressResponse = firstRequest.automaticallyDecompressResponse();
+		requests.add(firstRequest);
+		outstandingRequests = 1;
+
+		channel.closeFuture().addListener(future -> failWaitingRequests());
+	}
+
+	Channel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Reserve a place for the request after the requests already pipelined on this channel, it is then written with {@link #write}.
+	 * @param httpRequestContext the request
+	 * @return false if the channel can't take any more requests
+	 */
+	synchronized boolean tryReserve(HttpRequestContext httpRequestContext) {
+		if (closed || outstandingRequests >= maxRequests || !channel.isActive()
+			|| automaticallyDecompressResponse != httpRequestContext.automaticallyDecompressResponse()) {
+			return false;
+		}
+
+		outstandingRequests++;
+		requests.add(httpRequestContext);
+		unwrittenRequests.add(httpRequestContext);
+		httpRequestContext.setPipelined(true);
+		return true;
+	}
+
+	/**
+	 * Write a reserved request. The writers are called on the event loop in the order the requests were reserved,
+	 * so the responses are read in the same order, a request that is written before the ones reserved before it waits for them.
+	 * @param httpRequestContext the reserved request
+	 * @param writer writes the request to the channel
+	 */
+	void write(HttpRequestContext httpRequestContext, Runnable writer) {
+		synchronized (this) {
+			if (!unwrittenRequests.contains(httpRequestContext)) {  //the channel closed and failed the request before it was written
+				return;
+			}
+			writers.put(httpRequestContext, writer);
+		}
+
+		channel.eventLoop().execute(this::writeReservedRequests);
+	}
+
+	private void writeReservedRequests() {
+		List<Runnable> readyWriters = new ArrayList<>();
+		synchronized (this) {
+			while (!unwrittenRequests.isEmpty() && writers.containsKey(unwrittenRequests.peek())) {
+				readyWriters.add(writers.remove(unwrittenRequests.poll()));
+			}
+		}
+
+		for (Runnable writer : readyWriters) {
+			writer.run();
+		}
+	}
+
+	/**
+	 * Mark the request as completed.
+	 * @param httpRequestContext the request
+	 * @return true if it was the last request on the channel, which can then be returned to the pool
+	 */
+	synchronized boolean complete(HttpRequestContext httpRequestContext) {
+		outstandingRequests--;
+		completedRequests++;
+		if (outstandingRequests > 0) {
+			return false;
+		}
+
+		close();
+		if (channel.pipeline().get(NAME) != null) {
+			channel.pipeline().remove(this);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of requests that have completed on the channel
+	 */
+	synchronized int getCompletedRequests() {
+		return completedRequests;
+	}
+
+	/**
+	 * @return true if no more requests can be written on the channel, for example because the server is closing the connection
+	 */
+	synchronized boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		boolean lastContent = msg instanceof LastHttpContent;
+
+		if (msg instanceof HttpResponse && HttpHeaderValues.CLOSE.contentEqualsIgnoreCase(((HttpResponse) msg).headers().get(HttpHeaderNames.CONNECTION))) {
+			synchronized (this) {  //the server closes the connection after this response, the requests after it will fail when it does
+				close();
+			}
+		}
+
+		ctx.fireChannelRead(msg);
+
+		if (lastContent) {
+			HttpRequestContext nextRequest;
+			synchronized (this) {
+				requests.poll();
+				nextRequest = requests.peek();
+			}
+
+			if (nextRequest != null) {
+				ctx.channel().attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).set(nextRequest);
+			}
+		}
+	}
+
+	private void failWaitingRequests() {
+		List<HttpRequestContext> waitingRequests;
+		synchronized (this) {
+			close();
+			waitingRequests = new ArrayList<>(requests);
+			requests.clear();
+			unwrittenRequests.clear();
+			writers.clear();
+		}
+
+		if (waitingRequests.size() > 1) {  //the first request is handled by the response handler when the channel goes inactive
+			for (HttpRequestContext httpRequestContext : waitingRequests.subList(1, waitingRequests.size())) {
+				httpRequestContext.getRequestEventBus().triggerEvent(Event.ERROR, httpRequestContext,
+					new ConnectionClosedException("Connection closed before the pipelined request was answered!"));
+			}
+		}
+	}
+
+	private void close() {
+		if (!closed) {
+			closed = true;
+			closeListener.accept(this);
+		}
+	}
+}
@@ -7,8 +7,11 @@ package com.king.platform.net.http.netty;
 
 import com.king.platform.net.http.HttpResponse;
 import com.king.platform.net.http.ResponseBodyConsumer;
+import com.king.platform.net.http.netty.compression.ContentCodec;
 import com.king.platform.net.http.netty.eventbus.RequestEventBus;
 import com.king.platform.net.http.netty.metric.TimeStampRecorder;
+import com.king.platform.net.http.netty.request.EncodedHttpBody;
+import com.king.platform.net.http.netty.request.HttpBody;
 import com.king.platform.net.http.netty.request.NettyHttpClientRequest;
 import com.king.platform.net.http.netty.response.NettyHttpClientResponse;
 import io.netty.channel.Channel;
@@ -38,11 +41,14 @@ public class HttpRequestContext<T> {
 	private long expectedContentLength;
 	private long readBytes;
 	private boolean isRedirecting;
+	private volatile boolean pipelined;
 
 	private boolean automaticallyDecompressResponse;
 
 	private WebSocketConf webSocketConf;
 	private HttpResponse httpResponse;
+	private RequestLifecycleListener lifecycleListener = RequestLifecycleListener.NOOP;
+	private RequestTimeout requestTimeout;
 
 	public HttpRequestContext(HttpMethod httpMethod, NettyHttpClientRequest<T> nettyHttpClientRequest, RequestEventBus requestEventBus, ResponseBodyConsumer<T> responseBodyConsumer, int idleTimeoutMillis, int totalRequestTimeoutMillis, boolean followRedirects, boolean keepAlive, int keepAliveTimeoutMillis, TimeStampRecorder timeStampRecorder, boolean automaticallyDecompressResponse, WebSocketConf webSocketConf) {
 		this.httpMethod = httpMethod;
@@ -65,6 +71,8 @@ public class HttpRequestContext<T> {
 		HttpRequestContext httpRequestContext = new HttpRequestContext(httpMethod, redirectRequest, requestEventBus, responseBodyConsumer,
 			idleTimeoutMillis, totalRequestTimeoutMillis, followRedirects, keepAlive, keepAliveTimeoutMillis, timeStampRecorder, automaticallyDecompressResponse, webSocketConf);
 		httpRequestContext.redirectionCount = this.redirectionCount + 1;
+		httpRequestContext.lifecycleListener = lifecycleListener;
+		httpRequestContext.requestTimeout = requestTimeout;
 
 		nettyHttpClientRequest.setKeepAlive(keepAlive);
 		httpRequestContext.setHttpResponse(httpResponse);
@@ -163,6 +171,14 @@ public class HttpRequestContext<T> {
 		this.isRedirecting = isRedirecting;
 	}
 
+	public boolean isPipelined() {
+		return pipelined;
+	}
+
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
 	public HttpMethod getHttpMethod() {
 		return httpMethod;
 	}
@@ -171,6 +187,17 @@ public class HttpRequestContext<T> {
 		return automaticallyDecompressResponse;
 	}
 
+	/**
+	 * @return the codec the request body is encoded with while it is written, or null if it isn't encoded
+	 */
+	public ContentCodec requestBodyContentCodec() {
+		HttpBody httpBody = nettyHttpClientRequest.getHttpBody();
+		if (httpBody instanceof EncodedHttpBody) {
+			return ((EncodedHttpBody) httpBody).getContentCodec();
+		}
+		return null;
+	}
+
 	public WebSocketConf webSocketConf() {
 		return webSocketConf;
 	}
@@ -183,6 +210,36 @@ public class HttpRequestContext<T> {
 		return httpResponse;
 	}
 
+	/**
+	 * Add a listener for the hot events of this request, must be done before the request is sent
+	 * @param listener the listener
+	 */
+	public void addLifecycleListener(RequestLifecycleListener listener) {
+		if (lifecycleListener == RequestLifecycleListener.NOOP) {
+			lifecycleListener = listener;
+		} else {
+			lifecycleListener = new CompositeRequestLifecycleListener(lifecycleListener, listener);
+		}
+	}
+
+	public RequestLifecycleListener getLifecycleListener() {
+		return lifecycleListener;
+	}
+
+	public RequestTimeout getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	public void setRequestTimeout(RequestTimeout requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	public void cancelRequestTimeout() {
+		if (requestTimeout != null) {
+			requestTimeout.cancel();
+		}
+	}
+
 	public int getKeepAliveTimeoutMillis() {
 		return keepAliveTimeoutMillis;
 	}
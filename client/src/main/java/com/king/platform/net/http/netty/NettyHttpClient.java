@@ -13,6 +13,8 @@ import com.king.platform.net.http.netty.eventbus.EventBusCallback1;
 import com.king.platform.net.http.netty.eventbus.EventBusCallback2;
 import com.king.platform.net.http.netty.eventbus.RootEventBus;
 import com.king.platform.net.http.netty.pool.ChannelPool;
+import com.king.platform.net.http.netty.pool.ChannelPoolStats;
+import com.king.platform.net.http.netty.pool.WarmServerStore;
 import com.king.platform.net.http.netty.request.HttpClientRequestHandler;
 import com.king.platform.net.http.netty.requestbuilder.HttpClientRequestBuilderImpl;
 import com.king.platform.net.http.netty.requestbuilder.HttpClientRequestWithBodyBuilderImpl;
@@ -24,15 +26,14 @@ import com.king.platform.net.http.netty.util.TimeProvider;
 import com.king.platform.net.http.netty.websocket.WebSocketHandler;
 import com.king.platform.net.http.netty.websocket.WebSocketResponseHandler;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.util.Timer;
 
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -57,6 +58,8 @@ public class NettyHttpClient implements HttpClient {
 
 	private List<ShutdownJob> shutdownJobs = new ArrayList<>();
 	private HttpClientCallerImpl httpClientCaller;
+	private WarmServerStore warmServerStore;
+	private ChannelManager channelManager;
 
 	public NettyHttpClient(int nioThreads, ThreadFactory nioThreadFactory, Executor defaultHttpClientCallbackExecutor, Timer
 		cleanupTimer, TimeProvider timeProvider, final BackPressure executionBackPressure, RootEventBus rootEventBus, ChannelPool channelPool) {
@@ -92,11 +95,7 @@ public class NettyHttpClient implements HttpClient {
 			throw new IllegalStateException("Http client has already been started!");
 		}
 
-		if (confMap.get(ConfKeys.USE_EPOLL) && Epoll.isAvailable() ) {
-			group = new EpollEventLoopGroup(nioThreads, nioThreadFactory);
-		} else {
-			group = new NioEventLoopGroup(nioThreads, nioThreadFactory);
-		}
+		group = NettyTransport.select(confMap).newEventLoopGroup(nioThreads, nioThreadFactory);
 
 		HttpClientResponseHandler responseHandler = new HttpClientResponseHandler(new HttpRedirector());
 		HttpClientRequestHandler requestHandler = new HttpClientRequestHandler();
@@ -104,12 +103,18 @@ public class NettyHttpClient implements HttpClient {
 		WebSocketResponseHandler webSocketResponseHandler = new WebSocketResponseHandler();
 		WebSocketHandler webSocketHandler = new WebSocketHandler(webSocketResponseHandler, requestHandler);
 
-		ChannelManager channelManager = new ChannelManager(group, clientHandler, webSocketHandler, cleanupTimer, timeProvider, channelPool, confMap);
+		channelManager = new ChannelManager(group, clientHandler, webSocketHandler, cleanupTimer, timeProvider, channelPool, confMap);
 		channelManager.subscribeToRootBus(rootEventBus);
+		channelPool.setChannelConnector(channelManager);
+
+		if (warmServerStore != null) {
+			warmServerStore.restore();
+		}
 
 		boolean executeOnCallingThread = confMap.get(ConfKeys.EXECUTE_ON_CALLING_THREAD);
 
-		httpClientCaller = new HttpClientCallerImpl(rootEventBus, executeOnCallingThread, executionBackPressure, timeProvider);
+		httpClientCaller = new HttpClientCallerImpl(rootEventBus, executeOnCallingThread, executionBackPressure, timeProvider,
+			confMap.get(ConfKeys.RECYCLE_REQUEST_OBJECTS));
 	}
 
 	@Override
@@ -118,7 +123,12 @@ public class NettyHttpClient implements HttpClient {
 			throw new IllegalStateException("Http client is not running!");
 		}
 
+		if (warmServerStore != null) {
+			warmServerStore.save();
+		}
+
 		channelPool.shutdown();
+		channelManager.shutdown();
 
 		if (group != null) {
 			group.shutdownGracefully(0, 10, TimeUnit.SECONDS);
@@ -205,6 +215,43 @@ public class NettyHttpClient implements HttpClient {
 		return new HttpClientWebSocketRequestBuilderImpl(httpClientCaller, uri, confMap, defaultHttpClientCallbackExecutor);
 	}
 
+	@Override
+	public CompletableFuture<Integer> prewarm(String uri, int connections) {
+		verifyStarted();
+
+		ServerInfo serverInfo;
+		try {
+			serverInfo = ServerInfo.buildFromUri(uri);
+		} catch (URISyntaxException e) {
+			return failedPrewarm(e);
+		}
+
+		if (serverInfo.isWebSocket()) {
+			return failedPrewarm(new IllegalArgumentException("Web socket connections can't be prewarmed"));
+		}
+
+		return channelPool.prewarm(serverInfo, connections);
+	}
+
+	private static CompletableFuture<Integer> failedPrewarm(Throwable throwable) {
+		CompletableFuture<Integer> future = new CompletableFuture<>();
+		future.completeExceptionally(throwable);
+		return future;
+	}
+
+	/**
+	 * Get a snapshot of the channel pool statistics for the server of the uri.
+	 * @param uri uri of the server
+	 * @return the statistics or null if the pool has no connections to the server
+	 */
+	public ChannelPoolStats getChannelPoolStats(String uri) {
+		try {
+			return channelPool.getStats(ServerInfo.buildFromUri(uri));
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException("Invalid uri " + uri, e);
+		}
+	}
+
 	private void verifyStarted() {
 		if (!started.get()) {
 			throw new IllegalStateException("Http client is not running!");
@@ -219,6 +266,10 @@ public class NettyHttpClient implements HttpClient {
 		confMap.set(key, value);
 	}
 
+	void setWarmServerStore(WarmServerStore warmServerStore) {
+		this.warmServerStore = warmServerStore;
+	}
+
 	public void addShutdownJob(ShutdownJob shutdownJob) {
 		shutdownJobs.add(shutdownJob);
 	}
@@ -16,11 +16,14 @@ import com.king.platform.net.http.netty.metric.MetricCollector;
 import com.king.platform.net.http.netty.metric.RecordedTimeStamps;
 import com.king.platform.net.http.netty.pool.ChannelPool;
 import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.pool.ServerPoolConfig;
+import com.king.platform.net.http.netty.pool.WarmServerStore;
 import com.king.platform.net.http.netty.util.SystemTimeProvider;
 import com.king.platform.net.http.netty.util.TimeProvider;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timer;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -55,6 +58,10 @@ public class NettyHttpClientBuilder {
 
 	private MetricCallback metricCallback;
 	private int keepAliveTimeoutMS = 30_000;
+	private ServerPoolConfig serverPoolConfig;
+	private int maxIdleConnections;
+	private Path warmServersFile;
+	private int warmServersConnectionsPerSecond = 10;
 
 	private final Map<ConfKeys, Object>  optionsMap = new HashMap<>();
 
@@ -163,10 +170,14 @@ public class NettyHttpClientBuilder {
 	/**
 	 * Set a custom socket channel pool. Defaults to {@link com.king.platform.net.http.netty.pool.PoolingChannelPool}
 	 * If no pooling of connections is wanted, please provide {@link com.king.platform.net.http.netty.pool.NoChannelPool}
+	 * Can't be combined with {@link #setServerPoolConfig(ServerPoolConfig)} or {@link #setMaxIdleConnections(int)}, which only configure the default pool.
 	 * @param channelPool the channel pool to use
 	 * @return the builder
 	 */
 	public NettyHttpClientBuilder setChannelPool(ChannelPool channelPool) {
+		if (serverPoolConfig != null || maxIdleConnections != 0) {
+			throw new IllegalStateException("Can't set a non-default channel pool when the default channel pool has already been configured.");
+		}
 		this.channelPool = channelPool;
 		return this;
 	}
@@ -184,6 +195,54 @@ public class NettyHttpClientBuilder {
 		return this;
 	}
 
+	/**
+	 * Set the config used for the connections to each server in the default channel pool.
+	 * @param serverPoolConfig the config
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setServerPoolConfig(ServerPoolConfig serverPoolConfig) {
+		if (channelPool != null) {
+			throw new IllegalStateException("Can't set server pool config when a non-default channel pool has already been set.");
+		}
+		this.serverPoolConfig = serverPoolConfig;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of idle connections the default channel pool keeps for all servers together, defaults to 0 (unlimited).
+	 * The connection that has been idle the longest is closed when the limit is reached.
+	 * @param maxIdleConnections the maximum number of idle connections
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setMaxIdleConnections(int maxIdleConnections) {
+		if (channelPool != null) {
+			throw new IllegalStateException("Can't set max idle connections when a non-default channel pool has already been set.");
+		}
+		this.maxIdleConnections = maxIdleConnections;
+		return this;
+	}
+
+	/**
+	 * Set a file where the servers the channel pool keeps connections to are saved when the client is shutdown.
+	 * When the client is started the saved connections are opened again in the background.
+	 * @param warmServersFile the file
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setWarmServersFile(Path warmServersFile) {
+		this.warmServersFile = warmServersFile;
+		return this;
+	}
+
+	/**
+	 * Set how many of the saved connections are opened each second when the client is started. Defaults to 10
+	 * @param warmServersConnectionsPerSecond the number of connections opened each second
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setWarmServersConnectionsPerSecond(int warmServersConnectionsPerSecond) {
+		this.warmServersConnectionsPerSecond = warmServersConnectionsPerSecond;
+		return this;
+	}
+
 
 	/**
 	 * Configure global settings for the http client. Most of the settings can be overridden on each request. <br>
@@ -253,7 +312,12 @@ public class NettyHttpClientBuilder {
 
 		if (channelPool == null) {
 			optionsMap.putIfAbsent(ConfKeys.KEEP_ALIVE_TIMEOUT_MILLIS, keepAliveTimeoutMS);
-			channelPool = new PoolingChannelPool(cleanupTimer, timeProvider, metricCallback);
+			if (serverPoolConfig == null) {
+				serverPoolConfig = new ServerPoolConfig();
+			}
+			PoolingChannelPool poolingChannelPool = new PoolingChannelPool(cleanupTimer, timeProvider, metricCallback, serverPoolConfig);
+			poolingChannelPool.setMaxIdleConnections(maxIdleConnections);
+			channelPool = poolingChannelPool;
 		}
 
 		if (executionBackPressure == null) {
@@ -263,6 +327,10 @@ public class NettyHttpClientBuilder {
 		NettyHttpClient nettyHttpClient = new NettyHttpClient(nioThreads, nioThreadFactory, httpCallbackExecutor, cleanupTimer, timeProvider, executionBackPressure,
 			rootEventBus, channelPool);
 
+		if (warmServersFile != null) {
+			nettyHttpClient.setWarmServerStore(new WarmServerStore(warmServersFile, warmServersConnectionsPerSecond, channelPool, cleanupTimer));
+		}
+
 		for (NettyHttpClient.ShutdownJob shutdownJob : shutdownJobs) {
 			nettyHttpClient.addShutdownJob(shutdownJob);
 		}
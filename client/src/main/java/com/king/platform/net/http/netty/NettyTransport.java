@@ -0,0 +1,165 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import com.king.platform.net.http.ConfKeys;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+
+import java.util.concurrent.ThreadFactory;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * The netty transports the client can run on. io_uring is provided by the netty-incubator-transport-native-io_uring artifact,
+ * which is loaded by reflection only when it is on the classpath. That artifact needs a newer netty than the client is built against,
+ * so io_uring is only selected when the application also upgrades netty.
+ */
+public enum NettyTransport {
+	IO_URING {
+		@Override
+		EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+			try {
+				return (EventLoopGroup) Class.forName(IO_URING_PACKAGE + ".IOUringEventLoopGroup")
+					.getConstructor(int.class, ThreadFactory.class)
+					.newInstance(threads, threadFactory);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("Failed to create io_uring event loop group", e);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		Class<? extends SocketChannel> getSocketChannelClass() {
+			try {
+				return (Class<? extends SocketChannel>) Class.forName(IO_URING_PACKAGE + ".IOUringSocketChannel");
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException("io_uring is not on the classpath", e);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Class<? extends DatagramChannel> getDatagramChannelClass() {
+			try {
+				return (Class<? extends DatagramChannel>) Class.forName(IO_URING_PACKAGE + ".IOUringDatagramChannel");
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException("io_uring is not on the classpath", e);
+			}
+		}
+	},
+
+	EPOLL {
+		@Override
+		EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+			return new EpollEventLoopGroup(threads, threadFactory);
+		}
+
+		@Override
+		Class<? extends SocketChannel> getSocketChannelClass() {
+			return EpollSocketChannel.class;
+		}
+
+		@Override
+		public Class<? extends DatagramChannel> getDatagramChannelClass() {
+			return EpollDatagramChannel.class;
+		}
+	},
+
+	NIO {
+		@Override
+		EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+			return new NioEventLoopGroup(threads, threadFactory);
+		}
+
+		@Override
+		Class<? extends SocketChannel> getSocketChannelClass() {
+			return NioSocketChannel.class;
+		}
+
+		@Override
+		public Class<? extends DatagramChannel> getDatagramChannelClass() {
+			return NioDatagramChannel.class;
+		}
+	};
+
+	private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring";
+	private static final Logger logger = getLogger(NettyTransport.class);
+
+	abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+	abstract Class<? extends SocketChannel> getSocketChannelClass();
+
+	/**
+	 * @return the datagram channel class to use with event loops of this transport, for example for dns lookups
+	 */
+	public abstract Class<? extends DatagramChannel> getDatagramChannelClass();
+
+	/**
+	 * Select the best configured transport that is available, io_uring falls back to epoll which falls back to nio.
+	 * Epoll is selected when unix domain sockets are used, since only epoll can connect to them.
+	 */
+	static NettyTransport select(ConfMap confMap) {
+		if (!confMap.get(ConfKeys.UNIX_DOMAIN_SOCKETS).isEmpty() && Epoll.isAvailable()) {
+			return EPOLL;
+		}
+
+		boolean useIoUring = confMap.get(ConfKeys.USE_IO_URING);
+		if (useIoUring) {
+			if (isIoUringAvailable()) {
+				return IO_URING;
+			}
+			logger.debug("io_uring is not available, falling back to epoll");
+		}
+
+		if (useIoUring || confMap.get(ConfKeys.USE_EPOLL)) {
+			if (Epoll.isAvailable()) {
+				return EPOLL;
+			}
+			logger.debug("epoll is not available, falling back to nio");
+		}
+
+		return NIO;
+	}
+
+	/**
+	 * @return the transport the event loop group, or the group of the event loop, belongs to
+	 */
+	public static NettyTransport of(EventLoopGroup eventLoopGroup) {
+		if (eventLoopGroup instanceof EventLoop && ((EventLoop) eventLoopGroup).parent() != null) {
+			eventLoopGroup = ((EventLoop) eventLoopGroup).parent();
+		}
+
+		if (eventLoopGroup instanceof EpollEventLoopGroup) {
+			return EPOLL;
+		}
+
+		if (eventLoopGroup.getClass().getName().startsWith(IO_URING_PACKAGE)) {
+			return IO_URING;
+		}
+
+		return NIO;
+	}
+
+	static boolean isIoUringAvailable() {
+		try {
+			return (Boolean) Class.forName(IO_URING_PACKAGE + ".IOUring").getMethod("isAvailable").invoke(null);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+/**
+ * Typed listener for the events that happen on every read and write of a request. The channel handlers call it directly
+ * instead of going through the {@link com.king.platform.net.http.netty.eventbus.RequestEventBus}, which is kept for extension points.
+ * Listeners are added with {@link HttpRequestContext#addLifecycleListener(RequestLifecycleListener)} before the request is sent.
+ */
+public interface RequestLifecycleListener {
+	RequestLifecycleListener NOOP = new RequestLifecycleListener() {
+	};
+
+	/**
+	 * Something was read or written for the request
+	 */
+	default void onTouch() {
+	}
+
+	/**
+	 * The status line and headers of the response have been read
+	 * @param httpResponseStatus the response status
+	 * @param httpHeaders the response headers
+	 */
+	default void onReceivedHeaders(HttpResponseStatus httpResponseStatus, HttpHeaders httpHeaders) {
+	}
+
+	/**
+	 * A part of the response body has been read
+	 * @param length the number of readable bytes
+	 * @param content the content, only valid during the call
+	 */
+	default void onReceivedContentPart(int length, ByteBuf content) {
+	}
+
+	/**
+	 * The response has been read completely
+	 * @param httpResponseStatus the response status
+	 * @param httpHeaders the response headers
+	 */
+	default void onReceivedCompleted(HttpResponseStatus httpResponseStatus, HttpHeaders httpHeaders) {
+	}
+}
@@ -0,0 +1,114 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import com.king.platform.net.http.netty.eventbus.Event;
+import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The total request and idle timeouts of a request. Both deadlines share one task scheduled on an event loop,
+ * touches only record the time and the task reschedules itself to the nearest deadline when it runs.
+ * The same instance follows the request through redirects, each sent request arms it again. The total request deadline is set
+ * by the first request, so it bounds the whole redirect chain, while the idle timeout starts over for every sent request.
+ */
+public class RequestTimeout implements RequestLifecycleListener, Runnable {
+	private final EventExecutor executor;
+	private final TimeProvider timeProvider;
+
+	private HttpRequestContext httpRequestContext;
+	private boolean armed;
+	private long totalRequestDeadline;
+	private long maxIdleTime;
+	private volatile long lastTouched;
+	private ScheduledFuture<?> scheduledFuture;
+	private boolean done = true;
+
+	public RequestTimeout(EventExecutor executor, TimeProvider timeProvider) {
+		this.executor = executor;
+		this.timeProvider = timeProvider;
+	}
+
+	/**
+	 * Start the timeouts for a sent request. The total request deadline of an earlier request is kept, the idle timeout is restarted.
+	 * @param httpRequestContext the request the timeout error is triggered for
+	 * @param totalRequestTimeoutMillis the total request timeout, 0 to disable
+	 * @param idleTimeoutMillis the idle timeout, 0 to disable
+	 */
+	public synchronized void arm(HttpRequestContext httpRequestContext, int totalRequestTimeoutMillis, int idleTimeoutMillis) {
+		cancelScheduled();
+
+		long now = timeProvider.currentTimeInMillis();
+		this.httpRequestContext = httpRequestContext;
+		if (!armed) {
+			armed = true;
+			totalRequestDeadline = totalRequestTimeoutMillis > 0 ? now + totalRequestTimeoutMillis : 0;
+		}
+		maxIdleTime = idleTimeoutMillis;
+		lastTouched = now;
+		done = false;
+
+		scheduledFuture = executor.schedule(this, nextDeadline() - now, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop the timeouts, the request has completed or failed
+	 */
+	public synchronized void cancel() {
+		done = true;
+		cancelScheduled();
+	}
+
+	@Override
+	public void onTouch() {
+		lastTouched = timeProvider.currentTimeInMillis();
+	}
+
+	@Override
+	public void run() {
+		HttpRequestContext timedOutRequest;
+		TimeoutException timeoutException;
+
+		synchronized (this) {
+			scheduledFuture = null;
+			if (done) {
+				return;
+			}
+
+			long now = timeProvider.currentTimeInMillis();
+			long durationSinceLastTouch = now - lastTouched;
+
+			if (totalRequestDeadline != 0 && now >= totalRequestDeadline) {
+				timeoutException = new TimeoutException("Request timed out");
+			} else if (maxIdleTime != 0 && durationSinceLastTouch >= maxIdleTime) {
+				timeoutException = new TimeoutException("Idle timeout of " + maxIdleTime + " ms was " + durationSinceLastTouch + " ms since last event");
+			} else {
+				scheduledFuture = executor.schedule(this, nextDeadline() - now, TimeUnit.MILLISECONDS);
+				return;
+			}
+
+			done = true;
+			timedOutRequest = httpRequestContext;
+		}
+
+		timedOutRequest.getRequestEventBus().triggerEvent(Event.ERROR, timedOutRequest, timeoutException);
+	}
+
+	private long nextDeadline() {
+		long idleDeadline = maxIdleTime != 0 ? lastTouched + maxIdleTime : Long.MAX_VALUE;
+		return totalRequestDeadline != 0 ? Math.min(totalRequestDeadline, idleDeadline) : idleDeadline;
+	}
+
+	private void cancelScheduled() {
+		if (scheduledFuture != null) {
+			scheduledFuture.cancel(false);
+			scheduledFuture = null;
+		}
+	}
+}
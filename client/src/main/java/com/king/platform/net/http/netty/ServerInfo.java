@@ -133,4 +133,14 @@ public final class ServerInfo {
 	public boolean isWebSocket() {
 		return isWebSocket;
 	}
+
+	/**
+	 * @return the http server with the same host and port as this web socket server, http for ws and https for wss
+	 */
+	public ServerInfo getHttpServerInfo() {
+		if (!isWebSocket) {
+			return this;
+		}
+		return new ServerInfo(isSecure ? "https" : "http", host, port, isSecure, false);
+	}
 }
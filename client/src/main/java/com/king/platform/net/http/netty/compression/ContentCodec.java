@@ -0,0 +1,49 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.compression;
+
+
+import io.netty.channel.ChannelHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A content coding (the value of the Content-Encoding header) the client can decode responses with and/or encode request bodies with.
+ * Built in codecs are found in {@link ContentCodecs}, custom codecs are registered through {@link com.king.platform.net.http.ConfKeys#CONTENT_CODECS}.
+ */
+public interface ContentCodec {
+
+	/**
+	 * @return the content coding token, for example br or zstd
+	 */
+	String getEncoding();
+
+	/**
+	 * @return true if responses with this content encoding can be decoded
+	 */
+	boolean canDecode();
+
+	/**
+	 * Create the handler that decodes one response body. The handler gets the encoded ByteBufs as inbound messages
+	 * and should fire the decoded ByteBufs, the channel it is added to is closed when the body has ended.
+	 * @return a new decoder handler
+	 */
+	ChannelHandler newDecoder();
+
+	/**
+	 * @return true if request bodies can be encoded with this content encoding
+	 */
+	boolean canEncode();
+
+	/**
+	 * Create the stream that encodes one request body.
+	 * @param outputStream the stream the encoded bytes are written to
+	 * @return a new encoder stream, the body has been completely encoded when it is closed
+	 * @throws IOException if the encoder can't be created
+	 */
+	OutputStream newEncoder(OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,34 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.compression;
+
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+
+import java.util.List;
+
+/**
+ * Decompresses responses with the configured content codecs, other encodings (gzip and deflate) are decompressed by netty.
+ */
+public class ContentCodecDecompressor extends HttpContentDecompressor {
+	private final List<ContentCodec> contentCodecs;
+
+	public ContentCodecDecompressor(List<ContentCodec> contentCodecs) {
+		this.contentCodecs = contentCodecs;
+	}
+
+	@Override
+	protected EmbeddedChannel newContentDecoder(String contentEncoding) throws Exception {
+		for (ContentCodec contentCodec : contentCodecs) {
+			if (contentCodec.canDecode() && contentCodec.getEncoding().equalsIgnoreCase(contentEncoding)) {
+				return new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(), ctx.channel().config(), contentCodec.newDecoder());
+			}
+		}
+
+		return super.newContentDecoder(contentEncoding);
+	}
+}
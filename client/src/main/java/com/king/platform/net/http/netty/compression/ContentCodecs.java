@@ -0,0 +1,125 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.compression;
+
+
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.HttpHeaderValues;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The built in content codecs. Brotli is supported when org.brotli:dec is on the classpath (decoding only)
+ * and zstd when com.github.luben:zstd-jni is on the classpath.
+ */
+public final class ContentCodecs {
+	/**
+	 * gzip, decoded by netty and encoded by the jdk
+	 */
+	public static final ContentCodec GZIP = new ContentCodec() {
+		@Override
+		public String getEncoding() {
+			return HttpHeaderValues.GZIP.toString();
+		}
+
+		@Override
+		public boolean canDecode() {
+			return true;
+		}
+
+		@Override
+		public ChannelHandler newDecoder() {
+			return ZlibCodecFactory.newZlibDecoder(ZlibWrapper.GZIP);
+		}
+
+		@Override
+		public boolean canEncode() {
+			return true;
+		}
+
+		@Override
+		public OutputStream newEncoder(OutputStream outputStream) throws IOException {
+			return new GZIPOutputStream(outputStream, 8192);
+		}
+
+		@Override
+		public String toString() {
+			return "GzipContentCodec";
+		}
+	};
+
+	private static final ContentCodec BROTLI = StreamContentCodec.load("br", "org.brotli.dec.BrotliInputStream", null);
+	private static final ContentCodec ZSTD = StreamContentCodec.load("zstd", "com.github.luben.zstd.ZstdInputStream", "com.github.luben.zstd.ZstdOutputStream");
+
+	private ContentCodecs() {
+	}
+
+	/**
+	 * @return the brotli codec if its library is on the classpath
+	 */
+	public static Optional<ContentCodec> brotli() {
+		return Optional.ofNullable(BROTLI);
+	}
+
+	/**
+	 * @return the zstd codec if its library is on the classpath
+	 */
+	public static Optional<ContentCodec> zstd() {
+		return Optional.ofNullable(ZSTD);
+	}
+
+	/**
+	 * @return the codecs beyond gzip and deflate whose libraries are on the classpath
+	 */
+	public static List<ContentCodec> available() {
+		List<ContentCodec> contentCodecs = new ArrayList<>();
+		brotli().ifPresent(contentCodecs::add);
+		zstd().ifPresent(contentCodecs::add);
+		return Collections.unmodifiableList(contentCodecs);
+	}
+
+	/**
+	 * Find the codec for a content encoding, gzip is always found.
+	 * @param contentCodecs the configured codecs
+	 * @param encoding the content coding token
+	 * @return the codec, or null if no codec has that encoding
+	 */
+	public static ContentCodec find(List<ContentCodec> contentCodecs, String encoding) {
+		for (ContentCodec contentCodec : contentCodecs) {
+			if (contentCodec.getEncoding().equalsIgnoreCase(encoding)) {
+				return contentCodec;
+			}
+		}
+
+		if (GZIP.getEncoding().equalsIgnoreCase(encoding)) {
+			return GZIP;
+		}
+		return null;
+	}
+
+	/**
+	 * @param contentCodecs the configured codecs
+	 * @return the Accept-Encoding header value, gzip and deflate followed by the encodings the codecs can decode
+	 */
+	public static String acceptEncoding(List<ContentCodec> contentCodecs) {
+		StringBuilder acceptEncoding = new StringBuilder().append(HttpHeaderValues.GZIP).append(",").append(HttpHeaderValues.DEFLATE);
+		for (ContentCodec contentCodec : contentCodecs) {
+			String encoding = contentCodec.getEncoding();
+			if (contentCodec.canDecode() && !HttpHeaderValues.GZIP.contentEqualsIgnoreCase(encoding) && !HttpHeaderValues.DEFLATE.contentEqualsIgnoreCase(encoding)) {
+				acceptEncoding.append(",").append(encoding);
+			}
+		}
+		return acceptEncoding.toString();
+	}
+}
@@ -0,0 +1,144 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.compression;
+
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes the request body while it is streamed to the server. The body bytes (ByteBufs or http content) are encoded
+ * as they are written, and the encoder is finished when the last http content of the request is written.
+ */
+public class ContentEncoder extends ChannelOutboundHandlerAdapter {
+	private final ContentCodec contentCodec;
+	private final BufferOutputStream bufferOutputStream = new BufferOutputStream();
+	private OutputStream encoder;
+
+	public ContentEncoder(ContentCodec contentCodec) {
+		this.contentCodec = contentCodec;
+	}
+
+	public ContentCodec getContentCodec() {
+		return contentCodec;
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (msg instanceof LastHttpContent) {
+			LastHttpContent lastHttpContent = (LastHttpContent) msg;
+			ByteBuf encoded;
+			try {
+				encoded = encode(ctx, lastHttpContent.content(), true);
+			} finally {
+				ReferenceCountUtil.release(msg);
+			}
+
+			if (encoded.isReadable()) {
+				ctx.write(new DefaultHttpContent(encoded));
+			} else {
+				encoded.release();
+			}
+
+			DefaultLastHttpContent last = new DefaultLastHttpContent();
+			last.trailingHeaders().set(lastHttpContent.trailingHeaders());
+			ctx.write(last, promise);
+
+		} else if (msg instanceof HttpContent) {
+			ByteBuf encoded;
+			try {
+				encoded = encode(ctx, ((HttpContent) msg).content(), false);
+			} finally {
+				ReferenceCountUtil.release(msg);
+			}
+			writeEncoded(ctx, encoded, new DefaultHttpContent(encoded), promise);
+
+		} else if (msg instanceof ByteBuf) {
+			ByteBuf encoded;
+			try {
+				encoded = encode(ctx, (ByteBuf) msg, false);
+			} finally {
+				ReferenceCountUtil.release(msg);
+			}
+			writeEncoded(ctx, encoded, encoded, promise);
+
+		} else {
+			ctx.write(msg, promise);
+		}
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		if (encoder != null) {
+			try {
+				encoder.close();  //frees the native resources some encoders have, nothing is written since there is no buffer
+			} catch (IOException ignored) {
+			}
+			encoder = null;
+		}
+	}
+
+	private ByteBuf encode(ChannelHandlerContext ctx, ByteBuf content, boolean last) {
+		ByteBuf encoded = ctx.alloc().buffer(content.readableBytes());
+		bufferOutputStream.buffer = encoded;
+		try {
+			if (encoder == null) {
+				encoder = contentCodec.newEncoder(bufferOutputStream);
+			}
+
+			content.readBytes(encoder, content.readableBytes());
+
+			if (last) {
+				encoder.close();
+				encoder = null;
+			}
+			return encoded;
+		} catch (IOException e) {
+			encoded.release();
+			throw new EncoderException("Failed to encode request body with " + contentCodec.getEncoding(), e);
+		} finally {
+			bufferOutputStream.buffer = null;
+		}
+	}
+
+	private void writeEncoded(ChannelHandlerContext ctx, ByteBuf encoded, Object msg, ChannelPromise promise) {
+		if (encoded.isReadable()) {
+			ctx.write(msg, promise);
+		} else {  //the encoder is still buffering, http codecs can't write empty content
+			encoded.release();
+			promise.trySuccess();
+		}
+	}
+
+	private static class BufferOutputStream extends OutputStream {
+		private ByteBuf buffer;
+
+		@Override
+		public void write(int b) {
+			if (buffer != null) {
+				buffer.writeByte(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			if (buffer != null) {
+				buffer.writeBytes(b, off, len);
+			}
+		}
+	}
+}
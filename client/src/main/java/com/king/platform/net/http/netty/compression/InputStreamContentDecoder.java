@@ -0,0 +1,122 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.compression;
+
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.DecoderException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes a response body with a decoding InputStream, for codec libraries that only have a blocking stream api.
+ * The encoded body is collected until it has ended, since the stream would block waiting for bytes that have not been read yet.
+ * Bodies larger than the max encoded or decoded size fail with a {@link DecoderException}.
+ */
+public class InputStreamContentDecoder extends ChannelInboundHandlerAdapter {
+	public static final int DEFAULT_MAX_ENCODED_SIZE = 16 * 1024 * 1024;
+	public static final int DEFAULT_MAX_DECODED_SIZE = 64 * 1024 * 1024;
+
+	private static final int READ_SIZE = 8192;
+
+	private final DecodingStreamFactory decodingStreamFactory;
+	private final int maxEncodedSize;
+	private final int maxDecodedSize;
+	private CompositeByteBuf encoded;
+	private boolean failed;
+
+	public InputStreamContentDecoder(DecodingStreamFactory decodingStreamFactory) {
+		this(decodingStreamFactory, DEFAULT_MAX_ENCODED_SIZE, DEFAULT_MAX_DECODED_SIZE);
+	}
+
+	/**
+	 * @param decodingStreamFactory creates the stream the body is decoded with
+	 * @param maxEncodedSize the max size in bytes of the encoded body
+	 * @param maxDecodedSize the max size in bytes of the decoded body
+	 */
+	public InputStreamContentDecoder(DecodingStreamFactory decodingStreamFactory, int maxEncodedSize, int maxDecodedSize) {
+		this.decodingStreamFactory = decodingStreamFactory;
+		this.maxEncodedSize = maxEncodedSize;
+		this.maxDecodedSize = maxDecodedSize;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (!(msg instanceof ByteBuf)) {
+			ctx.fireChannelRead(msg);
+			return;
+		}
+
+		ByteBuf encodedPart = (ByteBuf) msg;
+		if (failed) {
+			encodedPart.release();
+			return;
+		}
+
+		if (encoded == null) {
+			encoded = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+		}
+		encoded.addComponent(true, encodedPart);
+
+		if (encoded.readableBytes() > maxEncodedSize) {
+			failed = true;
+			releaseEncoded();
+			ctx.fireExceptionCaught(new DecoderException("Encoded response body is larger than " + maxEncodedSize + " bytes"));
+		}
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		if (encoded != null) {
+			ByteBuf decoded = ctx.alloc().buffer();
+			try (InputStream inputStream = decodingStreamFactory.newDecodingStream(new ByteBufInputStream(encoded))) {
+				while (decoded.writeBytes(inputStream, READ_SIZE) != -1) {
+					if (decoded.readableBytes() > maxDecodedSize) {
+						throw new DecoderException("Decoded response body is larger than " + maxDecodedSize + " bytes");
+					}
+				}
+				ctx.fireChannelRead(decoded);
+			} catch (DecoderException e) {
+				decoded.release();
+				ctx.fireExceptionCaught(e);
+			} catch (IOException e) {
+				decoded.release();
+				ctx.fireExceptionCaught(new DecoderException("Failed to decode response body", e));
+			} finally {
+				releaseEncoded();
+			}
+		}
+
+		super.channelInactive(ctx);
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		releaseEncoded();
+	}
+
+	private void releaseEncoded() {
+		if (encoded != null) {
+			encoded.release();
+			encoded = null;
+		}
+	}
+
+	@FunctionalInterface
+	public interface DecodingStreamFactory {
+		/**
+		 * @param encodedStream the encoded body
+		 * @return the stream the decoded body is read from
+		 * @throws IOException if the stream can't be created
+		 */
+		InputStream newDecodingStream(InputStream encodedStream) throws IOException;
+	}
+}
@@ -0,0 +1,108 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.compression;
+
+
+import io.netty.channel.ChannelHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Content codec backed by the decoding and encoding streams of a codec library, which is loaded by reflection only when it is on the classpath.
+ */
+class StreamContentCodec implements ContentCodec {
+	private final String encoding;
+	private final Constructor<?> decodingStreamConstructor;
+	private final Constructor<?> encodingStreamConstructor;
+
+	private StreamContentCodec(String encoding, Constructor<?> decodingStreamConstructor, Constructor<?> encodingStreamConstructor) {
+		this.encoding = encoding;
+		this.decodingStreamConstructor = decodingStreamConstructor;
+		this.encodingStreamConstructor = encodingStreamConstructor;
+	}
+
+	/**
+	 * @param encoding the content coding token
+	 * @param decodingStreamClassName InputStream taking the encoded stream as its only constructor argument, or null
+	 * @param encodingStreamClassName OutputStream taking the target stream as its only constructor argument, or null
+	 * @return the codec, or null if neither of the streams are on the classpath
+	 */
+	static ContentCodec load(String encoding, String decodingStreamClassName, String encodingStreamClassName) {
+		Constructor<?> decodingStreamConstructor = findConstructor(decodingStreamClassName, InputStream.class);
+		Constructor<?> encodingStreamConstructor = findConstructor(encodingStreamClassName, OutputStream.class);
+		if (decodingStreamConstructor == null && encodingStreamConstructor == null) {
+			return null;
+		}
+		return new StreamContentCodec(encoding, decodingStreamConstructor, encodingStreamConstructor);
+	}
+
+	private static Constructor<?> findConstructor(String className, Class<?> streamClass) {
+		if (className == null) {
+			return null;
+		}
+
+		try {
+			return Class.forName(className).getConstructor(streamClass);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	@Override
+	public String getEncoding() {
+		return encoding;
+	}
+
+	@Override
+	public boolean canDecode() {
+		return decodingStreamConstructor != null;
+	}
+
+	@Override
+	public ChannelHandler newDecoder() {
+		if (!canDecode()) {
+			throw new UnsupportedOperationException("Decoding " + encoding + " is not supported");
+		}
+		return new InputStreamContentDecoder(encodedStream -> (InputStream) newStream(decodingStreamConstructor, encodedStream));
+	}
+
+	@Override
+	public boolean canEncode() {
+		return encodingStreamConstructor != null;
+	}
+
+	@Override
+	public OutputStream newEncoder(OutputStream outputStream) throws IOException {
+		if (!canEncode()) {
+			throw new UnsupportedOperationException("Encoding " + encoding + " is not supported");
+		}
+		return (OutputStream) newStream(encodingStreamConstructor, outputStream);
+	}
+
+	private Object newStream(Constructor<?> constructor, Object stream) throws IOException {
+		try {
+			return constructor.newInstance(stream);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Failed to create " + encoding + " stream", e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("Failed to create " + encoding + " stream", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "StreamContentCodec{" +
+			"encoding='" + encoding + '\'' +
+			'}';
+	}
+}
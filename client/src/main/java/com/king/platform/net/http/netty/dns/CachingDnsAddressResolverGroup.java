@@ -0,0 +1,136 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+
+import com.king.platform.net.http.netty.NettyTransport;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.channel.ChannelFactory;
+import io.netty.channel.EventLoop;
+import io.netty.channel.ReflectiveChannelFactory;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.resolver.NameResolver;
+import io.netty.resolver.dns.DnsAddressResolverGroup;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.resolver.dns.DnsServerAddressStreamProvider;
+import io.netty.resolver.dns.DnsServerAddressStreamProviders;
+import org.slf4j.Logger;
+
+import java.net.InetAddress;
+import java.util.List;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Non blocking dns resolver group for {@link com.king.platform.net.http.ConfKeys#DNS_RESOLVER}, built on netty's {@link DnsNameResolver}.
+ * All event loops share one cache, which honors the ttls of the records and caches failed lookups for the negative ttl.
+ * Hosts that are looked up when only a small part of their ttl remains are refreshed in the background, so hot hosts never expire.
+ */
+public class CachingDnsAddressResolverGroup extends DnsAddressResolverGroup {
+	private final Logger logger = getLogger(getClass());
+
+	private final DnsNameResolverBuilder dnsNameResolverBuilder;
+	private final PrefetchingDnsCache dnsCache;
+	private final PrefetchedRecords prefetchedRecords = new PrefetchedRecords();
+	private DnsNameResolver prefetchResolver;
+
+	/**
+	 * Resolver group using the dns servers of the platform, caching records for their ttl, failures for 5 seconds,
+	 * and refreshing hosts looked up during the last 10% of their ttl. The datagram channels match the transport of the event loops.
+	 */
+	public CachingDnsAddressResolverGroup() {
+		this(new DnsNameResolverBuilder().nameServerProvider(DnsServerAddressStreamProviders.platformDefault()),
+			0, Integer.MAX_VALUE, 5, 0.1);
+	}
+
+	/**
+	 * @param dnsNameResolverBuilder the builder used for the resolvers of each event loop, its cache settings are replaced.
+	 * The datagram channels match the transport of the event loops if it has no channel type.
+	 * @param minTtl the min time in seconds addresses are cached, even if the record ttl is lower
+	 * @param maxTtl the max time in seconds addresses are cached, even if the record ttl is higher
+	 * @param negativeTtl the time in seconds failed lookups are cached
+	 * @param prefetchRemainingTtlRatio refresh a host looked up when less than this share of its ttl remains, 0 disables refreshing
+	 */
+	public CachingDnsAddressResolverGroup(DnsNameResolverBuilder dnsNameResolverBuilder, int minTtl, int maxTtl, int negativeTtl, double prefetchRemainingTtlRatio) {
+		this(dnsNameResolverBuilder, minTtl, maxTtl, negativeTtl, prefetchRemainingTtlRatio, new SystemTimeProvider());
+	}
+
+	CachingDnsAddressResolverGroup(DnsNameResolverBuilder dnsNameResolverBuilder, int minTtl, int maxTtl, int negativeTtl, double prefetchRemainingTtlRatio,
+								   TimeProvider timeProvider) {
+		super(dnsNameResolverBuilder);
+		this.dnsNameResolverBuilder = dnsNameResolverBuilder.copy();
+		this.dnsCache = new PrefetchingDnsCache(minTtl, maxTtl, negativeTtl, prefetchRemainingTtlRatio, timeProvider);
+		dnsCache.setPrefetcher(this::prefetch);
+	}
+
+	/**
+	 * @return the cache hits and misses since the group was created
+	 */
+	public DnsCacheStats getStats() {
+		return dnsCache.getStats();
+	}
+
+	@Override
+	protected NameResolver<InetAddress> newNameResolver(EventLoop eventLoop, ChannelFactory<? extends DatagramChannel> channelFactory,
+														DnsServerAddressStreamProvider nameServerProvider) throws Exception {
+		ChannelFactory<? extends DatagramChannel> datagramChannelFactory = channelFactory;
+		if (datagramChannelFactory == null) {
+			datagramChannelFactory = new ReflectiveChannelFactory<>(NettyTransport.of(eventLoop).getDatagramChannelClass());
+		}
+
+		synchronized (this) {
+			if (prefetchResolver == null) {
+				prefetchResolver = newDnsNameResolver(eventLoop, datagramChannelFactory, nameServerProvider).resolveCache(prefetchedRecords).build();
+			}
+		}
+
+		return newDnsNameResolver(eventLoop, datagramChannelFactory, nameServerProvider).resolveCache(dnsCache).build();
+	}
+
+	private DnsNameResolverBuilder newDnsNameResolver(EventLoop eventLoop, ChannelFactory<? extends DatagramChannel> channelFactory,
+													  DnsServerAddressStreamProvider nameServerProvider) {
+		return dnsNameResolverBuilder.copy()
+			.eventLoop(eventLoop)
+			.channelFactory(channelFactory)
+			.nameServerProvider(nameServerProvider);
+	}
+
+	private void prefetch(String hostname) {
+		DnsNameResolver resolver;
+		synchronized (this) {
+			resolver = prefetchResolver;
+		}
+
+		if (resolver == null) {
+			dnsCache.prefetchCompleted(hostname);
+			return;
+		}
+
+		logger.trace("Refreshing dns records for {}", hostname);
+		resolver.resolveAll(hostname).addListener(future -> {
+			List<PrefetchedRecords.Record> records = prefetchedRecords.take(hostname);
+			if (future.isSuccess() && !records.isEmpty()) {
+				dnsCache.replace(hostname, records);
+			} else {  //keep the cached records until they expire
+				logger.trace("Failed to refresh dns records for {}", hostname, future.cause());
+			}
+			dnsCache.prefetchCompleted(hostname);
+		});
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		synchronized (this) {
+			if (prefetchResolver != null) {
+				prefetchResolver.close();
+				prefetchResolver = null;
+			}
+		}
+	}
+}
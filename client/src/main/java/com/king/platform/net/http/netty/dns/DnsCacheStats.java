@@ -0,0 +1,83 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+
+/**
+ * Snapshot of the lookups done through a {@link CachingDnsAddressResolverGroup} since it was created.
+ */
+public class DnsCacheStats {
+	private final long hits;
+	private final long negativeHits;
+	private final long misses;
+	private final long prefetches;
+	private final int cachedHosts;
+
+	public DnsCacheStats(long hits, long negativeHits, long misses, long prefetches, int cachedHosts) {
+		this.hits = hits;
+		this.negativeHits = negativeHits;
+		this.misses = misses;
+		this.prefetches = prefetches;
+		this.cachedHosts = cachedHosts;
+	}
+
+	/**
+	 * @return the number of lookups answered with cached addresses
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups answered with a cached failure
+	 */
+	public long getNegativeHits() {
+		return negativeHits;
+	}
+
+	/**
+	 * @return the number of lookups that had to query the dns servers
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of cached hosts refreshed in the background before they expired
+	 */
+	public long getPrefetches() {
+		return prefetches;
+	}
+
+	/**
+	 * @return the number of hosts with cached addresses
+	 */
+	public int getCachedHosts() {
+		return cachedHosts;
+	}
+
+	/**
+	 * @return the share of lookups, between 0 and 1, answered from the cache
+	 */
+	public double getHitRatio() {
+		long lookups = hits + negativeHits + misses;
+		if (lookups == 0) {
+			return 0;
+		}
+		return (double) (hits + negativeHits) / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return "DnsCacheStats{" +
+			"hits=" + hits +
+			", negativeHits=" + negativeHits +
+			", misses=" + misses +
+			", prefetches=" + prefetches +
+			", cachedHosts=" + cachedHosts +
+			'}';
+	}
+}
@@ -0,0 +1,101 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.resolver.dns.DnsCache;
+import io.netty.resolver.dns.DnsCacheEntry;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache used by the resolver that refreshes hosts. It never answers lookups, so the dns servers are always queried,
+ * and it collects the answers until they are moved to the real cache with {@link #take(String)}.
+ */
+class PrefetchedRecords implements DnsCache {
+	private final ConcurrentHashMap<String, List<Record>> records = new ConcurrentHashMap<>();
+
+	@Override
+	public List<? extends DnsCacheEntry> get(String hostname, DnsRecord[] additionals) {
+		return null;
+	}
+
+	@Override
+	public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, InetAddress address, long originalTtl, EventLoop loop) {
+		Record record = new Record(additionals, address, originalTtl, loop);
+		records.compute(hostname, (key, list) -> {
+			List<Record> newList = list == null ? new ArrayList<>() : list;
+			newList.add(record);
+			return newList;
+		});
+		return record;
+	}
+
+	@Override
+	public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, Throwable cause, EventLoop loop) {
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		records.clear();
+	}
+
+	@Override
+	public boolean clear(String hostname) {
+		return records.remove(hostname) != null;
+	}
+
+	List<Record> take(String hostname) {
+		List<Record> hostRecords = records.remove(hostname);
+		if (hostRecords == null) {
+			return Collections.emptyList();
+		}
+		return hostRecords;
+	}
+
+	static class Record implements DnsCacheEntry {
+		private final DnsRecord[] additionals;
+		private final InetAddress address;
+		private final long ttl;
+		private final EventLoop loop;
+
+		Record(DnsRecord[] additionals, InetAddress address, long ttl, EventLoop loop) {
+			this.additionals = additionals;
+			this.address = address;
+			this.ttl = ttl;
+			this.loop = loop;
+		}
+
+		DnsRecord[] getAdditionals() {
+			return additionals;
+		}
+
+		@Override
+		public InetAddress address() {
+			return address;
+		}
+
+		long getTtl() {
+			return ttl;
+		}
+
+		EventLoop getLoop() {
+			return loop;
+		}
+
+		@Override
+		public Throwable cause() {
+			return null;
+		}
+	}
+}
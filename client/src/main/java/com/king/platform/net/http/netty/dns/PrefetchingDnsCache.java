@@ -0,0 +1,158 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+
+import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.resolver.dns.DefaultDnsCache;
+import io.netty.resolver.dns.DnsCache;
+import io.netty.resolver.dns.DnsCacheEntry;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Dns cache that counts hits and misses, and asks for hosts to be refreshed when they are looked up close to their expiry.
+ * The cached entries themselves are kept by a {@link DefaultDnsCache}, which honors the record ttls and caches failures for the negative ttl.
+ */
+class PrefetchingDnsCache implements DnsCache {
+	private final DefaultDnsCache delegate;
+	private final TimeProvider timeProvider;
+	private final double prefetchRemainingTtlRatio;
+	private final ConcurrentHashMap<String, Expiry> expiries = new ConcurrentHashMap<>();
+	private final Set<String> prefetchingHosts = ConcurrentHashMap.newKeySet();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder negativeHits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder prefetches = new LongAdder();
+
+	private volatile Consumer<String> prefetcher;
+
+	PrefetchingDnsCache(int minTtl, int maxTtl, int negativeTtl, double prefetchRemainingTtlRatio, TimeProvider timeProvider) {
+		this.delegate = new DefaultDnsCache(minTtl, maxTtl, negativeTtl);
+		this.prefetchRemainingTtlRatio = prefetchRemainingTtlRatio;
+		this.timeProvider = timeProvider;
+	}
+
+	/**
+	 * @param prefetcher called with the host name when a host should be refreshed, has to call {@link #prefetchCompleted(String)} when done
+	 */
+	void setPrefetcher(Consumer<String> prefetcher) {
+		this.prefetcher = prefetcher;
+	}
+
+	@Override
+	public List<? extends DnsCacheEntry> get(String hostname, DnsRecord[] additionals) {
+		List<? extends DnsCacheEntry> entries = delegate.get(hostname, additionals);
+		if (entries == null || entries.isEmpty()) {
+			misses.increment();
+			expiries.remove(hostname);
+			return entries;
+		}
+
+		if (entries.get(0).cause() != null) {
+			negativeHits.increment();
+			return entries;
+		}
+
+		hits.increment();
+		prefetchIfExpiring(hostname);
+		return entries;
+	}
+
+	private void prefetchIfExpiring(String hostname) {
+		Consumer<String> prefetcher = this.prefetcher;
+		Expiry expiry = expiries.get(hostname);
+		if (prefetcher == null || expiry == null || prefetchRemainingTtlRatio <= 0) {
+			return;
+		}
+
+		long remainingMillis = expiry.expiresAtMillis - timeProvider.currentTimeInMillis();
+		if (remainingMillis <= expiry.ttlMillis * prefetchRemainingTtlRatio && prefetchingHosts.add(hostname)) {
+			prefetches.increment();
+			prefetcher.accept(hostname);
+		}
+	}
+
+	void prefetchCompleted(String hostname) {
+		prefetchingHosts.remove(hostname);
+	}
+
+	/**
+	 * Replace the cached addresses of the host with the refreshed ones
+	 */
+	void replace(String hostname, List<PrefetchedRecords.Record> records) {
+		delegate.clear(hostname);
+		for (PrefetchedRecords.Record record : records) {
+			cache(hostname, record.getAdditionals(), record.address(), record.getTtl(), record.getLoop());
+		}
+	}
+
+	@Override
+	public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, InetAddress address, long originalTtl, EventLoop loop) {
+		DnsCacheEntry entry = delegate.cache(hostname, additionals, address, originalTtl, loop);
+		long ttlMillis = Math.max(delegate.minTtl(), Math.min(delegate.maxTtl(), originalTtl)) * 1000L;
+		if (ttlMillis > 0) {
+			Expiry expiry = new Expiry(timeProvider.currentTimeInMillis() + ttlMillis, ttlMillis);
+			expiries.put(hostname, expiry);
+			if (loop != null) {  //forget the host when its entry expires, like the delegate does, unless it has been cached again
+				loop.schedule(() -> expiries.remove(hostname, expiry), ttlMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		return entry;
+	}
+
+	@Override
+	public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, Throwable cause, EventLoop loop) {
+		expiries.remove(hostname);
+		return delegate.cache(hostname, additionals, cause, loop);
+	}
+
+	@Override
+	public void clear() {
+		expiries.clear();
+		delegate.clear();
+	}
+
+	@Override
+	public boolean clear(String hostname) {
+		expiries.remove(hostname);
+		return delegate.clear(hostname);
+	}
+
+	DnsCacheStats getStats() {
+		long now = timeProvider.currentTimeInMillis();
+		int cachedHosts = 0;
+		for (Expiry expiry : expiries.values()) {
+			if (expiry.expiresAtMillis > now) {
+				cachedHosts++;
+			}
+		}
+		return new DnsCacheStats(hits.sum(), negativeHits.sum(), misses.sum(), prefetches.sum(), cachedHosts);
+	}
+
+	int getTrackedHostCount() {
+		return expiries.size();
+	}
+
+	private static class Expiry {
+		private final long expiresAtMillis;
+		private final long ttlMillis;
+
+		Expiry(long expiresAtMillis, long ttlMillis) {
+			this.expiresAtMillis = expiresAtMillis;
+			this.ttlMillis = ttlMillis;
+		}
+	}
+}
@@ -5,61 +5,80 @@
 
 package com.king.platform.net.http.netty.eventbus;
 
-import java.util.ArrayList;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.Arrays;
+
+/**
+ * Event bus that keeps the callbacks in tables indexed by {@link Event#getOrdinal()}, so triggering an event is a few array reads.
+ * Subscribing publishes a copy of the table through a volatile field, so triggering iterates the arrays it read without locking or allocating.
+ * Request event buses share an immutable snapshot of the permanent callbacks of the bus that created them, their own tables are only
+ * allocated when something subscribes to them.
+ */
 public class DefaultEventBus implements RequestEventBus, RootEventBus {
-	private final ConcurrentHashMap<Event, ArrayList<EventBusCallback>> event1Callbacks;
-	private final ConcurrentHashMap<Event, ArrayList<EventBusCallback>> event2Callbacks;
-
-	private final ConcurrentHashMap<Event, ArrayList<EventBusCallback>> persistentEvent1Callbacks;
-	private final ConcurrentHashMap<Event, ArrayList<EventBusCallback>> persistentEvent2Callbacks;
+	private static final EventBusCallback[][] EMPTY_TABLE = new EventBusCallback[0][];
+	private static final EventBusCallback[] NO_CALLBACKS = new EventBusCallback[0];
 
+	private final EventBusCallback[][] inheritedCallbacks;
+	private volatile EventBusCallback[][] callbacks = EMPTY_TABLE;
+	private volatile EventBusCallback[][] persistentCallbacks = EMPTY_TABLE;
+	private volatile EventBusCallback[][] snapshot;
 
 	public DefaultEventBus() {
-		event1Callbacks = new ConcurrentHashMap<>();
-		event2Callbacks = new ConcurrentHashMap<>();
+		this(EMPTY_TABLE);
+	}
 
-		persistentEvent1Callbacks = new ConcurrentHashMap<>();
-		persistentEvent2Callbacks = new ConcurrentHashMap<>();
+	private DefaultEventBus(EventBusCallback[][] inheritedCallbacks) {
+		this.inheritedCallbacks = inheritedCallbacks;
+		this.snapshot = inheritedCallbacks;
 	}
 
 
 	@Override
 	public <T> void subscribe(Event1<T> event, EventBusCallback1<T> callback) {
-		subscribe(event1Callbacks, event, callback);
+		subscribe(false, event, callback);
 	}
 
 
 	@Override
 	public <T1, T2> void subscribe(Event2<T1, T2> event, EventBusCallback2<T1, T2> callback) {
-		subscribe(event2Callbacks, event, callback);
+		subscribe(false, event, callback);
 	}
 
 
 	@Override
 	public <T> void subscribePermanently(Event1<T> event, EventBusCallback1<T> callback) {
-		subscribe(persistentEvent1Callbacks, event, callback);
+		subscribe(true, event, callback);
 	}
 
 	@Override
 	public <T1, T2> void subscribePermanently(Event2<T1, T2> event, EventBusCallback2<T1, T2> callback) {
-		subscribe(persistentEvent2Callbacks, event, callback);
+		subscribe(true, event, callback);
 	}
 
 
-	private void subscribe(ConcurrentHashMap<Event, ArrayList<EventBusCallback>> map, Event event, EventBusCallback callback) {
-		ArrayList<EventBusCallback> eventList = map.get(event);
+	private synchronized void subscribe(boolean persistent, Event event, EventBusCallback callback) {
+		if (persistent) {
+			persistentCallbacks = add(persistentCallbacks, event.getOrdinal(), callback);
+			snapshot = null;
+		} else {
+			callbacks = add(callbacks, event.getOrdinal(), callback);
+		}
+	}
 
-		if (eventList == null) {
-			eventList = new ArrayList<>();
-			ArrayList<EventBusCallback> oldValue = map.putIfAbsent(event, eventList);
-			if (oldValue != null) {
-				eventList = oldValue;
-			}
+	/**
+	 * Copy the table with the callback added, the given table is never modified since it may be read by a trigger without locking
+	 */
+	private static EventBusCallback[][] add(EventBusCallback[][] table, int ordinal, EventBusCallback callback) {
+		EventBusCallback[][] newTable = Arrays.copyOf(table, Math.max(table.length, Math.max(ordinal + 1, EventOrdinals.count())));
+
+		EventBusCallback[] eventCallbacks = newTable[ordinal];
+		if (eventCallbacks == null) {
+			newTable[ordinal] = new EventBusCallback[]{callback};
+		} else {
+			EventBusCallback[] newEventCallbacks = Arrays.copyOf(eventCallbacks, eventCallbacks.length + 1);
+			newEventCallbacks[eventCallbacks.length] = callback;
+			newTable[ordinal] = newEventCallbacks;
 		}
-		eventList.add(callback);
+		return newTable;
 	}
 
 
@@ -71,78 +90,99 @@ public class DefaultEventBus implements RequestEventBus, RootEventBus {
 
 	@Override
 	public <T> void triggerEvent(Event1<T> event, T payload) {
-		triggerEvent1(event, payload, persistentEvent1Callbacks);
-		triggerEvent1(event, payload, event1Callbacks);
+		int ordinal = event.getOrdinal();
+		triggerEvent1(payload, callbacksOf(inheritedCallbacks, ordinal));
+		triggerEvent1(payload, callbacksOf(persistentCallbacks, ordinal));
+		triggerEvent1(payload, callbacksOf(callbacks, ordinal));
 	}
 
 
 	@Override
 	public <T1, T2> void triggerEvent(Event2<T1, T2> event, T1 payload1, T2 payload2) {
-		triggerEvent2(event, payload1, payload2, persistentEvent2Callbacks);
-		triggerEvent2(event, payload1, payload2, event2Callbacks);
+		int ordinal = event.getOrdinal();
+		triggerEvent2(payload1, payload2, callbacksOf(inheritedCallbacks, ordinal));
+		triggerEvent2(payload1, payload2, callbacksOf(persistentCallbacks, ordinal));
+		triggerEvent2(payload1, payload2, callbacksOf(callbacks, ordinal));
 	}
 
+	private static EventBusCallback[] callbacksOf(EventBusCallback[][] table, int ordinal) {
+		return ordinal < table.length ? table[ordinal] : null;
+	}
 
-	private <T> void triggerEvent1(Event1<T> event, T payload, ConcurrentHashMap<Event, ArrayList<EventBusCallback>> callbacks) {
-		ArrayList<EventBusCallback> eventBusCallback1s = callbacks.get(event);
-
-		if (eventBusCallback1s == null) {
+	@SuppressWarnings("unchecked")
+	private static <T> void triggerEvent1(T payload, EventBusCallback[] eventCallbacks) {
+		if (eventCallbacks == null) {
 			return;
 		}
 
-		for (EventBusCallback eventBusCallback : eventBusCallback1s) {
-			EventBusCallback1<T> callback = (EventBusCallback1<T>) eventBusCallback;
-			callback.onEvent(payload);
+		for (int i = 0; i < eventCallbacks.length; i++) {
+			((EventBusCallback1<T>) eventCallbacks[i]).onEvent(payload);
 		}
 	}
 
-	private <T1, T2> void triggerEvent2(Event2<T1, T2> event, T1 payload1, T2 payload2, ConcurrentHashMap<Event, ArrayList<EventBusCallback>> callbacks) {
-		ArrayList<EventBusCallback> eventBusCallback2s = callbacks.get(event);
-
-		if (eventBusCallback2s == null) {
+	@SuppressWarnings("unchecked")
+	private static <T1, T2> void triggerEvent2(T1 payload1, T2 payload2, EventBusCallback[] eventCallbacks) {
+		if (eventCallbacks == null) {
 			return;
 		}
 
-		for (EventBusCallback eventBusCallback : eventBusCallback2s) {
-			EventBusCallback2<T1, T2> callback = (EventBusCallback2<T1, T2>) eventBusCallback;
-			callback.onEvent(payload1, payload2);
+		for (int i = 0; i < eventCallbacks.length; i++) {
+			((EventBusCallback2<T1, T2>) eventCallbacks[i]).onEvent(payload1, payload2);
 		}
 	}
 
 
 	@Override
 	public RequestEventBus createRequestEventBus() {
-		DefaultEventBus cleanEventBus = new DefaultEventBus();
+		EventBusCallback[][] currentSnapshot = snapshot;
+		if (currentSnapshot == null) {
+			currentSnapshot = buildSnapshot();
+		}
+		return new DefaultEventBus(currentSnapshot);
+	}
 
-		for (Map.Entry<Event, ArrayList<EventBusCallback>> entry : persistentEvent1Callbacks.entrySet()) {
-			for (EventBusCallback eventBusCallback : entry.getValue()) {
-				cleanEventBus.subscribePermanently((Event1) entry.getKey(), (EventBusCallback1) eventBusCallback);
-			}
+	/**
+	 * Merge the inherited and the permanent callbacks into a new table, the callback arrays are shared since they are never modified
+	 */
+	private synchronized EventBusCallback[][] buildSnapshot() {
+		if (snapshot != null) {
+			return snapshot;
 		}
 
-		for (Map.Entry<Event, ArrayList<EventBusCallback>> entry : persistentEvent2Callbacks.entrySet()) {
-			for (EventBusCallback eventBusCallback : entry.getValue()) {
-				cleanEventBus.subscribePermanently((Event2) entry.getKey(), (EventBusCallback2) eventBusCallback);
+		EventBusCallback[][] persistent = persistentCallbacks;
+		EventBusCallback[][] merged = Arrays.copyOf(persistent, Math.max(persistent.length, inheritedCallbacks.length));
+		for (int ordinal = 0; ordinal < inheritedCallbacks.length; ordinal++) {
+			EventBusCallback[] inherited = inheritedCallbacks[ordinal];
+			EventBusCallback[] own = callbacksOf(persistent, ordinal);
+			if (own == null) {
+				merged[ordinal] = inherited;
+			} else if (inherited != null) {
+				EventBusCallback[] eventCallbacks = Arrays.copyOf(inherited, inherited.length + own.length);
+				System.arraycopy(own, 0, eventCallbacks, inherited.length, own.length);
+				merged[ordinal] = eventCallbacks;
 			}
 		}
 
-		return cleanEventBus;
+		snapshot = merged;
+		return merged;
 	}
 
 
-	ConcurrentHashMap<Event, ArrayList<EventBusCallback>> getEvent1Callbacks() {
-		return event1Callbacks;
+	EventBusCallback[] getCallbacks(Event event) {
+		EventBusCallback[] eventCallbacks = callbacksOf(callbacks, event.getOrdinal());
+		return eventCallbacks != null ? eventCallbacks : NO_CALLBACKS;
 	}
 
-	ConcurrentHashMap<Event, ArrayList<EventBusCallback>> getEvent2Callbacks() {
-		return event2Callbacks;
+	EventBusCallback[] getPersistentCallbacks(Event event) {
+		EventBusCallback[] eventCallbacks = callbacksOf(persistentCallbacks, event.getOrdinal());
+		return eventCallbacks != null ? eventCallbacks : NO_CALLBACKS;
 	}
 
-	ConcurrentHashMap<Event, ArrayList<EventBusCallback>> getPersistentEvent1Callbacks() {
-		return persistentEvent1Callbacks;
+	EventBusCallback[][] getCallbackTable() {
+		return callbacks;
 	}
 
-	ConcurrentHashMap<Event, ArrayList<EventBusCallback>> getPersistentEvent2Callbacks() {
-		return persistentEvent2Callbacks;
+	EventBusCallback[][] getInheritedCallbacks() {
+		return inheritedCallbacks;
 	}
 }
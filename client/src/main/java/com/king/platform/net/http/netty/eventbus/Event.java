@@ -20,6 +20,11 @@ import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 public interface Event {
 	Event2<HttpRequestContext, Throwable> ERROR = new Event2<>("Error");
 	Event1<HttpRequestContext> COMPLETED = new Event1<>("Completed");
+	/**
+	 * @deprecated no longer triggered, reads and writes are reported through {@link com.king.platform.net.http.netty.RequestLifecycleListener#onTouch()}.
+	 * Kept for compatibility and will be removed in the next major release.
+	 */
+	@Deprecated
 	Event1<Void> TOUCH = new Event1<>("Touch");
 	Event1<Void> CLOSE = new Event1<>("Close");
 
@@ -54,4 +59,9 @@ public interface Event {
 
 
 	String getName();
+
+	/**
+	 * @return the dense index of this event, starting at 0 and unique among all events
+	 */
+	int getOrdinal();
 }
@@ -9,9 +9,11 @@ public class Event1<T> implements Event {
 
 
 	private final String name;
+	private final int ordinal;
 
 	Event1(String name) {
 		this.name = name;
+		this.ordinal = EventOrdinals.next();
 	}
 
 	@Override
@@ -19,6 +21,11 @@ public class Event1<T> implements Event {
 		return name;
 	}
 
+	@Override
+	public int getOrdinal() {
+		return ordinal;
+	}
+
 	@Override
 	public String toString() {
 		return "Event[" + name + "]";
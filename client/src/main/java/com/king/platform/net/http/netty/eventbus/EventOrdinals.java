@@ -0,0 +1,27 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.eventbus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out the dense ordinals of the events, shared by {@link Event1} and {@link Event2} so that every event gets its own slot
+ * in the callback tables of {@link DefaultEventBus}.
+ */
+final class EventOrdinals {
+	private static final AtomicInteger nextOrdinal = new AtomicInteger();
+
+	private EventOrdinals() {
+	}
+
+	static int next() {
+		return nextOrdinal.getAndIncrement();
+	}
+
+	static int count() {
+		return nextOrdinal.get();
+	}
+}
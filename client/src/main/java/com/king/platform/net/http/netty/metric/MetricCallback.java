@@ -24,4 +24,13 @@ public interface MetricCallback {
 	void onServerPoolClosedConnection(String host, int poolSize);
 
 	void onServerPoolAddedConnection(String host, int poolSize);
+
+	default void onServerPoolPendingAcquires(String host, int pendingAcquires) {
+	}
+
+	default void onServerPoolAcquireWaitTime(String host, long waitTimeMillis) {
+	}
+
+	default void onServerPoolRetiredConnection(String host, RetirementReason reason) {
+	}
 }
@@ -0,0 +1,16 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.metric;
+
+
+/**
+ * Why a healthy pooled connection was closed instead of being reused.
+ */
+public enum RetirementReason {
+	MAX_LIFETIME,
+	MAX_REQUESTS,
+	ADDRESS_REMOVED
+}
@@ -7,9 +7,18 @@ package com.king.platform.net.http.netty.metric;
 
 
 import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.util.Recycler;
 
 public class TimeStampRecorder implements RecordedTimeStamps {
-	private final TimeProvider timeProvider;
+	private static final Recycler<TimeStampRecorder> RECYCLER = new Recycler<TimeStampRecorder>() {
+		@Override
+		protected TimeStampRecorder newObject(Handle<TimeStampRecorder> handle) {
+			return new TimeStampRecorder(handle);
+		}
+	};
+
+	private final Recycler.Handle<TimeStampRecorder> handle;
+	private TimeProvider timeProvider;
 	private long createdRequest;
 	private long startWriteHeaders;
 	private long completedWriteHeaders;
@@ -22,6 +31,42 @@ public class TimeStampRecorder implements RecordedTimeStamps {
 
 	public TimeStampRecorder(TimeProvider timeProvider) {
 		this.timeProvider = timeProvider;
+		this.handle = null;
+	}
+
+	private TimeStampRecorder(Recycler.Handle<TimeStampRecorder> handle) {
+		this.handle = handle;
+	}
+
+	/**
+	 * Take a recorder from the pool of the current thread, it is returned to the pool with {@link #recycle()}
+	 * @param timeProvider the time provider the time stamps are read from
+	 * @return a recorder without any recorded time stamps
+	 */
+	public static TimeStampRecorder newInstance(TimeProvider timeProvider) {
+		TimeStampRecorder timeStampRecorder = RECYCLER.get();
+		timeStampRecorder.timeProvider = timeProvider;
+		return timeStampRecorder;
+	}
+
+	/**
+	 * Clear the recorded time stamps and return the recorder to its pool, does nothing for recorders that were not taken from the pool
+	 */
+	public void recycle() {
+		if (handle == null) {
+			return;
+		}
+
+		createdRequest = 0;
+		startWriteHeaders = 0;
+		completedWriteHeaders = 0;
+		startWriteBody = 0;
+		completedWriteBody = 0;
+		completedWriteLastBody = 0;
+		readResponseHttpHeaders = 0;
+		responseBodyStart = 0;
+		responseBodyCompleted = 0;
+		handle.recycle(this);
 	}
 
 	public void recordCreatedRequest() {
@@ -0,0 +1,38 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+
+import java.net.InetSocketAddress;
+
+public interface ChannelAcquireCallback {
+	void onPooledChannel(Channel channel);
+
+	void onNewConnection();
+
+	/**
+	 * Called instead of {@link #onNewConnection()} by pools that pick which of the resolved addresses of the server to connect to.
+	 * @param remoteAddress the address to connect to, or null to resolve the host of the server
+	 */
+	default void onNewConnection(InetSocketAddress remoteAddress) {
+		onNewConnection();
+	}
+
+	void onFailure(Throwable cause);
+
+	boolean isDone();
+
+	/**
+	 * The event loop the request is assigned to, used by pools that keep their channels per event loop.
+	 * @return the event loop or null if the request has no preferred event loop
+	 */
+	default EventLoop getEventLoop() {
+		return null;
+	}
+}
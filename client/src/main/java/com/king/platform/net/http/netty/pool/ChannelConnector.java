@@ -0,0 +1,47 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import com.king.platform.net.http.netty.ServerInfo;
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+public interface ChannelConnector {
+	/**
+	 * Open a new connection to the server. The returned future completes when the channel is ready to send requests on,
+	 * which for secure servers is after the ssl handshake.
+	 * @param serverInfo the server to connect to
+	 * @param remoteAddress the resolved address of the server to connect to, or null to resolve the host of the server
+	 * @return the future of the connected channel
+	 */
+	Future<Channel> connect(ServerInfo serverInfo, InetSocketAddress remoteAddress);
+
+	/**
+	 * Open a new connection to the server that many requests can share as separate streams.
+	 * @param serverInfo the server to connect to
+	 * @return the future of the connected channel, completed with null if the server did not agree to multiplex requests
+	 */
+	default Future<Channel> connectMultiplexed(ServerInfo serverInfo) {
+		return ImmediateEventExecutor.INSTANCE.newSucceededFuture(null);
+	}
+
+	/**
+	 * Resolve all addresses of the server with the configured dns resolver.
+	 * @param serverInfo the server to resolve
+	 * @return the future of the resolved addresses
+	 */
+	Future<List<InetSocketAddress>> resolveAll(ServerInfo serverInfo);
+
+	/**
+	 * @return how long connections opened through this connector should be kept in the pool
+	 */
+	int getKeepAliveTimeoutMillis();
+}
@@ -9,14 +9,113 @@ package com.king.platform.net.http.netty.pool;
 import com.king.platform.net.http.netty.ServerInfo;
 import io.netty.channel.Channel;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 public interface ChannelPool {
 	Channel get(ServerInfo serverInfo);
 
 	void offer(ServerInfo serverInfo, Channel channel, int keepAliveTimeoutMillis);
 
+	/**
+	 * Offer a channel that several requests has completed on, for example when http/1.1 pipelining is used.
+	 * @param serverInfo the server the channel is connected to
+	 * @param channel the channel
+	 * @param keepAliveTimeoutMillis the keep alive timeout of the channel
+	 * @param completedRequests the number of requests that completed on the channel since it was taken from the pool
+	 */
+	default void offer(ServerInfo serverInfo, Channel channel, int keepAliveTimeoutMillis, int completedRequests) {
+		offer(serverInfo, channel, keepAliveTimeoutMillis);
+	}
+
 	void discard(ServerInfo serverInfo, Channel channel);
 
 	boolean isActive();
 
 	void shutdown();
+
+	/**
+	 * Acquire a channel to the server. The callback is either handed an idle pooled channel, allowed to open a new connection
+	 * or failed. Pools that limits the number of connections may invoke the callback later, from another thread.
+	 * @param serverInfo the server to acquire a channel to
+	 * @param callback the callback that is invoked with the result
+	 */
+	default void acquire(ServerInfo serverInfo, ChannelAcquireCallback callback) {
+		Channel channel = get(serverInfo);
+		if (channel != null) {
+			callback.onPooledChannel(channel);
+		} else {
+			callback.onNewConnection();
+		}
+	}
+
+	/**
+	 * Take a channel that was got from the pool out of it for good without closing it, for example when it is upgraded to web socket.
+	 * Pools that limits the number of connections stop counting it.
+	 * @param serverInfo the server the channel is connected to
+	 * @param channel the channel
+	 */
+	default void detach(ServerInfo serverInfo, Channel channel) {
+	}
+
+	/**
+	 * Add a connection that was opened outside of {@link #acquire(ServerInfo, ChannelAcquireCallback)}, for example an https connection
+	 * opened for http/2 where the server picked http/1.1. Pools that limits the number of connections count it like their own connections.
+	 * @param serverInfo the server the connection is opened to
+	 * @param channel the opened channel
+	 * @param keepAliveTimeoutMillis the keep alive timeout of the channel
+	 */
+	default void adopt(ServerInfo serverInfo, Channel channel, int keepAliveTimeoutMillis) {
+		offer(serverInfo, channel, keepAliveTimeoutMillis);
+	}
+
+	/**
+	 * Called when a connection allowed by {@link ChannelAcquireCallback#onNewConnection()} has been opened.
+	 * @param serverInfo the server the connection was opened to
+	 * @param channel the opened channel
+	 */
+	default void registerConnection(ServerInfo serverInfo, Channel channel) {
+	}
+
+	/**
+	 * Called when a connection allowed by {@link ChannelAcquireCallback#onNewConnection()} was never opened.
+	 * @param serverInfo the server the connection should have been opened to
+	 */
+	default void releaseConnection(ServerInfo serverInfo) {
+	}
+
+	/**
+	 * Called when the http client is started with the connector the pool can use to open connections on its own.
+	 * @param channelConnector the connector
+	 */
+	default void setChannelConnector(ChannelConnector channelConnector) {
+	}
+
+	/**
+	 * Open connections to the server ahead of time and keep them in the pool.
+	 * @param serverInfo the server to connect to
+	 * @param connections the number of connections to open
+	 * @return future completed with the number of connections that was opened and pooled
+	 */
+	default CompletableFuture<Integer> prewarm(ServerInfo serverInfo, int connections) {
+		return CompletableFuture.completedFuture(0);
+	}
+
+	/**
+	 * Get a snapshot of the pool statistics for a server.
+	 * @param serverInfo the server
+	 * @return the statistics or null if the pool has no connections to the server
+	 */
+	default ChannelPoolStats getStats(ServerInfo serverInfo) {
+		return null;
+	}
+
+	/**
+	 * Get a snapshot of the pool statistics for every server the pool currently keeps connections to.
+	 * @return the statistics per server
+	 */
+	default Map<ServerInfo, ChannelPoolStats> getStats() {
+		return Collections.emptyMap();
+	}
 }
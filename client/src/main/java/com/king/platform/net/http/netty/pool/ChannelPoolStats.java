@@ -0,0 +1,114 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+/**
+ * Snapshot of the connections a {@link PoolingChannelPool} keeps to a single server.
+ * The per interval values are counted between two runs of the pool cleanup job, which runs every second.
+ */
+public class ChannelPoolStats {
+	private final int idleConnections;
+	private final int inUseConnections;
+	private final int pendingAcquires;
+	private final long createdConnections;
+	private final long closedConnections;
+	private final long createdConnectionsLastInterval;
+	private final long closedConnectionsLastInterval;
+	private final long averageIdleAgeMillis;
+	private final double reuseRatio;
+
+	public ChannelPoolStats(int idleConnections, int inUseConnections, int pendingAcquires, long createdConnections, long closedConnections,
+							long createdConnectionsLastInterval, long closedConnectionsLastInterval, long averageIdleAgeMillis, double reuseRatio) {
+		this.idleConnections = idleConnections;
+		this.inUseConnections = inUseConnections;
+		this.pendingAcquires = pendingAcquires;
+		this.createdConnections = createdConnections;
+		this.closedConnections = closedConnections;
+		this.createdConnectionsLastInterval = createdConnectionsLastInterval;
+		this.closedConnectionsLastInterval = closedConnectionsLastInterval;
+		this.averageIdleAgeMillis = averageIdleAgeMillis;
+		this.reuseRatio = reuseRatio;
+	}
+
+	/**
+	 * @return the number of connections idle in the pool
+	 */
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	/**
+	 * @return the number of open connections currently used by requests
+	 */
+	public int getInUseConnections() {
+		return inUseConnections;
+	}
+
+	/**
+	 * @return the number of requests waiting for a connection
+	 */
+	public int getPendingAcquires() {
+		return pendingAcquires;
+	}
+
+	/**
+	 * @return the number of connections opened by the pool since it was created
+	 */
+	public long getCreatedConnections() {
+		return createdConnections;
+	}
+
+	/**
+	 * @return the number of connections closed since the pool was created
+	 */
+	public long getClosedConnections() {
+		return closedConnections;
+	}
+
+	/**
+	 * @return the number of connections opened during the last interval
+	 */
+	public long getCreatedConnectionsLastInterval() {
+		return createdConnectionsLastInterval;
+	}
+
+	/**
+	 * @return the number of connections closed during the last interval
+	 */
+	public long getClosedConnectionsLastInterval() {
+		return closedConnectionsLastInterval;
+	}
+
+	/**
+	 * @return the average time in milli seconds the idle connections have been idle
+	 */
+	public long getAverageIdleAgeMillis() {
+		return averageIdleAgeMillis;
+	}
+
+	/**
+	 * @return the share of requests, between 0 and 1, that got a pooled connection instead of a new one
+	 */
+	public double getReuseRatio() {
+		return reuseRatio;
+	}
+
+	@Override
+	public String toString() {
+		return "ChannelPoolStats{" +
+			"idleConnections=" + idleConnections +
+			", inUseConnections=" + inUseConnections +
+			", pendingAcquires=" + pendingAcquires +
+			", createdConnections=" + createdConnections +
+			", closedConnections=" + closedConnections +
+			", createdConnectionsLastInterval=" + createdConnectionsLastInterval +
+			", closedConnectionsLastInterval=" + closedConnectionsLastInterval +
+			", averageIdleAgeMillis=" + averageIdleAgeMillis +
+			", reuseRatio=" + reuseRatio +
+			'}';
+	}
+}
@@ -0,0 +1,101 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+/**
+ * Client wide limit of idle pooled channels. The idle channels of all servers are linked into one least recently used list,
+ * so the channel that has been idle the longest can be found and evicted in constant time.
+ * Locking order is always the {@link IdleChannelList} before the budget.
+ */
+class IdleChannelBudget {
+	private PooledChannel first;
+	private PooledChannel last;
+	private int size;
+	private volatile int maxIdleChannels;
+
+	IdleChannelBudget(int maxIdleChannels) {
+		this.maxIdleChannels = maxIdleChannels;
+	}
+
+	void setMaxIdleChannels(int maxIdleChannels) {
+		this.maxIdleChannels = maxIdleChannels;
+	}
+
+	boolean isEnabled() {
+		return maxIdleChannels > 0;
+	}
+
+	synchronized void add(PooledChannel pooledChannel) {
+		if (pooledChannel.inIdleChannelBudget) {
+			unlink(pooledChannel);
+		}
+
+		pooledChannel.inIdleChannelBudget = true;
+		pooledChannel.lruPrevious = null;
+		pooledChannel.lruNext = first;
+		if (first != null) {
+			first.lruPrevious = pooledChannel;
+		} else {
+			last = pooledChannel;
+		}
+		first = pooledChannel;
+		size++;
+	}
+
+	synchronized void remove(PooledChannel pooledChannel) {
+		if (pooledChannel.inIdleChannelBudget) {
+			unlink(pooledChannel);
+		}
+	}
+
+	/**
+	 * Evict the least recently used idle channels until the budget is no longer exceeded.
+	 */
+	void evictOverflow() {
+		PooledChannel pooledChannel;
+		while ((pooledChannel = pollOverflow()) != null) {
+			pooledChannel.serverPool.evictIfIdle(pooledChannel);
+		}
+	}
+
+	private synchronized PooledChannel pollOverflow() {
+		int maxIdleChannels = this.maxIdleChannels;
+		if (maxIdleChannels <= 0 || size <= maxIdleChannels || last == null) {
+			return null;
+		}
+
+		PooledChannel pooledChannel = last;
+		unlink(pooledChannel);
+		return pooledChannel;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	private void unlink(PooledChannel pooledChannel) {
+		PooledChannel previous = pooledChannel.lruPrevious;
+		PooledChannel next = pooledChannel.lruNext;
+
+		if (previous != null) {
+			previous.lruNext = next;
+		} else {
+			first = next;
+		}
+
+		if (next != null) {
+			next.lruPrevious = previous;
+		} else {
+			last = previous;
+		}
+
+		pooledChannel.lruPrevious = null;
+		pooledChannel.lruNext = null;
+		pooledChannel.inIdleChannelBudget = false;
+		size--;
+	}
+}
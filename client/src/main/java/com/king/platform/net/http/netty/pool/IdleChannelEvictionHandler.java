@@ -0,0 +1,53 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Removes a pooled channel from its {@link ServerPool} as soon as the channel is closed, or when the server sends data or
+ * shuts down its side of the connection while the channel is idle in the pool.
+ */
+class IdleChannelEvictionHandler extends ChannelInboundHandlerAdapter {
+	static final String NAME = "idleChannelEviction";
+
+	private final ServerPool serverPool;
+	private final PooledChannel pooledChannel;
+
+	IdleChannelEvictionHandler(ServerPool serverPool, PooledChannel pooledChannel) {
+		this.serverPool = serverPool;
+		this.pooledChannel = pooledChannel;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (serverPool.evictIfIdle(pooledChannel)) {  //nothing should be sent to an idle channel
+			ReferenceCountUtil.release(msg);
+			return;
+		}
+
+		ctx.fireChannelRead(msg);
+	}
+
+	@Override
+	public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+		if (evt instanceof ChannelInputShutdownEvent) {
+			serverPool.evictIfIdle(pooledChannel);
+		}
+
+		ctx.fireUserEventTriggered(evt);
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		serverPool.evict(pooledChannel);
+		ctx.fireChannelInactive();
+	}
+}
@@ -0,0 +1,172 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Intrusive doubly linked list of idle channels, ordered by the time the channels were last used with the most recently used first.
+ * Expired channels are removed from the end without visiting the live ones, and any channel can be unlinked in constant time.
+ */
+class IdleChannelList {
+	private final IdleChannelBudget idleChannelBudget;
+	private PooledChannel first;
+	private PooledChannel last;
+	private volatile int size;
+	private volatile long idleSinceTimeStampSum;
+	private final TreeMap<Integer, Integer> ttlCounts = new TreeMap<>();
+
+	IdleChannelList() {
+		this(null);
+	}
+
+	IdleChannelList(IdleChannelBudget idleChannelBudget) {
+		this.idleChannelBudget = idleChannelBudget;
+	}
+
+	/**
+	 * Add the channel by its last used time stamp. A channel that was just used goes first without walking the list,
+	 * a channel put back with an older time stamp is moved past the channels used after it.
+	 * @param pooledChannel the channel
+	 */
+	synchronized void add(PooledChannel pooledChannel) {
+		if (pooledChannel.idleChannelList == this) {  //already idle, move it to its new position
+			unlink(pooledChannel);
+		} else if (pooledChannel.idleChannelList != null) {
+			return;
+		}
+
+		PooledChannel previous = null;
+		PooledChannel next = first;
+		while (next != null && next.lastUsedTimeStamp > pooledChannel.lastUsedTimeStamp) {
+			previous = next;
+			next = next.next;
+		}
+
+		pooledChannel.idleChannelList = this;
+		pooledChannel.idleSinceTimeStamp = pooledChannel.lastUsedTimeStamp;
+		pooledChannel.previous = previous;
+		pooledChannel.next = next;
+		if (previous != null) {
+			previous.next = pooledChannel;
+		} else {
+			first = pooledChannel;
+		}
+		if (next != null) {
+			next.previous = pooledChannel;
+		} else {
+			last = pooledChannel;
+		}
+
+		ttlCounts.merge(pooledChannel.maxTTL, 1, Integer::sum);
+		size++;
+		idleSinceTimeStampSum += pooledChannel.idleSinceTimeStamp;
+
+		if (idleChannelBudget != null && idleChannelBudget.isEnabled()) {
+			idleChannelBudget.add(pooledChannel);
+		}
+	}
+
+	synchronized PooledChannel pollFirst() {
+		PooledChannel pooledChannel = first;
+		if (pooledChannel != null) {
+			unlink(pooledChannel);
+		}
+		return pooledChannel;
+	}
+
+	synchronized boolean remove(PooledChannel pooledChannel) {
+		if (pooledChannel.idleChannelList != this) {
+			return false;
+		}
+
+		unlink(pooledChannel);
+		return true;
+	}
+
+	/**
+	 * Remove the expired channels, starting from the channel that has been idle the longest.
+	 * The walk stops as soon as no channel that became idle later can have expired.
+	 * @param currentTime the current time in millis
+	 * @return the removed channels
+	 */
+	synchronized List<PooledChannel> removeExpired(long currentTime) {
+		List<PooledChannel> expiredChannels = new ArrayList<>();
+		if (ttlCounts.isEmpty()) {
+			return expiredChannels;
+		}
+
+		int minTTL = ttlCounts.firstKey();
+
+		PooledChannel pooledChannel = last;
+		while (pooledChannel != null && pooledChannel.lastUsedTimeStamp + minTTL <= currentTime) {
+			PooledChannel previous = pooledChannel.previous;
+			if (pooledChannel.isExpired(currentTime)) {
+				unlink(pooledChannel);
+				expiredChannels.add(pooledChannel);
+			}
+			pooledChannel = previous;
+		}
+
+		return expiredChannels;
+	}
+
+	synchronized List<PooledChannel> removeAll() {
+		List<PooledChannel> pooledChannels = new ArrayList<>(size);
+		PooledChannel pooledChannel;
+		while ((pooledChannel = first) != null) {
+			unlink(pooledChannel);
+			pooledChannels.add(pooledChannel);
+		}
+		return pooledChannels;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the sum of the times the channels in the list became idle, used to calculate the average idle age without locking
+	 */
+	long getIdleSinceTimeStampSum() {
+		return idleSinceTimeStampSum;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	private void unlink(PooledChannel pooledChannel) {
+		PooledChannel previous = pooledChannel.previous;
+		PooledChannel next = pooledChannel.next;
+
+		if (previous != null) {
+			previous.next = next;
+		} else {
+			first = next;
+		}
+
+		if (next != null) {
+			next.previous = previous;
+		} else {
+			last = previous;
+		}
+
+		pooledChannel.previous = null;
+		pooledChannel.next = null;
+		pooledChannel.idleChannelList = null;
+		ttlCounts.computeIfPresent(pooledChannel.maxTTL, (ttl, count) -> count > 1 ? count - 1 : null);
+		size--;
+		idleSinceTimeStampSum -= pooledChannel.idleSinceTimeStamp;
+
+		if (idleChannelBudget != null) {
+			idleChannelBudget.remove(pooledChannel);
+		}
+	}
+}
@@ -0,0 +1,262 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import com.king.platform.net.http.netty.ServerInfo;
+import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.Timer;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Pool of multiplexed (http2) connections. Each connection is shared by many requests, each sent as its own stream,
+ * up to a max number of concurrent streams per connection. A new connection is only opened when all connections to the server are full.
+ */
+public class MultiplexedChannelPool {
+	/**
+	 * The max concurrent streams the server allows on the connection, updated when the server sends its settings
+	 */
+	public static final AttributeKey<Integer> MAX_CONCURRENT_STREAMS = AttributeKey.valueOf("__MultiplexedChannelPool_MaxConcurrentStreams");
+
+	/**
+	 * Set when the server has told that it will not accept any new streams on the connection
+	 */
+	public static final AttributeKey<Boolean> GOING_AWAY = AttributeKey.valueOf("__MultiplexedChannelPool_GoingAway");
+
+	private final Logger logger = getLogger(getClass());
+
+	private final ConcurrentHashMap<ServerInfo, MultiplexedServerPool> serverPoolMap = new ConcurrentHashMap<>();
+	private final Set<ServerInfo> notMultiplexedServers = ConcurrentHashMap.newKeySet();
+	private final TimeProvider timeProvider;
+	private final int maxConcurrentStreams;
+	private final ChannelConnector channelConnector;
+
+	public MultiplexedChannelPool(Timer cleanupTimer, TimeProvider timeProvider, int maxConcurrentStreams, ChannelConnector channelConnector) {
+		this.timeProvider = timeProvider;
+		this.maxConcurrentStreams = maxConcurrentStreams;
+		this.channelConnector = channelConnector;
+
+		cleanupTimer.newTimeout(timeout -> {
+			long keepAliveTimeoutMillis = channelConnector.getKeepAliveTimeoutMillis();
+			long now = timeProvider.currentTimeInMillis();
+			for (MultiplexedServerPool serverPool : serverPoolMap.values()) {
+				serverPool.closeIdleConnections(now - keepAliveTimeoutMillis);
+			}
+
+			cleanupTimer.newTimeout(timeout.task(), 1000, TimeUnit.MILLISECONDS);
+		}, 1000, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param serverInfo the server
+	 * @return false if the server has already answered that it can't multiplex requests, and http/1.1 should be used
+	 */
+	public boolean isMultiplexed(ServerInfo serverInfo) {
+		return !notMultiplexedServers.contains(serverInfo);
+	}
+
+	/**
+	 * Reserve a stream on a connection to the server, opening a new connection if all connections are full.
+	 * The stream has to be given back with {@link #release(ServerInfo, Channel)} when it is closed.
+	 * @param serverInfo the server
+	 * @return the future of the connection, completed with null if the server did not agree to multiplex requests
+	 */
+	public CompletableFuture<Channel> acquire(ServerInfo serverInfo) {
+		return serverPoolMap.computeIfAbsent(serverInfo, MultiplexedServerPool::new).acquire();
+	}
+
+	/**
+	 * Release a stream reserved on the connection
+	 * @param serverInfo the server
+	 * @param connection the connection the stream was opened on
+	 */
+	public void release(ServerInfo serverInfo, Channel connection) {
+		MultiplexedServerPool serverPool = serverPoolMap.get(serverInfo);
+		if (serverPool != null) {
+			serverPool.release(connection);
+		}
+	}
+
+	public void shutdown() {
+		for (MultiplexedServerPool serverPool : serverPoolMap.values()) {
+			serverPool.shutdown();
+		}
+	}
+
+	protected int getConnectionCount(ServerInfo serverInfo) {
+		MultiplexedServerPool serverPool = serverPoolMap.get(serverInfo);
+		if (serverPool == null) {
+			return 0;
+		}
+
+		return serverPool.getConnectionCount();
+	}
+
+	private class MultiplexedServerPool {
+		private final ServerInfo server;
+		private final List<MultiplexedConnection> connections = new ArrayList<>();
+		private CompletableFuture<Channel> openingConnection;
+		private int openingConnectionStreams;
+
+		MultiplexedServerPool(ServerInfo server) {
+			this.server = server;
+		}
+
+		synchronized CompletableFuture<Channel> acquire() {
+			for (MultiplexedConnection connection : connections) {
+				if (connection.hasFreeStream()) {
+					connection.activeStreams++;
+					return CompletableFuture.completedFuture(connection.channel);
+				}
+			}
+
+			if (openingConnection != null && openingConnectionStreams < maxConcurrentStreams) {  //wait for the connection that is being opened
+				openingConnectionStreams++;
+				return openingConnection;
+			}
+
+			CompletableFuture<Channel> future = new CompletableFuture<>();
+			openingConnection = future;
+			openingConnectionStreams = 1;
+
+			logger.trace("Opening a new multiplexed connection to server {}", server);
+			channelConnector.connectMultiplexed(server).addListener(connectFuture -> {
+				if (connectFuture.isSuccess()) {
+					onConnected(future, (Channel) connectFuture.getNow());
+				} else {
+					onConnectFailed(future, connectFuture.cause());
+				}
+			});
+
+			return future;
+		}
+
+		private void onConnected(CompletableFuture<Channel> future, Channel channel) {
+			synchronized (this) {
+				int streams = openingConnectionStreams;
+				if (openingConnection == future) {
+					openingConnection = null;
+				}
+
+				if (channel != null) {
+					MultiplexedConnection connection = new MultiplexedConnection(channel, streams, timeProvider.currentTimeInMillis());
+					connections.add(connection);
+					channel.closeFuture().addListener(closeFuture -> removeConnection(connection));
+				} else {
+					logger.trace("Server {} did not agree to multiplex requests, using http/1.1", server);
+					notMultiplexedServers.add(server);
+				}
+			}
+
+			future.complete(channel);
+		}
+
+		private void onConnectFailed(CompletableFuture<Channel> future, Throwable cause) {
+			synchronized (this) {
+				if (openingConnection == future) {
+					openingConnection = null;
+				}
+			}
+
+			future.completeExceptionally(cause);
+		}
+
+		synchronized void release(Channel channel) {
+			for (MultiplexedConnection connection : connections) {
+				if (connection.channel == channel) {
+					connection.activeStreams--;
+					connection.lastUsedTimeStamp = timeProvider.currentTimeInMillis();
+					return;
+				}
+			}
+		}
+
+		private synchronized void removeConnection(MultiplexedConnection connection) {
+			connections.remove(connection);
+		}
+
+		void closeIdleConnections(long idleSince) {
+			for (Channel channel : removeIdleConnections(idleSince)) {
+				logger.trace("Closing idle multiplexed connection {} to server {}", channel, server);
+				channel.close();
+			}
+		}
+
+		private synchronized Collection<Channel> removeIdleConnections(long idleSince) {
+			List<Channel> idleChannels = new ArrayList<>();
+			Iterator<MultiplexedConnection> iterator = connections.iterator();
+			while (iterator.hasNext()) {
+				MultiplexedConnection connection = iterator.next();
+				if (connection.activeStreams == 0 && (connection.lastUsedTimeStamp <= idleSince || connection.isGoingAway())) {
+					iterator.remove();
+					idleChannels.add(connection.channel);
+				}
+			}
+			return idleChannels;
+		}
+
+		void shutdown() {
+			List<Channel> channels = new ArrayList<>();
+			synchronized (this) {
+				for (MultiplexedConnection connection : connections) {
+					channels.add(connection.channel);
+				}
+				connections.clear();
+			}
+
+			for (Channel channel : channels) {
+				channel.close();
+			}
+		}
+
+		synchronized int getConnectionCount() {
+			return connections.size();
+		}
+	}
+
+	private class MultiplexedConnection {
+		private final Channel channel;
+		private int activeStreams;
+		private long lastUsedTimeStamp;
+
+		MultiplexedConnection(Channel channel, int activeStreams, long lastUsedTimeStamp) {
+			this.channel = channel;
+			this.activeStreams = activeStreams;
+			this.lastUsedTimeStamp = lastUsedTimeStamp;
+		}
+
+		boolean hasFreeStream() {
+			if (!channel.isActive() || isGoingAway()) {
+				return false;
+			}
+
+			int maxStreams = maxConcurrentStreams;
+			Integer serverMaxStreams = channel.attr(MAX_CONCURRENT_STREAMS).get();
+			if (serverMaxStreams != null) {
+				maxStreams = Math.min(maxStreams, serverMaxStreams);
+			}
+
+			return activeStreams < maxStreams;
+		}
+
+		boolean isGoingAway() {
+			return Boolean.TRUE.equals(channel.attr(GOING_AWAY).get());
+		}
+	}
+}
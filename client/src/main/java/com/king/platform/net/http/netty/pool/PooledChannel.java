@@ -0,0 +1,42 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import io.netty.channel.Channel;
+
+class PooledChannel {
+	final ServerPool serverPool;
+	final int id;
+	final long creationTimeStamp;
+	final Channel channel;
+	final int maxTTL;
+	volatile long lastUsedTimeStamp;
+	int requestCount;
+
+	//written while holding the lock of the IdleChannelList the channel is linked into
+	volatile IdleChannelList idleChannelList;
+	long idleSinceTimeStamp;
+	PooledChannel previous;
+	PooledChannel next;
+
+	//guarded by the IdleChannelBudget
+	boolean inIdleChannelBudget;
+	PooledChannel lruPrevious;
+	PooledChannel lruNext;
+
+	PooledChannel(ServerPool serverPool, int id, long creationTimeStamp, Channel channel, int maxTTL) {
+		this.serverPool = serverPool;
+		this.id = id;
+		this.creationTimeStamp = creationTimeStamp;
+		this.channel = channel;
+		this.maxTTL = maxTTL;
+	}
+
+	boolean isExpired(long currentTime) {
+		return lastUsedTimeStamp + maxTTL <= currentTime;
+	}
+}
@@ -12,7 +12,9 @@ import com.king.platform.net.http.netty.util.TimeProvider;
 import io.netty.channel.Channel;
 import io.netty.util.Timer;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -20,12 +22,25 @@ public class PoolingChannelPool implements ChannelPool {
 
 	private final ConcurrentHashMap<ServerInfo, ServerPool> serverPoolMap = new ConcurrentHashMap<>();
 
+	private final ConcurrentHashMap<ServerInfo, ServerPoolConfig> serverPoolConfigMap = new ConcurrentHashMap<>();
+
+	private final Timer cleanupTimer;
 	private final TimeProvider timeProvider;
 	private final MetricCallback metricCallback;
+	private final ServerPoolConfig defaultServerPoolConfig;
+	private final IdleChannelBudget idleChannelBudget = new IdleChannelBudget(0);
+
+	private volatile ChannelConnector channelConnector;
 
 	public PoolingChannelPool(final Timer cleanupTimer, TimeProvider timeProvider, final MetricCallback metricCallback) {
+		this(cleanupTimer, timeProvider, metricCallback, new ServerPoolConfig());
+	}
+
+	public PoolingChannelPool(final Timer cleanupTimer, TimeProvider timeProvider, final MetricCallback metricCallback, ServerPoolConfig defaultServerPoolConfig) {
+		this.cleanupTimer = cleanupTimer;
 		this.timeProvider = timeProvider;
 		this.metricCallback = metricCallback;
+		this.defaultServerPoolConfig = defaultServerPoolConfig;
 
 
 		cleanupTimer.newTimeout(timeout -> {
@@ -35,6 +50,11 @@ public class PoolingChannelPool implements ChannelPool {
 				ServerInfo serverInfo = poolEntry.getKey();
 
 				serverPool.cleanExpiredConnections();
+				serverPool.rollStatsInterval();
+				if (channelConnector != null) {
+					serverPool.refreshResolvedAddresses(channelConnector);
+					serverPool.refillIdleConnections(channelConnector);
+				}
 				if (serverPool.shouldRemovePool()) {
 					ServerPool remove = serverPoolMap.remove(serverInfo);
 					if (remove != null) {
@@ -62,19 +82,97 @@ public class PoolingChannelPool implements ChannelPool {
 
 	@Override
 	public void offer(ServerInfo serverInfo, Channel channel, int keepAliveTimeoutMillis) {
+		getOrCreateServerPool(serverInfo).offer(channel, keepAliveTimeoutMillis);
+	}
+
+	@Override
+	public void offer(ServerInfo serverInfo, Channel channel, int keepAliveTimeoutMillis, int completedRequests) {
+		getOrCreateServerPool(serverInfo).offer(channel, keepAliveTimeoutMillis, completedRequests);
+	}
+
+	@Override
+	public void adopt(ServerInfo serverInfo, Channel channel, int keepAliveTimeoutMillis) {
+		getOrCreateServerPool(serverInfo).adopt(channel, keepAliveTimeoutMillis);
+	}
+
+	@Override
+	public void acquire(ServerInfo serverInfo, ChannelAcquireCallback callback) {
+		getOrCreateServerPool(serverInfo).acquire(callback);
+	}
+
+	@Override
+	public void registerConnection(ServerInfo serverInfo, Channel channel) {
+		getOrCreateServerPool(serverInfo).registerConnection(channel);
+	}
+
+	@Override
+	public void releaseConnection(ServerInfo serverInfo) {
 		ServerPool serverPool = serverPoolMap.get(serverInfo);
 		if (serverPool == null) {
-			serverPool = new ServerPool(serverInfo, timeProvider, metricCallback);
+			return;
+		}
+
+		serverPool.releaseConnection();
+	}
+
+	@Override
+	public void setChannelConnector(ChannelConnector channelConnector) {
+		this.channelConnector = channelConnector;
+	}
+
+	@Override
+	public CompletableFuture<Integer> prewarm(ServerInfo serverInfo, int connections) {
+		ChannelConnector channelConnector = this.channelConnector;
+		if (channelConnector == null) {
+			CompletableFuture<Integer> future = new CompletableFuture<>();
+			future.completeExceptionally(new IllegalStateException("The channel pool has not been started"));
+			return future;
+		}
+
+		return getOrCreateServerPool(serverInfo).prewarm(connections, channelConnector);
+	}
+
+	/**
+	 * Override the default {@link ServerPoolConfig} for a specific server.
+	 * @param serverInfo the server
+	 * @param serverPoolConfig the config used for connections to the server
+	 */
+	public void setServerPoolConfig(ServerInfo serverInfo, ServerPoolConfig serverPoolConfig) {
+		serverPoolConfigMap.put(serverInfo, serverPoolConfig);
+
+		ServerPool serverPool = serverPoolMap.get(serverInfo);
+		if (serverPool != null) {
+			serverPool.setServerPoolConfig(serverPoolConfig);
+		}
+	}
+
+	/**
+	 * Set the maximum number of idle connections kept in the pool for all servers together, defaults to 0 (unlimited).
+	 * When the limit is reached the connection that has been idle the longest is closed, whatever server it is connected to.
+	 * @param maxIdleConnections the maximum number of idle connections
+	 */
+	public void setMaxIdleConnections(int maxIdleConnections) {
+		idleChannelBudget.setMaxIdleChannels(maxIdleConnections);
+	}
+
+	private ServerPool getOrCreateServerPool(ServerInfo serverInfo) {
+		ServerPool serverPool = serverPoolMap.get(serverInfo);
+		if (serverPool == null) {
+			ServerPoolConfig serverPoolConfig = serverPoolConfigMap.getOrDefault(serverInfo, defaultServerPoolConfig);
+			serverPool = new ServerPool(serverInfo, serverPoolConfig, cleanupTimer, timeProvider, metricCallback, idleChannelBudget);
 			ServerPool old = serverPoolMap.putIfAbsent(serverInfo, serverPool);
 			if (old != null) {
 				serverPool = old;
 			} else {
 				metricCallback.onCreatedServerPool(serverInfo.getHost());
 
+				ChannelConnector channelConnector = this.channelConnector;
+				if (channelConnector != null) {
+					serverPool.refreshResolvedAddresses(channelConnector);
+				}
 			}
 		}
-
-		serverPool.offer(channel, keepAliveTimeoutMillis);
+		return serverPool;
 	}
 
 	@Override
@@ -87,6 +185,16 @@ public class PoolingChannelPool implements ChannelPool {
 		serverPool.discard(channel);
 	}
 
+	@Override
+	public void detach(ServerInfo serverInfo, Channel channel) {
+		ServerPool serverPool = serverPoolMap.get(serverInfo);
+		if (serverPool == null) {
+			return;
+		}
+
+		serverPool.detach(channel);
+	}
+
 	@Override
 	public boolean isActive() {
 		return true;
@@ -99,6 +207,25 @@ public class PoolingChannelPool implements ChannelPool {
 		}
 	}
 
+	@Override
+	public ChannelPoolStats getStats(ServerInfo serverInfo) {
+		ServerPool serverPool = serverPoolMap.get(serverInfo);
+		if (serverPool == null) {
+			return null;
+		}
+
+		return serverPool.getStats();
+	}
+
+	@Override
+	public Map<ServerInfo, ChannelPoolStats> getStats() {
+		Map<ServerInfo, ChannelPoolStats> stats = new HashMap<>();
+		for (Map.Entry<ServerInfo, ServerPool> poolEntry : serverPoolMap.entrySet()) {
+			stats.put(poolEntry.getKey(), poolEntry.getValue().getStats());
+		}
+		return stats;
+	}
+
 	protected int getPoolSize(ServerInfo serverInfo) {
 		ServerPool serverPool = serverPoolMap.get(serverInfo);
 		if (serverPool == null) {
@@ -108,4 +235,13 @@ public class PoolingChannelPool implements ChannelPool {
 		return serverPool.getPoolSize();
 
 	}
+
+	protected int getConnectionCount(ServerInfo serverInfo) {
+		ServerPool serverPool = serverPoolMap.get(serverInfo);
+		if (serverPool == null) {
+			return 0;
+		}
+
+		return serverPool.getConnectionCount();
+	}
 }
@@ -6,34 +6,84 @@
 package com.king.platform.net.http.netty.pool;
 
 
+import com.king.platform.net.http.KingHttpException;
 import com.king.platform.net.http.netty.ServerInfo;
+import com.king.platform.net.http.netty.TimeoutException;
 import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.metric.RetirementReason;
 import com.king.platform.net.http.netty.util.TimeProvider;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.util.AttributeKey;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
 import org.slf4j.Logger;
 
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
 public class ServerPool {
+	private static final AttributeKey<Runnable> RELEASE_CONNECTION = AttributeKey.valueOf("__ServerPool_ReleaseConnection");
+	private static final AttributeKey<Long> CONNECTED_TIME = AttributeKey.valueOf("__ServerPool_ConnectedTime");
+
 	private final Logger logger = getLogger(getClass());
 	private final ServerInfo server;
 
 	private final AtomicInteger idGenerator = new AtomicInteger();
-	private final ConcurrentLinkedDeque<PooledChannel> pooledChannels = new ConcurrentLinkedDeque<>();
+	private final IdleChannelList pooledChannels;
+	private final ConcurrentHashMap<EventLoop, IdleChannelList> eventLoopChannels = new ConcurrentHashMap<>();
 	private final ConcurrentHashMap<Channel, PooledChannel> channelsMap = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<PendingAcquire> pendingAcquires = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingAcquireCount = new AtomicInteger();
+	private final AtomicInteger connectionCount = new AtomicInteger();
+	private final AtomicInteger openingConnectionCount = new AtomicInteger();
+	private final Timer timer;
 	private final TimeProvider timeProvider;
 	private final MetricCallback metricCallback;
-
+	private final IdleChannelBudget idleChannelBudget;
+	private final ConcurrentHashMap<InetSocketAddress, AtomicInteger> addressConnectionCounts = new ConcurrentHashMap<>();
+	private final AtomicInteger addressIndex = new AtomicInteger();
+	private final LongAdder createdConnections = new LongAdder();
+	private final LongAdder closedConnections = new LongAdder();
+	private final LongAdder reusedConnectionAcquires = new LongAdder();
+	private final LongAdder newConnectionAcquires = new LongAdder();
+	private long createdConnectionsAtIntervalStart;
+	private long closedConnectionsAtIntervalStart;
+	private volatile long createdConnectionsLastInterval;
+	private volatile long closedConnectionsLastInterval;
+
+	private volatile ServerPoolConfig serverPoolConfig;
 	private volatile long lastOfferedConnectionTime;
+	private volatile List<InetSocketAddress> resolvedAddresses = Collections.emptyList();
+	private volatile long nextResolveTime;
+
+	public ServerPool(ServerInfo server, TimeProvider timeProvider, MetricCallback metricCallback) {
+		this(server, new ServerPoolConfig(), null, timeProvider, metricCallback);
+	}
 
-	public ServerPool(ServerInfo server,TimeProvider timeProvider, MetricCallback metricCallback) {
+	public ServerPool(ServerInfo server, ServerPoolConfig serverPoolConfig, Timer timer, TimeProvider timeProvider, MetricCallback metricCallback) {
+		this(server, serverPoolConfig, timer, timeProvider, metricCallback, null);
+	}
+
+	ServerPool(ServerInfo server, ServerPoolConfig serverPoolConfig, Timer timer, TimeProvider timeProvider, MetricCallback metricCallback,
+			   IdleChannelBudget idleChannelBudget) {
+		this.idleChannelBudget = idleChannelBudget;
+		this.pooledChannels = new IdleChannelList(idleChannelBudget);
+		this.serverPoolConfig = serverPoolConfig;
+		this.timer = timer;
 		this.timeProvider = timeProvider;
 		this.metricCallback = metricCallback;
 		lastOfferedConnectionTime = timeProvider.currentTimeInMillis();
@@ -41,12 +91,44 @@ public class ServerPool {
 	}
 
 	public Channel poll() {
+		PooledChannel pooledChannel = pollValidChannel(null);
+		if (pooledChannel == null) {
+			return null;
+		}
+		reusedConnectionAcquires.increment();
+		return pooledChannel.channel;
+	}
+
+	private PooledChannel pollValidChannel(EventLoop eventLoop) {
+		if (!eventLoopChannels.isEmpty()) {
+			if (eventLoop != null) {
+				IdleChannelList channels = eventLoopChannels.get(eventLoop);
+				if (channels != null) {
+					PooledChannel pooledChannel = pollValidChannelFrom(channels);
+					if (pooledChannel != null) {
+						return pooledChannel;
+					}
+				}
+			}
+
+			for (IdleChannelList channels : eventLoopChannels.values()) {  //steal from the other event loops
+				PooledChannel pooledChannel = pollValidChannelFrom(channels);
+				if (pooledChannel != null) {
+					return pooledChannel;
+				}
+			}
+		}
+
+		return pollValidChannelFrom(pooledChannels);
+	}
+
+	private PooledChannel pollValidChannelFrom(IdleChannelList channels) {
 		PooledChannel pooledChannel;
 
-		while ((pooledChannel = pooledChannels.poll()) != null) {
+		while ((pooledChannel = channels.pollFirst()) != null) {
 			if (isValidConnection(pooledChannel)) {
 				logger.trace("Found active channel for server {} with id {} created at {}", server, pooledChannel.id, pooledChannel.creationTimeStamp);
-				return pooledChannel.channel;
+				return pooledChannel;
 			} else {
 				channelsMap.remove(pooledChannel.channel);
 				pooledChannel.channel.close();
@@ -67,7 +149,7 @@ public class ServerPool {
 		Channel channel = pooledChannel.channel;
 		long currentTime = timeProvider.currentTimeInMillis();
 
-		if (pooledChannel.lastUsedTimeStamp + pooledChannel.maxTTL <= currentTime) {  //TTL for this connection has expired
+		if (pooledChannel.isExpired(currentTime)) {  //TTL for this connection has expired
 			return false;
 		}
 
@@ -79,6 +161,16 @@ public class ServerPool {
 	}
 
 	public void offer(Channel channel, int keepAliveTimeoutMillis) {
+		offer(channel, keepAliveTimeoutMillis, 1);
+	}
+
+	/**
+	 * Offer a channel back to the pool.
+	 * @param channel the channel
+	 * @param keepAliveTimeoutMillis the keep alive timeout of the channel
+	 * @param completedRequests the number of requests that completed on the channel since it was taken from the pool, more than one when they were pipelined
+	 */
+	public void offer(Channel channel, int keepAliveTimeoutMillis, int completedRequests) {
 		if (channel == null) {
 			return;
 		}
@@ -91,23 +183,439 @@ public class ServerPool {
 			}
 
 			channelsMap.remove(channel);
+			removeIdleChannel(pooledChannel);
 			return;
 		}
 
 		if (pooledChannel == null) {
-			pooledChannel = new PooledChannel(idGenerator.incrementAndGet(), timeProvider.currentTimeInMillis(), channel, keepAliveTimeoutMillis);
+			Long connectedTime = channel.attr(CONNECTED_TIME).get();  //the lifetime of a connection starts when it was connected, not when it was first offered
+			long creationTimeStamp = connectedTime != null ? connectedTime : timeProvider.currentTimeInMillis();
+			pooledChannel = new PooledChannel(this, idGenerator.incrementAndGet(), creationTimeStamp, channel, keepAliveTimeoutMillis);
 			PooledChannel oldValue = channelsMap.putIfAbsent(channel, pooledChannel);
 			if (oldValue == null) {
 				logger.trace("Adding new active channel for server {} with id {} created at {}", server, pooledChannel.id, pooledChannel.creationTimeStamp);
 				metricCallback.onServerPoolAddedConnection(server.getHost(), channelsMap.size());
+				addEvictionHandler(pooledChannel);
+			} else {
+				pooledChannel = oldValue;
 			}
 
 		}
 		logger.trace("offering active channel for server {} with id {} created at {}", server, pooledChannel.id, pooledChannel.creationTimeStamp);
 
+		pooledChannel.requestCount += completedRequests;
+
+		RetirementReason retirementReason = getRetirementReason(pooledChannel);
+		if (retirementReason != null) {
+			retire(pooledChannel, retirementReason);
+			return;
+		}
+
 		lastOfferedConnectionTime = timeProvider.currentTimeInMillis();
 		pooledChannel.lastUsedTimeStamp = timeProvider.currentTimeInMillis();
-		pooledChannels.addFirst(pooledChannel);
+		idleChannels(channel).add(pooledChannel);
+
+		if (idleChannelBudget != null) {
+			idleChannelBudget.evictOverflow();
+		}
+
+		if (!pendingAcquires.isEmpty()) {
+			dispatchPendingAcquires();
+		}
+	}
+
+	private RetirementReason getRetirementReason(PooledChannel pooledChannel) {
+		ServerPoolConfig serverPoolConfig = this.serverPoolConfig;
+
+		int maxRequestsPerConnection = serverPoolConfig.getMaxRequestsPerConnection();
+		if (maxRequestsPerConnection > 0 && pooledChannel.requestCount >= maxRequestsPerConnection) {
+			return RetirementReason.MAX_REQUESTS;
+		}
+
+		long maxConnectionLifetimeMillis = serverPoolConfig.getMaxConnectionLifetimeMillis();
+		if (maxConnectionLifetimeMillis > 0 && pooledChannel.creationTimeStamp + maxConnectionLifetimeMillis <= timeProvider.currentTimeInMillis()) {
+			return RetirementReason.MAX_LIFETIME;
+		}
+
+		if (isRemovedAddress(pooledChannel.channel.remoteAddress())) {
+			return RetirementReason.ADDRESS_REMOVED;
+		}
+
+		return null;
+	}
+
+	private void retireIfIdle(PooledChannel pooledChannel, RetirementReason retirementReason) {
+		IdleChannelList idleChannelList = pooledChannel.idleChannelList;
+		if (idleChannelList != null && idleChannelList.remove(pooledChannel)) {
+			retire(pooledChannel, retirementReason);
+		}
+	}
+
+	private void retire(PooledChannel pooledChannel, RetirementReason retirementReason) {
+		logger.trace("Retiring channel to {} with id {} created at {} after {} requests, reason {}", server, pooledChannel.id, pooledChannel.creationTimeStamp,
+			pooledChannel.requestCount, retirementReason);
+
+		removeIdleChannel(pooledChannel);
+		boolean removed = channelsMap.remove(pooledChannel.channel, pooledChannel);
+		pooledChannel.channel.close();
+
+		metricCallback.onServerPoolRetiredConnection(server.getHost(), retirementReason);
+		if (removed) {
+			metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
+		}
+	}
+
+	public void acquire(ChannelAcquireCallback callback) {
+		PooledChannel pooledChannel = pollValidChannel(serverPoolConfig.isEventLoopAffinity() ? callback.getEventLoop() : null);
+		if (pooledChannel != null) {
+			reusedConnectionAcquires.increment();
+			callback.onPooledChannel(pooledChannel.channel);
+			return;
+		}
+
+		if (tryReserveConnection()) {
+			newConnectionAcquires.increment();
+			callback.onNewConnection(nextRemoteAddress());
+			return;
+		}
+
+		if (pendingAcquireCount.incrementAndGet() > serverPoolConfig.getMaxPendingAcquires()) {
+			pendingAcquireCount.decrementAndGet();
+			callback.onFailure(new KingHttpException("Too many pending requests waiting for a connection to " + server));
+			return;
+		}
+
+		PendingAcquire pendingAcquire = new PendingAcquire(callback, timeProvider.currentTimeInMillis());
+		pendingAcquires.add(pendingAcquire);
+		logger.trace("Queued request for server {}, {} requests are waiting for a connection", server, pendingAcquireCount.get());
+		metricCallback.onServerPoolPendingAcquires(server.getHost(), pendingAcquireCount.get());
+
+		int maxPendingWaitMillis = serverPoolConfig.getMaxPendingWaitMillis();
+		if (maxPendingWaitMillis > 0) {
+			pendingAcquire.timeout = timer.newTimeout(timeout -> expirePendingAcquire(pendingAcquire), maxPendingWaitMillis, TimeUnit.MILLISECONDS);
+		}
+
+		dispatchPendingAcquires(); //a connection could have been returned while this request was queued
+	}
+
+	/**
+	 * Count and pool a connection that was opened without a reserved connection slot. The connection is closed if the server
+	 * already has the max number of connections.
+	 * @param channel the opened channel
+	 * @param keepAliveTimeoutMillis the keep alive timeout of the channel
+	 */
+	public void adopt(Channel channel, int keepAliveTimeoutMillis) {
+		if (!tryReserveConnection()) {
+			logger.trace("Max connections reached for server {}, closing adopted channel {}", server, channel);
+			channel.close();
+			return;
+		}
+
+		registerConnection(channel);
+		offer(channel, keepAliveTimeoutMillis, 0);
+	}
+
+	public void registerConnection(Channel channel) {
+		AtomicInteger addressConnectionCount = null;
+		if (serverPoolConfig.isSpreadOverResolvedAddresses() && channel.remoteAddress() instanceof InetSocketAddress) {
+			addressConnectionCount = addressConnectionCounts.computeIfAbsent((InetSocketAddress) channel.remoteAddress(), address -> new AtomicInteger());
+			addressConnectionCount.incrementAndGet();
+		}
+
+		createdConnections.increment();
+		channel.attr(CONNECTED_TIME).set(timeProvider.currentTimeInMillis());
+		AtomicInteger connectionCountToRelease = addressConnectionCount;
+		AtomicBoolean released = new AtomicBoolean();
+		Runnable release = () -> {
+			if (released.compareAndSet(false, true)) {
+				if (connectionCountToRelease != null) {
+					connectionCountToRelease.decrementAndGet();
+				}
+				releaseConnection();
+			}
+		};
+		channel.attr(RELEASE_CONNECTION).set(release);
+		channel.closeFuture().addListener(future -> {
+			closedConnections.increment();
+			release.run();
+		});
+	}
+
+	public void releaseConnection() {
+		connectionCount.decrementAndGet();
+
+		if (!pendingAcquires.isEmpty()) {
+			dispatchPendingAcquires();
+		}
+	}
+
+	public CompletableFuture<Integer> prewarm(int connections, ChannelConnector channelConnector) {
+		CompletableFuture<Integer> result = new CompletableFuture<>();
+		if (connections <= 0) {
+			result.complete(0);
+			return result;
+		}
+
+		AtomicInteger remaining = new AtomicInteger(connections);
+		AtomicInteger opened = new AtomicInteger();
+
+		for (int i = 0; i < connections; i++) {
+			if (!tryReserveConnection()) {
+				logger.trace("Max connections reached for server {}, skipping prewarm of connection", server);
+				if (remaining.decrementAndGet() == 0) {
+					result.complete(opened.get());
+				}
+				continue;
+			}
+
+			openingConnectionCount.incrementAndGet();
+			channelConnector.connect(server, nextRemoteAddress()).addListener(future -> {
+				openingConnectionCount.decrementAndGet();
+				if (future.isSuccess()) {
+					Channel channel = (Channel) future.getNow();
+					logger.trace("Prewarmed channel {} for server {}", channel, server);
+					registerConnection(channel);
+					offer(channel, channelConnector.getKeepAliveTimeoutMillis(), 0);
+					opened.incrementAndGet();
+				} else {
+					logger.trace("Failed to prewarm channel for server {}", server, future.cause());
+					releaseConnection();
+				}
+
+				if (remaining.decrementAndGet() == 0) {
+					result.complete(opened.get());
+				}
+			});
+		}
+
+		return result;
+	}
+
+	public void refillIdleConnections(ChannelConnector channelConnector) {
+		int missingConnections = serverPoolConfig.getMinIdleConnections() - getPoolSize() - openingConnectionCount.get();
+		if (missingConnections > 0) {
+			logger.trace("Opening {} connections to server {} to keep the minimum idle connections", missingConnections, server);
+			prewarm(missingConnections, channelConnector);
+		}
+	}
+
+	/**
+	 * Resolve all addresses of the server again if the pool spreads its connections over them and the last resolve is
+	 * older than 30 seconds.
+	 * @param channelConnector the connector used to resolve the addresses
+	 */
+	public void refreshResolvedAddresses(ChannelConnector channelConnector) {
+		if (!serverPoolConfig.isSpreadOverResolvedAddresses()) {
+			return;
+		}
+
+		long currentTime = timeProvider.currentTimeInMillis();
+		if (currentTime < nextResolveTime) {
+			return;
+		}
+		nextResolveTime = currentTime + 30_000;
+
+		channelConnector.resolveAll(server).addListener(future -> {
+			if (future.isSuccess()) {
+				@SuppressWarnings("unchecked")
+				List<InetSocketAddress> addresses = (List<InetSocketAddress>) future.getNow();
+				updateResolvedAddresses(addresses);
+			} else {
+				logger.trace("Failed to resolve the addresses of server {}", server, future.cause());
+			}
+		});
+	}
+
+	void updateResolvedAddresses(List<InetSocketAddress> addresses) {
+		List<InetSocketAddress> previousAddresses = resolvedAddresses;
+		resolvedAddresses = Collections.unmodifiableList(new ArrayList<>(addresses));
+		logger.trace("Resolved addresses {} for server {}", addresses, server);
+
+		boolean addressRemoved = false;
+		for (InetSocketAddress previousAddress : previousAddresses) {
+			if (!addresses.contains(previousAddress)) {
+				logger.trace("Address {} of server {} is no longer resolved", previousAddress, server);
+				addressRemoved = true;
+			}
+		}
+
+		if (addressRemoved) {  //connections in use are retired when they are returned to the pool
+			for (PooledChannel pooledChannel : channelsMap.values()) {
+				if (isRemovedAddress(pooledChannel.channel.remoteAddress())) {
+					retireIfIdle(pooledChannel, RetirementReason.ADDRESS_REMOVED);
+				}
+			}
+		}
+
+		addressConnectionCounts.entrySet().removeIf(entry -> entry.getValue().get() <= 0 && !addresses.contains(entry.getKey()));
+	}
+
+	private InetSocketAddress nextRemoteAddress() {
+		List<InetSocketAddress> addresses = resolvedAddresses;
+		if (addresses.isEmpty() || !serverPoolConfig.isSpreadOverResolvedAddresses()) {
+			return null;
+		}
+
+		//pick the address with the fewest connections, ties are broken round robin
+		int start = Math.floorMod(addressIndex.getAndIncrement(), addresses.size());
+		InetSocketAddress selectedAddress = null;
+		int selectedConnectionCount = Integer.MAX_VALUE;
+		for (int i = 0; i < addresses.size(); i++) {
+			InetSocketAddress address = addresses.get((start + i) % addresses.size());
+			AtomicInteger addressConnectionCount = addressConnectionCounts.get(address);
+			int connectionCount = addressConnectionCount != null ? addressConnectionCount.get() : 0;
+			if (connectionCount < selectedConnectionCount) {
+				selectedAddress = address;
+				selectedConnectionCount = connectionCount;
+			}
+		}
+
+		return selectedAddress;
+	}
+
+	private boolean isRemovedAddress(SocketAddress remoteAddress) {
+		List<InetSocketAddress> addresses = resolvedAddresses;
+		if (addresses.isEmpty() || !serverPoolConfig.isSpreadOverResolvedAddresses()) {
+			return false;
+		}
+
+		return remoteAddress instanceof InetSocketAddress && !addresses.contains(remoteAddress);
+	}
+
+	int getAddressConnectionCount(InetSocketAddress address) {
+		AtomicInteger addressConnectionCount = addressConnectionCounts.get(address);
+		return addressConnectionCount != null ? addressConnectionCount.get() : 0;
+	}
+
+	private boolean tryReserveConnection() {
+		int maxConnections = serverPoolConfig.getMaxConnections();
+		while (true) {
+			int current = connectionCount.get();
+			if (maxConnections > 0 && current >= maxConnections) {
+				return false;
+			}
+			if (connectionCount.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void dispatchPendingAcquires() {
+		while (!pendingAcquires.isEmpty()) {
+			PooledChannel pooledChannel = pollValidChannel(null);
+			if (pooledChannel != null) {
+				PendingAcquire pendingAcquire = takePendingAcquire();
+				if (pendingAcquire == null) {
+					idleChannels(pooledChannel.channel).add(pooledChannel);
+					continue;
+				}
+
+				reusedConnectionAcquires.increment();
+				pendingAcquire.callback.onPooledChannel(pooledChannel.channel);
+				continue;
+			}
+
+			if (!tryReserveConnection()) {
+				return;
+			}
+
+			PendingAcquire pendingAcquire = takePendingAcquire();
+			if (pendingAcquire == null) {
+				connectionCount.decrementAndGet();
+				continue;
+			}
+
+			newConnectionAcquires.increment();
+			pendingAcquire.callback.onNewConnection(nextRemoteAddress());
+		}
+	}
+
+	private IdleChannelList idleChannels(Channel channel) {
+		if (!serverPoolConfig.isEventLoopAffinity()) {
+			return pooledChannels;
+		}
+
+		return eventLoopChannels.computeIfAbsent(channel.eventLoop(), eventLoop -> new IdleChannelList(idleChannelBudget));
+	}
+
+	private void addEvictionHandler(PooledChannel pooledChannel) {
+		ChannelPipeline pipeline = pooledChannel.channel.pipeline();
+		IdleChannelEvictionHandler evictionHandler = new IdleChannelEvictionHandler(this, pooledChannel);
+		if (pipeline.get("http-codec") != null) {  //after the ssl handler so tls records sent to idle channels are not treated as data
+			pipeline.addBefore("http-codec", IdleChannelEvictionHandler.NAME, evictionHandler);
+		} else {
+			pipeline.addFirst(IdleChannelEvictionHandler.NAME, evictionHandler);
+		}
+	}
+
+	boolean evictIfIdle(PooledChannel pooledChannel) {
+		IdleChannelList idleChannelList = pooledChannel.idleChannelList;
+		if (idleChannelList == null || !idleChannelList.remove(pooledChannel)) {
+			return false;
+		}
+
+		logger.trace("Evicting idle channel to {} with id {} created at {}", server, pooledChannel.id, pooledChannel.creationTimeStamp);
+		pooledChannel.channel.close();
+		if (channelsMap.remove(pooledChannel.channel, pooledChannel)) {
+			metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
+		}
+		return true;
+	}
+
+	void evict(PooledChannel pooledChannel) {
+		removeIdleChannel(pooledChannel);
+		if (channelsMap.remove(pooledChannel.channel, pooledChannel)) {
+			logger.trace("Channel to {} with id {} created at {} was closed", server, pooledChannel.id, pooledChannel.creationTimeStamp);
+			metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
+		}
+	}
+
+	private void removeIdleChannel(PooledChannel pooledChannel) {
+		IdleChannelList idleChannelList;
+		while ((idleChannelList = pooledChannel.idleChannelList) != null) {
+			if (idleChannelList.remove(pooledChannel)) {
+				return;
+			}
+		}
+	}
+
+	private PendingAcquire takePendingAcquire() {
+		PendingAcquire pendingAcquire;
+		while ((pendingAcquire = pendingAcquires.poll()) != null) {
+			if (!pendingAcquire.taken.compareAndSet(false, true)) {
+				continue;
+			}
+
+			pendingAcquireCount.decrementAndGet();
+			if (pendingAcquire.timeout != null) {
+				pendingAcquire.timeout.cancel();
+			}
+
+			if (pendingAcquire.callback.isDone()) {  //the request has already failed while waiting
+				continue;
+			}
+
+			metricCallback.onServerPoolPendingAcquires(server.getHost(), pendingAcquireCount.get());
+			metricCallback.onServerPoolAcquireWaitTime(server.getHost(), timeProvider.currentTimeInMillis() - pendingAcquire.queuedTimeStamp);
+			return pendingAcquire;
+		}
+
+		return null;
+	}
+
+	private void expirePendingAcquire(PendingAcquire pendingAcquire) {
+		if (!pendingAcquire.taken.compareAndSet(false, true)) {
+			return;
+		}
+
+		pendingAcquires.remove(pendingAcquire);
+		pendingAcquireCount.decrementAndGet();
+
+		long waitTime = timeProvider.currentTimeInMillis() - pendingAcquire.queuedTimeStamp;
+		metricCallback.onServerPoolPendingAcquires(server.getHost(), pendingAcquireCount.get());
+		metricCallback.onServerPoolAcquireWaitTime(server.getHost(), waitTime);
+
+		pendingAcquire.callback.onFailure(new TimeoutException("Waited " + waitTime + " ms for a connection to " + server));
 	}
 
 	public void discard(Channel channel) {
@@ -118,79 +626,152 @@ public class ServerPool {
 		channel.close();
 		PooledChannel remove = channelsMap.remove(channel);
 		if (remove != null) {
-			//pooledChannels.remove(remove); we don't want to do remove since its expensive on a linkedList
+			removeIdleChannel(remove);
 			//discard should not log an metric call for this since an event is triggerd by the calling method
 			//metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
 		}
 
 	}
 
-	public void cleanExpiredConnections() {
-		HashSet<PooledChannel> currentPooledChannels = new HashSet<>(pooledChannels);
+	/**
+	 * Take the channel out of the pool without closing it. It no longer counts towards the max connections to the server.
+	 * @param channel the channel
+	 */
+	public void detach(Channel channel) {
+		if (channel == null) {
+			return;
+		}
 
-		List<PooledChannel> closedChannels = new ArrayList<>();
-		for (PooledChannel pooledChannel : currentPooledChannels) {
-			if (!isValidConnection(pooledChannel)) {
-				closedChannels.add(pooledChannel);
-			}
+		PooledChannel pooledChannel = channelsMap.remove(channel);
+		if (pooledChannel == null) {
+			return;
 		}
 
-		for (PooledChannel closedChannel : closedChannels) {
-			pooledChannels.remove(closedChannel);
-			PooledChannel remove = channelsMap.remove(closedChannel.channel);
+		Runnable release = channel.attr(RELEASE_CONNECTION).getAndSet(null);
+		if (release != null) {
+			release.run();
+		}
 
-			logger.trace("Cleaned expired connection {}", closedChannel.channel);
-			if (remove != null) {
-				remove.channel.close();
-				metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
-			}
+		removeIdleChannel(pooledChannel);
+		if (channel.pipeline().get(IdleChannelEvictionHandler.NAME) != null) {
+			channel.pipeline().remove(IdleChannelEvictionHandler.NAME);
+		}
+		metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
+	}
 
+	public void cleanExpiredConnections() {
+		cleanExpiredConnections(pooledChannels);
+		for (IdleChannelList channels : eventLoopChannels.values()) {
+			cleanExpiredConnections(channels);
 		}
+	}
 
+	private void cleanExpiredConnections(IdleChannelList channels) {
+		for (PooledChannel expiredChannel : channels.removeExpired(timeProvider.currentTimeInMillis())) {
+			PooledChannel remove = channelsMap.remove(expiredChannel.channel);
 
-		for (Channel channel : channelsMap.keySet()) {
-			if (channel.isActive() && channel.isOpen()) {
-				continue;
+			logger.trace("Cleaned expired connection {}", expiredChannel.channel);
+			if (remove != null) {
+				remove.channel.close();
+				metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
 			}
-
-			channelsMap.remove(channel);
-			channel.close();
-			metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
 		}
 	}
 
 
 	public boolean shouldRemovePool() {
-		return pooledChannels.isEmpty() && lastOfferedConnectionTime + 10_000 <= timeProvider.currentTimeInMillis();  //keep the object around for 10s after the last connection has been closed
+		return getPoolSize() == 0 && serverPoolConfig.getMinIdleConnections() <= 0 && connectionCount.get() <= 0 && pendingAcquireCount.get() == 0 && lastOfferedConnectionTime + 10_000 <= timeProvider.currentTimeInMillis();  //keep the object around for 10s after the last connection has been closed
 	}
 
 	public int getPoolSize() {
-		return pooledChannels.size();
+		int poolSize = pooledChannels.size();
+		for (IdleChannelList channels : eventLoopChannels.values()) {
+			poolSize += channels.size();
+		}
+		return poolSize;
+	}
+
+	/**
+	 * Start a new stats interval, called by the pool cleanup job.
+	 */
+	void rollStatsInterval() {
+		long created = createdConnections.sum();
+		long closed = closedConnections.sum();
+		createdConnectionsLastInterval = created - createdConnectionsAtIntervalStart;
+		closedConnectionsLastInterval = closed - closedConnectionsAtIntervalStart;
+		createdConnectionsAtIntervalStart = created;
+		closedConnectionsAtIntervalStart = closed;
+	}
+
+	public ChannelPoolStats getStats() {
+		int idleConnections = pooledChannels.size();
+		long idleSinceTimeStampSum = pooledChannels.getIdleSinceTimeStampSum();
+		for (IdleChannelList channels : eventLoopChannels.values()) {
+			idleConnections += channels.size();
+			idleSinceTimeStampSum += channels.getIdleSinceTimeStampSum();
+		}
+
+		long averageIdleAgeMillis = 0;
+		if (idleConnections > 0) {
+			averageIdleAgeMillis = Math.max(0, timeProvider.currentTimeInMillis() - idleSinceTimeStampSum / idleConnections);
+		}
+
+		int openConnections = Math.max(connectionCount.get(), channelsMap.size());
+		int inUseConnections = Math.max(0, openConnections - idleConnections);
+
+		long reused = reusedConnectionAcquires.sum();
+		long acquires = reused + newConnectionAcquires.sum();
+		double reuseRatio = acquires > 0 ? (double) reused / acquires : 0;
+
+		return new ChannelPoolStats(idleConnections, inUseConnections, pendingAcquireCount.get(), createdConnections.sum(), closedConnections.sum(),
+			createdConnectionsLastInterval, closedConnectionsLastInterval, averageIdleAgeMillis, reuseRatio);
 	}
 
 	public int getChannelSize() {
 		return channelsMap.size();
 	}
 
+	public int getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	public int getPendingAcquireCount() {
+		return pendingAcquireCount.get();
+	}
+
+	void setServerPoolConfig(ServerPoolConfig serverPoolConfig) {
+		this.serverPoolConfig = serverPoolConfig;
+	}
+
 	public void shutdown() {
-		for (PooledChannel pooledChannel : pooledChannels) {
+		PendingAcquire pendingAcquire;
+		while ((pendingAcquire = pendingAcquires.poll()) != null) {
+			if (pendingAcquire.taken.compareAndSet(false, true)) {
+				pendingAcquireCount.decrementAndGet();
+				pendingAcquire.callback.onFailure(new KingHttpException("The channel pool has been shutdown"));
+			}
+		}
+
+		for (PooledChannel pooledChannel : pooledChannels.removeAll()) {
 			pooledChannel.channel.close().awaitUninterruptibly();
 		}
-	}
 
+		for (IdleChannelList channels : eventLoopChannels.values()) {
+			for (PooledChannel pooledChannel : channels.removeAll()) {
+				pooledChannel.channel.close().awaitUninterruptibly();
+			}
+		}
+	}
 
-	private static class PooledChannel {
-		private int id;
-		private long creationTimeStamp;
-		private long lastUsedTimeStamp;
-		private Channel channel;
-		private int maxTTL;
+	private static class PendingAcquire {
+		private final AtomicBoolean taken = new AtomicBoolean();
+		private final ChannelAcquireCallback callback;
+		private final long queuedTimeStamp;
+		private volatile Timeout timeout;
 
-		public PooledChannel(int id, long creationTimeStamp, Channel channel, int maxTTL) {
-			this.id = id;
-			this.creationTimeStamp = creationTimeStamp;
-			this.channel = channel;
-			this.maxTTL = maxTTL;
+		public PendingAcquire(ChannelAcquireCallback callback, long queuedTimeStamp) {
+			this.callback = callback;
+			this.queuedTimeStamp = queuedTimeStamp;
 		}
 	}
 }
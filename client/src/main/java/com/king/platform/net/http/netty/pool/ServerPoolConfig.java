@@ -0,0 +1,142 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+/**
+ * Settings for the connections {@link PoolingChannelPool} keeps to a single server.
+ */
+public class ServerPoolConfig {
+	private int maxConnections;
+	private int maxPendingAcquires = 1000;
+	private int maxPendingWaitMillis;
+	private int minIdleConnections;
+	private boolean eventLoopAffinity;
+	private long maxConnectionLifetimeMillis;
+	private int maxRequestsPerConnection;
+	private boolean spreadOverResolvedAddresses;
+
+	/**
+	 * Set the maximum number of open connections to the server, defaults to 0 (unlimited).
+	 * Requests over the limit are queued until a connection is returned to the pool or closed.
+	 * @param maxConnections the maximum number of connections
+	 * @return the config
+	 */
+	public ServerPoolConfig setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of requests that can wait for a connection, defaults to 1000.
+	 * Requests over the limit fail directly.
+	 * @param maxPendingAcquires the maximum number of waiting requests
+	 * @return the config
+	 */
+	public ServerPoolConfig setMaxPendingAcquires(int maxPendingAcquires) {
+		this.maxPendingAcquires = maxPendingAcquires;
+		return this;
+	}
+
+	/**
+	 * Set how long a request can wait for a connection in milli seconds, defaults to 0 (only limited by the request timeouts).
+	 * @param maxPendingWaitMillis the maximum wait time
+	 * @return the config
+	 */
+	public ServerPoolConfig setMaxPendingWaitMillis(int maxPendingWaitMillis) {
+		this.maxPendingWaitMillis = maxPendingWaitMillis;
+		return this;
+	}
+
+	/**
+	 * Set the number of idle connections the pool should keep open to the server, defaults to 0.
+	 * Missing connections are opened in the background by the pool cleanup job.
+	 * @param minIdleConnections the minimum number of idle connections
+	 * @return the config
+	 */
+	public ServerPoolConfig setMinIdleConnections(int minIdleConnections) {
+		this.minIdleConnections = minIdleConnections;
+		return this;
+	}
+
+	/**
+	 * Keep the idle connections in one sub pool per event loop, defaults to false.
+	 * Requests prefer channels owned by the event loop they are assigned to and only take channels from
+	 * other event loops when that sub pool is empty. This lowers the contention on the pool when many event loops are used.
+	 * @param eventLoopAffinity true to pool the connections per event loop
+	 * @return the config
+	 */
+	public ServerPoolConfig setEventLoopAffinity(boolean eventLoopAffinity) {
+		this.eventLoopAffinity = eventLoopAffinity;
+		return this;
+	}
+
+	/**
+	 * Set the maximum time in milli seconds a connection is reused after it was first pooled, defaults to 0 (unlimited).
+	 * Older connections are closed when they are returned to the pool, so new connections can be balanced to other backends.
+	 * @param maxConnectionLifetimeMillis the maximum lifetime of a connection
+	 * @return the config
+	 */
+	public ServerPoolConfig setMaxConnectionLifetimeMillis(long maxConnectionLifetimeMillis) {
+		this.maxConnectionLifetimeMillis = maxConnectionLifetimeMillis;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of requests sent over a connection, defaults to 0 (unlimited).
+	 * The connection is closed when it is returned to the pool after its last request.
+	 * @param maxRequestsPerConnection the maximum number of requests per connection
+	 * @return the config
+	 */
+	public ServerPoolConfig setMaxRequestsPerConnection(int maxRequestsPerConnection) {
+		this.maxRequestsPerConnection = maxRequestsPerConnection;
+		return this;
+	}
+
+	/**
+	 * Resolve all addresses of the server and spread new connections over them, defaults to false.
+	 * The addresses are resolved again every 30 seconds by the pool cleanup job and connections to addresses that are
+	 * no longer resolved are closed.
+	 * @param spreadOverResolvedAddresses true to spread the connections over all resolved addresses
+	 * @return the config
+	 */
+	public ServerPoolConfig setSpreadOverResolvedAddresses(boolean spreadOverResolvedAddresses) {
+		this.spreadOverResolvedAddresses = spreadOverResolvedAddresses;
+		return this;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public int getMaxPendingAcquires() {
+		return maxPendingAcquires;
+	}
+
+	public int getMaxPendingWaitMillis() {
+		return maxPendingWaitMillis;
+	}
+
+	public int getMinIdleConnections() {
+		return minIdleConnections;
+	}
+
+	public boolean isEventLoopAffinity() {
+		return eventLoopAffinity;
+	}
+
+	public long getMaxConnectionLifetimeMillis() {
+		return maxConnectionLifetimeMillis;
+	}
+
+	public int getMaxRequestsPerConnection() {
+		return maxRequestsPerConnection;
+	}
+
+	public boolean isSpreadOverResolvedAddresses() {
+		return spreadOverResolvedAddresses;
+	}
+}
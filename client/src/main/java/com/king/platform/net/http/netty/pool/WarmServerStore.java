@@ -0,0 +1,184 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import com.king.platform.net.http.netty.ServerInfo;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.slf4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Saves the servers the channel pool keeps connections to, and how many, to a local file when the client is shutdown and opens
+ * the connections again in the background when the client is started. Each line of the file is the uri of a server followed by
+ * the number of connections.
+ */
+public class WarmServerStore {
+	private final Logger logger = getLogger(getClass());
+
+	private final Path file;
+	private final int connectionsPerSecond;
+	private final ChannelPool channelPool;
+	private final Timer timer;
+
+	private volatile boolean stopped;
+
+	public WarmServerStore(Path file, int connectionsPerSecond, ChannelPool channelPool, Timer timer) {
+		this.file = file;
+		this.connectionsPerSecond = connectionsPerSecond;
+		this.channelPool = channelPool;
+		this.timer = timer;
+	}
+
+	/**
+	 * Read the file and prewarm the saved connections in the background, at most connectionsPerSecond connections each second.
+	 */
+	public void restore() {
+		stopped = false;
+		if (!Files.exists(file)) {
+			return;
+		}
+
+		Map<ServerInfo, Integer> servers;
+		try {
+			servers = read(file);
+		} catch (IOException e) {
+			logger.warn("Failed to read the warm servers from {}", file, e);
+			return;
+		}
+
+		if (servers.isEmpty()) {
+			return;
+		}
+
+		logger.debug("Prewarming connections to {} servers read from {}", servers.size(), file);
+		Deque<Map.Entry<ServerInfo, Integer>> remainingServers = new ArrayDeque<>(servers.entrySet());
+		timer.newTimeout(new PrewarmTask(remainingServers), 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop prewarming and write the servers the channel pool currently keeps connections to.
+	 */
+	public void save() {
+		stopped = true;
+
+		Map<ServerInfo, Integer> servers = new LinkedHashMap<>();
+		for (Map.Entry<ServerInfo, ChannelPoolStats> statsEntry : channelPool.getStats().entrySet()) {
+			ServerInfo serverInfo = statsEntry.getKey();
+			ChannelPoolStats stats = statsEntry.getValue();
+			int connections = stats.getIdleConnections() + stats.getInUseConnections();
+			if (connections > 0 && !serverInfo.isWebSocket()) {
+				servers.put(serverInfo, connections);
+			}
+		}
+
+		try {
+			write(file, servers);
+		} catch (IOException e) {
+			logger.warn("Failed to write the warm servers to {}", file, e);
+		}
+	}
+
+	static Map<ServerInfo, Integer> read(Path file) throws IOException {
+		Map<ServerInfo, Integer> servers = new LinkedHashMap<>();
+
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if (line.isEmpty()) {
+				continue;
+			}
+
+			String[] parts = line.split(" ");
+			if (parts.length != 2) {
+				throw new IOException("Invalid line '" + line + "'");
+			}
+
+			try {
+				servers.put(ServerInfo.buildFromUri(parts[0]), Integer.parseInt(parts[1]));
+			} catch (URISyntaxException | NumberFormatException e) {
+				throw new IOException("Invalid line '" + line + "'", e);
+			}
+		}
+
+		return servers;
+	}
+
+	static void write(Path file, Map<ServerInfo, Integer> servers) throws IOException {
+		Path absoluteFile = file.toAbsolutePath();
+		Path tempFile = absoluteFile.resolveSibling(absoluteFile.getFileName() + ".tmp");
+
+		try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+			for (Map.Entry<ServerInfo, Integer> server : servers.entrySet()) {
+				ServerInfo serverInfo = server.getKey();
+				URI uri;
+				try {  //the uri constructor adds the brackets around ipv6 hosts
+					uri = new URI(serverInfo.getScheme(), null, serverInfo.getHost(), serverInfo.getPort(), null, null, null);
+				} catch (URISyntaxException e) {
+					throw new IOException("Invalid server " + serverInfo, e);
+				}
+				writer.write(uri + " " + server.getValue());
+				writer.newLine();
+			}
+		}
+
+		Files.move(tempFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private class PrewarmTask implements TimerTask {
+		private final Deque<Map.Entry<ServerInfo, Integer>> remainingServers;
+
+		PrewarmTask(Deque<Map.Entry<ServerInfo, Integer>> remainingServers) {
+			this.remainingServers = remainingServers;
+		}
+
+		@Override
+		public void run(Timeout timeout) {
+			if (stopped) {
+				return;
+			}
+
+			int budget = connectionsPerSecond;
+			Map.Entry<ServerInfo, Integer> server;
+			while (budget > 0 && (server = remainingServers.poll()) != null) {
+				ServerInfo serverInfo = server.getKey();
+				int connections = Math.min(budget, server.getValue());
+				budget -= connections;
+
+				channelPool.prewarm(serverInfo, connections).whenComplete((opened, throwable) -> {
+					if (throwable != null) {
+						logger.debug("Failed to prewarm connections to {}", serverInfo, throwable);
+					}
+				});
+
+				if (connections < server.getValue()) {  //continue with the rest of the connections to this server in the next second
+					server.setValue(server.getValue() - connections);
+					remainingServers.addFirst(server);
+				}
+			}
+
+			if (!remainingServers.isEmpty()) {
+				timer.newTimeout(this, 1, TimeUnit.SECONDS);
+			}
+		}
+	}
+}
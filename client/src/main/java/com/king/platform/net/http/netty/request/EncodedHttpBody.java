@@ -0,0 +1,60 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.request;
+
+
+import com.king.platform.net.http.netty.compression.ContentCodec;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * A body that is encoded by the content encoder in the channel pipeline while it is written.
+ * The encoded length isn't known up front so the body is sent chunked.
+ */
+public class EncodedHttpBody implements HttpBody {
+	private final HttpBody httpBody;
+	private final ContentCodec contentCodec;
+
+	public EncodedHttpBody(HttpBody httpBody, ContentCodec contentCodec) {
+		this.httpBody = httpBody;
+		this.contentCodec = contentCodec;
+	}
+
+	public ContentCodec getContentCodec() {
+		return contentCodec;
+	}
+
+	@Override
+	public long getContentLength() {
+		return -1L;
+	}
+
+	@Override
+	public String getContentType() {
+		return httpBody.getContentType();
+	}
+
+	@Override
+	public Charset getCharacterEncoding() {
+		return httpBody.getCharacterEncoding();
+	}
+
+	@Override
+	public ChannelFuture writeContent(ChannelHandlerContext ctx, boolean isSecure) throws IOException {
+		return httpBody.writeContent(ctx, true);  //zero copy file regions would bypass the encoder
+	}
+
+	@Override
+	public String toString() {
+		return "EncodedHttpBody{" +
+			"httpBody=" + httpBody +
+			", contentCodec=" + contentCodec +
+			'}';
+	}
+}
@@ -15,6 +15,7 @@ import com.king.platform.net.http.netty.response.NettyHttpClientResponse;
 import io.netty.channel.*;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http2.Http2StreamChannel;
 import io.netty.util.Attribute;
 import org.slf4j.Logger;
 
@@ -38,12 +39,14 @@ public class HttpClientRequestHandler {
 		}
 
 		if (HttpRequestContext.class.isAssignableFrom(msg.getClass())) {
-			errorAttribute.set(false);
 			HttpRequestContext httpRequestContext = (HttpRequestContext) msg;
 
 			NettyHttpClientRequest request = httpRequestContext.getNettyHttpClientRequest();
 
-			ctx.channel().attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).set(httpRequestContext);
+			if (!httpRequestContext.isPipelined()) {  //pipelined requests become the current request when the responses before them have been read
+				errorAttribute.set(false);
+				ctx.channel().attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).set(httpRequestContext);
+			}
 
 			RequestEventBus requestEventBus = httpRequestContext.getRequestEventBus();
 
@@ -98,7 +101,7 @@ public class HttpClientRequestHandler {
 				if (future.isSuccess()) {
 					logger.trace("Wrote headers operation completed, future: {}", future);
 					requestEventBus.triggerEvent(Event.onWroteHeaders);
-					requestEventBus.triggerEvent(Event.TOUCH);
+					httpRequestContext.getLifecycleListener().onTouch();
 					httpRequestContext.getTimeRecorder().completedWriteHeaders();
 
 				} else {
@@ -114,12 +117,13 @@ public class HttpClientRequestHandler {
 		try {
 			httpRequestContext.getTimeRecorder().startWriteBody();
 			requestEventBus.triggerEvent(Event.onWroteContentStarted, httpBody.getContentLength());
-			ChannelFuture channelFuture = httpBody.writeContent(ctx, httpRequestContext.getServerInfo().isSecure());
+			boolean isSecure = httpRequestContext.getServerInfo().isSecure() || ctx.channel() instanceof Http2StreamChannel;  //file regions can't be sent as http2 frames
+			ChannelFuture channelFuture = httpBody.writeContent(ctx, isSecure);
 
 			channelFuture.addListener(new ChannelProgressiveFutureListener() {
 				@Override
 				public void operationProgressed(ChannelProgressiveFuture future, long progress, long total) throws Exception {
-					requestEventBus.triggerEvent(Event.TOUCH);
+					httpRequestContext.getLifecycleListener().onTouch();
 					requestEventBus.triggerEvent(Event.onWroteContentProgressed, progress, total);
 
 				}
@@ -131,7 +135,7 @@ public class HttpClientRequestHandler {
 					if (future.isSuccess()) {
 						httpRequestContext.getTimeRecorder().completedWriteBody();
 						writeLastHttpContent(ctx, httpRequestContext, requestEventBus);
-						requestEventBus.triggerEvent(Event.TOUCH);
+						httpRequestContext.getLifecycleListener().onTouch();
 
 
 					} else {
@@ -157,7 +161,7 @@ public class HttpClientRequestHandler {
 
 				if (future.isSuccess()) {
 					requestEventBus.triggerEvent(Event.onWroteContentCompleted);
-					requestEventBus.triggerEvent(Event.TOUCH);
+					httpRequestContext.getLifecycleListener().onTouch();
 					httpRequestContext.getTimeRecorder().completedWriteLastBody();
 
 				} else {
@@ -9,7 +9,9 @@ package com.king.platform.net.http.netty.requestbuilder;
 import com.king.platform.net.http.HttpResponse;
 import com.king.platform.net.http.*;
 import com.king.platform.net.http.netty.*;
+import com.king.platform.net.http.netty.compression.ContentCodec;
 import com.king.platform.net.http.netty.eventbus.ExternalEventTrigger;
+import com.king.platform.net.http.netty.request.EncodedHttpBody;
 import com.king.platform.net.http.netty.request.HttpBody;
 import com.king.platform.net.http.netty.request.NettyHttpClientRequest;
 import com.king.platform.net.http.util.Param;
@@ -40,11 +42,13 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 
 	private final boolean followRedirects;
 	private final boolean acceptCompressedResponse;
+	private final String acceptEncoding;
 	private final boolean keepAlive;
 	private final int keepAliveTimeoutMillis;
 	private final boolean automaticallyDecompressResponse;
 
 	private final RequestBodyBuilder requestBodyBuilder;
+	private final ContentCodec requestBodyContentCodec;
 	private final String contentType;
 	private final Charset bodyCharset;
 
@@ -68,7 +72,7 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 	private CustomCallbackSubscriber customCallbackSubscriber;
 
 
-	public BuiltNettyClientRequest(HttpClientCaller httpClientCaller, HttpVersion httpVersion, HttpMethod httpMethod, String uri, String defaultUserAgent, int idleTimeoutMillis, int totalRequestTimeoutMillis, boolean followRedirects, boolean acceptCompressedResponse, boolean keepAlive, int keepAliveTimeoutMillis, boolean automaticallyDecompressResponse, RequestBodyBuilder requestBodyBuilder, String contentType, Charset bodyCharset, List<Param> queryParameters, List<Param> headerParameters, Executor callbackExecutor, Supplier<ResponseBodyConsumer<T>> responseBodyConsumer, WebSocketConf webSocketConf, ServerInfoValidator serverInfoValidator) {
+	public BuiltNettyClientRequest(HttpClientCaller httpClientCaller, HttpVersion httpVersion, HttpMethod httpMethod, String uri, String defaultUserAgent, int idleTimeoutMillis, int totalRequestTimeoutMillis, boolean followRedirects, boolean acceptCompressedResponse, String acceptEncoding, boolean keepAlive, int keepAliveTimeoutMillis, boolean automaticallyDecompressResponse, RequestBodyBuilder requestBodyBuilder, ContentCodec requestBodyContentCodec, String contentType, Charset bodyCharset, List<Param> queryParameters, List<Param> headerParameters, Executor callbackExecutor, Supplier<ResponseBodyConsumer<T>> responseBodyConsumer, WebSocketConf webSocketConf, ServerInfoValidator serverInfoValidator) {
 		this.httpClientCaller = httpClientCaller;
 		this.httpVersion = httpVersion;
 		this.httpMethod = httpMethod;
@@ -78,10 +82,12 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 		this.totalRequestTimeoutMillis = totalRequestTimeoutMillis;
 		this.followRedirects = followRedirects;
 		this.acceptCompressedResponse = acceptCompressedResponse;
+		this.acceptEncoding = acceptEncoding;
 		this.keepAlive = keepAlive;
 		this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
 		this.automaticallyDecompressResponse = automaticallyDecompressResponse;
 		this.requestBodyBuilder = requestBodyBuilder;
+		this.requestBodyContentCodec = requestBodyContentCodec;
 		this.contentType = contentType;
 		this.bodyCharset = bodyCharset;
 		this.queryParameters = new ArrayList<>(queryParameters);
@@ -181,6 +187,9 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 
 		if (requestBodyBuilder != null) {
 			httpBody = requestBodyBuilder.createHttpBody(contentType, bodyCharset);
+			if (requestBodyContentCodec != null) {
+				httpBody = new EncodedHttpBody(httpBody, requestBodyContentCodec);
+			}
 		}
 
 		NettyHttpClientRequest<T> nettyHttpClientRequest = new NettyHttpClientRequest<>(serverInfo, defaultHttpRequest, httpBody);
@@ -193,7 +202,7 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 
 
 		if (acceptCompressedResponse && !headers.contains(HttpHeaderNames.ACCEPT_ENCODING)) {
-			headers.set(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP + "," + HttpHeaderValues.DEFLATE);
+			headers.set(HttpHeaderNames.ACCEPT_ENCODING, acceptEncoding);
 		}
 
 		if (httpBody != null && httpMethod.equals(HttpMethod.TRACE)) {
@@ -207,6 +216,10 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 				headers.set(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(httpBody.getContentLength()));
 			}
 
+			if (requestBodyContentCodec != null) {
+				headers.set(HttpHeaderNames.CONTENT_ENCODING, requestBodyContentCodec.getEncoding());
+			}
+
 			String contentType = httpBody.getContentType();
 			if (contentType != null) {
 				Charset characterEncoding = httpBody.getCharacterEncoding();
@@ -34,6 +34,6 @@ public class HttpClientRequestBuilderImpl extends HttpClientRequestHeaderBuilder
 	@Override
 	public <T> BuiltClientRequest<T> build(Supplier<ResponseBodyConsumer<T>> responseBodyConsumer) {
 		return new BuiltNettyClientRequest<T>(httpClientCaller, httpVersion, httpMethod, uri, defaultUserAgent, idleTimeoutMillis, totalRequestTimeoutMillis,
-			followRedirects, acceptCompressedResponse, keepAlive, keepAliveTimeoutMillis, automaticallyDecompressResponse, null, null, null, queryParameters, headerParameters, callbackExecutor, responseBodyConsumer, null, ServerInfoValidator.HTTP);
+			followRedirects, acceptCompressedResponse, acceptEncoding, keepAlive, keepAliveTimeoutMillis, automaticallyDecompressResponse, null, null, null, null, queryParameters, headerParameters, callbackExecutor, responseBodyConsumer, null, ServerInfoValidator.HTTP);
 	}
 }
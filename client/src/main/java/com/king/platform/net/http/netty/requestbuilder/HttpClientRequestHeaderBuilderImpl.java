@@ -10,6 +10,7 @@ import com.king.platform.net.http.ConfKeys;
 import com.king.platform.net.http.HttpClientRequestHeaderBuilder;
 import com.king.platform.net.http.netty.ConfMap;
 import com.king.platform.net.http.netty.HttpClientCaller;
+import com.king.platform.net.http.netty.compression.ContentCodecs;
 import com.king.platform.net.http.util.Param;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpVersion;
@@ -38,6 +39,7 @@ public abstract class HttpClientRequestHeaderBuilderImpl<T extends HttpClientReq
 
 	protected boolean followRedirects;
 	protected boolean acceptCompressedResponse;
+	protected final String acceptEncoding;
 	protected boolean keepAlive;
 	protected int keepAliveTimeoutMillis;
 	protected  boolean automaticallyDecompressResponse;
@@ -58,6 +60,7 @@ public abstract class HttpClientRequestHeaderBuilderImpl<T extends HttpClientReq
 
 
 		acceptCompressedResponse = confMap.get(ConfKeys.ACCEPT_COMPRESSED_RESPONSE);
+		acceptEncoding = ContentCodecs.acceptEncoding(confMap.get(ConfKeys.CONTENT_CODECS));
 
 		automaticallyDecompressResponse = confMap.get(ConfKeys.AUTOMATICALLY_DECOMPRESS_RESPONSE);
 
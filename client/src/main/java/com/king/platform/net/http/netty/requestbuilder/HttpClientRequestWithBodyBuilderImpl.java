@@ -10,6 +10,8 @@ import com.king.platform.net.http.*;
 import com.king.platform.net.http.netty.ConfMap;
 import com.king.platform.net.http.netty.HttpClientCaller;
 import com.king.platform.net.http.netty.ServerInfoValidator;
+import com.king.platform.net.http.netty.compression.ContentCodec;
+import com.king.platform.net.http.netty.compression.ContentCodecs;
 import com.king.platform.net.http.netty.request.HttpBody;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpVersion;
@@ -17,6 +19,7 @@ import io.netty.handler.codec.http.HttpVersion;
 import java.io.File;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.function.Supplier;
@@ -28,12 +31,16 @@ public class HttpClientRequestWithBodyBuilderImpl extends HttpClientRequestHeade
 	private RequestBodyBuilder requestBodyBuilder;
 	private String contentType;
 	private Charset bodyCharset;
+	private final List<ContentCodec> contentCodecs;
+	private String requestBodyContentEncoding;
 
 	public HttpClientRequestWithBodyBuilderImpl(HttpClientCaller httpClientCaller, HttpVersion httpVersion, HttpMethod httpMethod, String uri, ConfMap confMap,
 												Executor callbackExecutor) {
 		super(HttpClientRequestWithBodyBuilder.class, httpClientCaller, httpVersion, httpMethod, uri, confMap, callbackExecutor);
 
 		bodyCharset = confMap.get(ConfKeys.REQUEST_BODY_CHARSET);
+		contentCodecs = confMap.get(ConfKeys.CONTENT_CODECS);
+		requestBodyContentEncoding = confMap.get(ConfKeys.REQUEST_BODY_CONTENT_ENCODING);
 
 	}
 
@@ -89,6 +96,12 @@ public class HttpClientRequestWithBodyBuilderImpl extends HttpClientRequestHeade
 	}
 
 
+	@Override
+	public HttpClientRequestWithBodyBuilder compressContent(String contentEncoding) {
+		this.requestBodyContentEncoding = contentEncoding;
+		return this;
+	}
+
 	@Override
 	public HttpClientRequestWithBodyBuilder addFormParameter(String name, String value) {
 		requireNonNull(name, "name");
@@ -168,10 +181,22 @@ public class HttpClientRequestWithBodyBuilderImpl extends HttpClientRequestHeade
 		}
 
 		return new BuiltNettyClientRequest<T>(httpClientCaller, httpVersion, httpMethod, uri, defaultUserAgent, idleTimeoutMillis, totalRequestTimeoutMillis, followRedirects,
-			acceptCompressedResponse, keepAlive, keepAliveTimeoutMillis, automaticallyDecompressResponse, immutableBodyBuilder, contentType, bodyCharset, queryParameters, headerParameters, callbackExecutor, responseBodyConsumer, null, ServerInfoValidator.HTTP);
+			acceptCompressedResponse, acceptEncoding, keepAlive, keepAliveTimeoutMillis, automaticallyDecompressResponse, immutableBodyBuilder, getRequestBodyContentCodec(), contentType, bodyCharset, queryParameters, headerParameters, callbackExecutor, responseBodyConsumer, null, ServerInfoValidator.HTTP);
 	}
 
 
+	private ContentCodec getRequestBodyContentCodec() {
+		if (requestBodyContentEncoding == null || requestBodyBuilder == null) {
+			return null;
+		}
+
+		ContentCodec contentCodec = ContentCodecs.find(contentCodecs, requestBodyContentEncoding);
+		if (contentCodec == null || !contentCodec.canEncode()) {
+			throw new IllegalArgumentException("Request bodies can't be compressed with " + requestBodyContentEncoding);
+		}
+		return contentCodec;
+	}
+
 	@Override
 	public BuiltClientRequestWithBody<String> build() {
 		return build(StringResponseBody::new);
@@ -69,7 +69,7 @@ public class HttpClientResponseHandler implements ResponseHandler {
 					return;
 				}
 
-				requestEventBus.triggerEvent(Event.TOUCH);
+				httpRequestContext.getLifecycleListener().onTouch();
 
 				logger.trace("read HttpResponse {}", msg);
 				HttpResponse response = (HttpResponse) msg;
@@ -80,6 +80,7 @@ public class HttpClientResponseHandler implements ResponseHandler {
 				nettyHttpClientResponse.setHttpResponseStatus(httpResponseStatus);
 				nettyHttpClientResponse.setHttpHeaders(httpHeaders);
 
+				httpRequestContext.getLifecycleListener().onReceivedHeaders(httpResponseStatus, httpHeaders);
 				requestEventBus.triggerEvent(Event.onReceivedStatus, httpResponseStatus);
 				requestEventBus.triggerEvent(Event.onReceivedHeaders, httpHeaders);
 
@@ -126,7 +127,7 @@ public class HttpClientResponseHandler implements ResponseHandler {
 			} else if (msg instanceof HttpContent) {
 				try {
 					logger.trace("read HttpContent");
-					requestEventBus.triggerEvent(Event.TOUCH);
+					httpRequestContext.getLifecycleListener().onTouch();
 
 
 					HttpResponseStatus httpResponseStatus = nettyHttpClientResponse.getHttpResponseStatus();
@@ -154,11 +155,12 @@ public class HttpClientResponseHandler implements ResponseHandler {
 						ByteBuffer byteBuffer = content.nioBuffer();
 
 						responseBodyConsumer.onReceivedContentPart(byteBuffer);
+						httpRequestContext.getLifecycleListener().onReceivedContentPart(readableBytes, content);
 						requestEventBus.triggerEvent(Event.onReceivedContentPart, readableBytes, content);
 						httpRequestContext.addReadBytes(readableBytes);
 					}
 
-					requestEventBus.triggerEvent(Event.TOUCH);
+					httpRequestContext.getLifecycleListener().onTouch();
 
 
 					if (chunk instanceof LastHttpContent) {
@@ -188,6 +190,7 @@ public class HttpClientResponseHandler implements ResponseHandler {
 
 		responseBodyConsumer.onCompletedBody();
 
+		httpRequestContext.getLifecycleListener().onReceivedCompleted(httpResponseStatus, httpHeaders);
 		requestEventBus.triggerEvent(Event.onReceivedCompleted, httpResponseStatus, httpHeaders);
 		httpRequestContext.getTimeRecorder().responseBodyCompleted();
 
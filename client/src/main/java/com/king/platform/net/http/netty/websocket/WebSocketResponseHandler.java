@@ -39,7 +39,7 @@ public class WebSocketResponseHandler implements ResponseHandler {
 
 		RequestEventBus requestEventBus = nettyHttpClientResponse.getRequestEventBus();
 
-		requestEventBus.triggerEvent(Event.TOUCH);
+		httpRequestContext.getLifecycleListener().onTouch();
 
 		if (msg instanceof LastHttpContent) {
 
@@ -0,0 +1,51 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HappyEyeballsConnectorTest {
+
+	@Test
+	public void addressFamiliesShouldBeInterleaved() throws Exception {
+		List<InetSocketAddress> addresses = addresses("::1", "::2", "::3", "10.0.0.1", "10.0.0.2");
+
+		List<InetSocketAddress> ordered = HappyEyeballsConnector.interleaveAddressFamilies(addresses);
+
+		assertEquals(addresses("::1", "10.0.0.1", "::2", "10.0.0.2", "::3"), ordered);
+	}
+
+	@Test
+	public void firstAddressFamilyShouldBeTriedFirst() throws Exception {
+		List<InetSocketAddress> addresses = addresses("10.0.0.1", "10.0.0.2", "::1");
+
+		List<InetSocketAddress> ordered = HappyEyeballsConnector.interleaveAddressFamilies(addresses);
+
+		assertEquals(addresses("10.0.0.1", "::1", "10.0.0.2"), ordered);
+	}
+
+	@Test
+	public void singleAddressFamilyShouldKeepTheOrder() throws Exception {
+		List<InetSocketAddress> addresses = addresses("10.0.0.3", "10.0.0.1", "10.0.0.2");
+
+		assertEquals(addresses, HappyEyeballsConnector.interleaveAddressFamilies(addresses));
+	}
+
+	private List<InetSocketAddress> addresses(String... hosts) throws Exception {
+		List<InetSocketAddress> addresses = new ArrayList<>();
+		for (String host : hosts) {
+			addresses.add(new InetSocketAddress(InetAddress.getByName(host), 80));
+		}
+		return addresses;
+	}
+}
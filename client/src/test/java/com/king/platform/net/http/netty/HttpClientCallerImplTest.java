@@ -0,0 +1,230 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.NioCallback;
+import com.king.platform.net.http.netty.backpressure.NoBackPressure;
+import com.king.platform.net.http.netty.eventbus.DefaultEventBus;
+import com.king.platform.net.http.netty.eventbus.Event;
+import com.king.platform.net.http.netty.eventbus.RequestEventBus;
+import com.king.platform.net.http.netty.metric.TimeStampRecorder;
+import com.king.platform.net.http.netty.request.NettyHttpClientRequest;
+import com.king.platform.net.http.netty.util.TimeProviderForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+public class HttpClientCallerImplTest {
+	private DefaultEventBus rootEventBus;
+	private TimeProviderForTesting timeProvider;
+	private NettyHttpClientRequest<Void> nettyHttpClientRequest;
+	private final AtomicReference<HttpRequestContext> executedRequest = new AtomicReference<>();
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		rootEventBus = new DefaultEventBus();
+		rootEventBus.subscribePermanently(Event.EXECUTE_REQUEST, executedRequest::set);
+
+		timeProvider = new TimeProviderForTesting();
+		timeProvider.setNow(5005);
+
+		nettyHttpClientRequest = mock(NettyHttpClientRequest.class);
+		when(nettyHttpClientRequest.getServerInfo()).thenReturn(ServerInfo.buildFromUri("http://localhost:8080/"));
+	}
+
+	@Test
+	public void completedRequestShouldRecycleItsTimeStampRecorder() throws Exception {
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, true);
+		CompletableFuture<HttpResponse<Void>> future = execute(httpClientCaller, null);
+
+		HttpRequestContext httpRequestContext = executedRequest.get();
+		TimeStampRecorder timeStampRecorder = httpRequestContext.getTimeRecorder();
+		assertEquals(1, httpClientCaller.getOutstandingRecyclableRequests());
+
+		complete(httpRequestContext);
+
+		assertTrue(future.isDone());
+		assertEquals(0, httpClientCaller.getOutstandingRecyclableRequests());
+		assertEquals(0, timeStampRecorder.getCreatedRequest());
+	}
+
+	@Test
+	public void timeStampRecorderShouldBeAvailableToInternalCompletionCallbacks() throws Exception {
+		AtomicLong createdRequest = new AtomicLong();
+		rootEventBus.subscribePermanently(Event.onInternalCompletion, payload -> createdRequest.set(payload.getTimeRecorder().getCreatedRequest()));
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, true);
+		execute(httpClientCaller, null);
+
+		complete(executedRequest.get());
+
+		assertEquals(5005, createdRequest.get());
+	}
+
+	@Test
+	public void completingTheFutureShouldNotRecycleRunningRequest() throws Exception {
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, true);
+		CompletableFuture<HttpResponse<Void>> future = execute(httpClientCaller, null);
+
+		HttpRequestContext httpRequestContext = executedRequest.get();
+		future.complete(null);
+		future.obtrudeValue(null);
+
+		assertEquals(1, httpClientCaller.getOutstandingRecyclableRequests());
+		assertEquals(5005, httpRequestContext.getTimeRecorder().getCreatedRequest());
+
+		complete(httpRequestContext);
+		assertEquals(0, httpClientCaller.getOutstandingRecyclableRequests());
+	}
+
+	@Test
+	public void responseBeforeCompletedWriteShouldReleaseWithoutRecycling() throws Exception {
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, true);
+		execute(httpClientCaller, null);
+
+		HttpRequestContext httpRequestContext = executedRequest.get();
+		httpRequestContext.setHttpResponse(mock(HttpResponse.class));
+		httpRequestContext.getRequestEventBus().triggerEvent(Event.onInternalCompletion, httpRequestContext);
+		httpRequestContext.getRequestEventBus().triggerEvent(Event.COMPLETED, httpRequestContext);
+
+		assertEquals(0, httpClientCaller.getOutstandingRecyclableRequests());
+		assertEquals(5005, httpRequestContext.getTimeRecorder().getCreatedRequest());
+	}
+
+	@Test
+	public void failedRequestShouldReleaseWithoutRecyclingItsObjects() throws Exception {
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, true);
+		CompletableFuture<HttpResponse<Void>> future = execute(httpClientCaller, null);
+
+		HttpRequestContext httpRequestContext = executedRequest.get();
+		httpRequestContext.getTimeRecorder().completedWriteLastBody();
+		httpRequestContext.getRequestEventBus().triggerEvent(Event.ERROR, httpRequestContext, new IOException("Failed"));
+		complete(httpRequestContext);
+
+		assertTrue(future.isCompletedExceptionally());
+		assertEquals(0, httpClientCaller.getOutstandingRecyclableRequests());
+		assertEquals(5005, httpRequestContext.getTimeRecorder().getCreatedRequest());
+	}
+
+	@Test
+	public void manyRequestsShouldNotLeakRecyclableObjects() throws Exception {
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, true);
+
+		for (int i = 0; i < 1000; i++) {
+			CompletableFuture<HttpResponse<Void>> future = execute(httpClientCaller, null);
+			HttpRequestContext httpRequestContext = executedRequest.get();
+			assertEquals(5005, httpRequestContext.getTimeRecorder().getCreatedRequest());
+			if (i % 2 == 0) {
+				complete(httpRequestContext);
+			} else {
+				httpRequestContext.getRequestEventBus().triggerEvent(Event.ERROR, httpRequestContext, new IOException("Failed"));
+			}
+			assertTrue(future.isDone());
+		}
+
+		assertEquals(0, httpClientCaller.getOutstandingRecyclableRequests());
+	}
+
+	@Test
+	public void requestObjectsShouldNotBeRecycledWhenDisabled() throws Exception {
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, false);
+		execute(httpClientCaller, null);
+
+		HttpRequestContext httpRequestContext = executedRequest.get();
+		complete(httpRequestContext);
+
+		assertEquals(0, httpClientCaller.getOutstandingRecyclableRequests());
+		assertEquals(5005, httpRequestContext.getTimeRecorder().getCreatedRequest());
+	}
+
+	@Test
+	public void webSocketRequestObjectsShouldNotBeRecycled() throws Exception {
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, true);
+		execute(httpClientCaller, mock(WebSocketConf.class));
+
+		HttpRequestContext httpRequestContext = executedRequest.get();
+		assertEquals(0, httpClientCaller.getOutstandingRecyclableRequests());
+
+		complete(httpRequestContext);
+		assertEquals(5005, httpRequestContext.getTimeRecorder().getCreatedRequest());
+	}
+
+	@Test
+	public void nioCallbackShouldReceiveHotEventsThroughTheLifecycleListener() throws Exception {
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, false);
+		NioCallback nioCallback = mock(NioCallback.class);
+		httpClientCaller.execute(HttpMethod.GET, nettyHttpClientRequest, null, nioCallback, null, null, Runnable::run, null, null,
+			0, 0, false, true, 0, false, null);
+
+		HttpRequestContext httpRequestContext = executedRequest.get();
+		RequestLifecycleListener lifecycleListener = httpRequestContext.getLifecycleListener();
+		ByteBuf content = Unpooled.wrappedBuffer(new byte[]{1, 2, 3});
+		DefaultHttpHeaders httpHeaders = new DefaultHttpHeaders();
+
+		lifecycleListener.onReceivedHeaders(HttpResponseStatus.OK, httpHeaders);
+		lifecycleListener.onReceivedContentPart(3, content);
+		lifecycleListener.onReceivedCompleted(HttpResponseStatus.OK, httpHeaders);
+
+		InOrder inOrder = inOrder(nioCallback);
+		inOrder.verify(nioCallback).onReceivedStatus(HttpResponseStatus.OK);
+		inOrder.verify(nioCallback).onReceivedHeaders(httpHeaders);
+		inOrder.verify(nioCallback).onReceivedContentPart(3, content);
+		inOrder.verify(nioCallback).onReceivedCompleted(HttpResponseStatus.OK, httpHeaders);
+	}
+
+	@Test
+	public void lifecycleListenersShouldBeCalledInOrderAndFollowRedirects() throws Exception {
+		HttpClientCallerImpl httpClientCaller = new HttpClientCallerImpl(rootEventBus, true, new NoBackPressure(), timeProvider, false);
+		execute(httpClientCaller, null);
+
+		HttpRequestContext httpRequestContext = executedRequest.get();
+		assertSame(RequestLifecycleListener.NOOP, httpRequestContext.getLifecycleListener());
+
+		RequestLifecycleListener first = mock(RequestLifecycleListener.class);
+		RequestLifecycleListener second = mock(RequestLifecycleListener.class);
+		httpRequestContext.addLifecycleListener(first);
+		assertSame(first, httpRequestContext.getLifecycleListener());
+		httpRequestContext.addLifecycleListener(second);
+
+		when(nettyHttpClientRequest.createRedirectRequest(any(), any())).thenReturn(nettyHttpClientRequest);
+		HttpRequestContext redirectRequestContext = httpRequestContext.createRedirectRequest(ServerInfo.buildFromUri("http://localhost:8080/"), "/redirected");
+		redirectRequestContext.getLifecycleListener().onTouch();
+
+		InOrder inOrder = inOrder(first, second);
+		inOrder.verify(first).onTouch();
+		inOrder.verify(second).onTouch();
+	}
+
+	private CompletableFuture<HttpResponse<Void>> execute(HttpClientCallerImpl httpClientCaller, WebSocketConf webSocketConf) {
+		return httpClientCaller.execute(HttpMethod.GET, nettyHttpClientRequest, null, null, null, null, Runnable::run, null, null,
+			0, 0, false, true, 0, false, webSocketConf);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void complete(HttpRequestContext httpRequestContext) {
+		httpRequestContext.getTimeRecorder().completedWriteLastBody();
+		httpRequestContext.setHttpResponse(mock(HttpResponse.class));
+		RequestEventBus requestEventBus = httpRequestContext.getRequestEventBus();
+		requestEventBus.triggerEvent(Event.onInternalCompletion, httpRequestContext);
+		requestEventBus.triggerEvent(Event.COMPLETED, httpRequestContext);
+	}
+}
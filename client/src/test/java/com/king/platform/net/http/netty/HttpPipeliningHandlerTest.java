@@ -0,0 +1,175 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import com.king.platform.net.http.netty.eventbus.Event;
+import com.king.platform.net.http.netty.eventbus.RequestEventBus;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class HttpPipeliningHandlerTest {
+	private EmbeddedChannel channel;
+	private Queue<HttpPipeliningHandler> openPipelines;
+	private HttpPipeliningHandler pipeliningHandler;
+	private HttpRequestContext firstRequest;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		channel = new EmbeddedChannel();
+		channel.pipeline().addLast("httpClientHandler", new ChannelInboundHandlerAdapter());
+		openPipelines = new ConcurrentLinkedQueue<>();
+		firstRequest = mockRequest();
+		channel.attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).set(firstRequest);
+
+		pipeliningHandler = new HttpPipeliningHandler(channel, firstRequest, openPipelines::remove, 3);
+		channel.pipeline().addBefore("httpClientHandler", HttpPipeliningHandler.NAME, pipeliningHandler);
+		openPipelines.add(pipeliningHandler);
+	}
+
+	@Test
+	public void nextRequestShouldBeCurrentWhenResponseHasBeenRead() throws Exception {
+		HttpRequestContext secondRequest = mockRequest();
+		assertTrue(pipeliningHandler.tryReserve(secondRequest));
+
+		channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+		assertSame(firstRequest, channel.attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).get());
+
+		channel.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT);
+		assertSame(secondRequest, channel.attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).get());
+	}
+
+	@Test
+	public void requestsShouldBeWrittenInTheOrderTheyWereReserved() throws Exception {
+		List<String> writes = new ArrayList<>();
+		HttpRequestContext secondRequest = mockRequest();
+		HttpRequestContext thirdRequest = mockRequest();
+		assertTrue(pipeliningHandler.tryReserve(secondRequest));
+		assertTrue(pipeliningHandler.tryReserve(thirdRequest));
+
+		pipeliningHandler.write(thirdRequest, () -> writes.add("third"));
+		channel.runPendingTasks();
+		assertTrue(writes.isEmpty());
+
+		pipeliningHandler.write(secondRequest, () -> writes.add("second"));
+		channel.runPendingTasks();
+		assertEquals(Arrays.asList("second", "third"), writes);
+	}
+
+	@Test
+	public void requestFailedByClosedChannelShouldNotBeWritten() throws Exception {
+		AtomicInteger writes = new AtomicInteger();
+		HttpRequestContext secondRequest = mockRequest();
+		assertTrue(pipeliningHandler.tryReserve(secondRequest));
+
+		channel.close();
+		pipeliningHandler.write(secondRequest, writes::incrementAndGet);
+		channel.runPendingTasks();
+
+		assertEquals(0, writes.get());
+	}
+
+	@Test
+	public void maxRequestsShouldBeRespected() throws Exception {
+		assertTrue(pipeliningHandler.tryReserve(mockRequest()));
+		assertTrue(pipeliningHandler.tryReserve(mockRequest()));
+		assertFalse(pipeliningHandler.tryReserve(mockRequest()));
+	}
+
+	@Test
+	public void requestWithOtherDecompressionShouldNotBePipelined() throws Exception {
+		HttpRequestContext request = mockRequest();
+		when(request.automaticallyDecompressResponse()).thenReturn(true);
+		assertFalse(pipeliningHandler.tryReserve(request));
+	}
+
+	@Test
+	public void channelShouldOnlyBeReleasedWhenAllRequestsHaveCompleted() throws Exception {
+		HttpRequestContext secondRequest = mockRequest();
+		pipeliningHandler.tryReserve(secondRequest);
+
+		assertFalse(pipeliningHandler.complete(firstRequest));
+		assertNotNull(channel.pipeline().get(HttpPipeliningHandler.NAME));
+
+		assertTrue(pipeliningHandler.complete(secondRequest));
+		assertNull(channel.pipeline().get(HttpPipeliningHandler.NAME));
+		assertTrue(openPipelines.isEmpty());
+		assertFalse(pipeliningHandler.tryReserve(mockRequest()));
+	}
+
+	@Test
+	public void closedChannelShouldFailWaitingRequests() throws Exception {
+		HttpRequestContext secondRequest = mockRequest();
+		pipeliningHandler.tryReserve(secondRequest);
+
+		channel.close();
+
+		verify(secondRequest.getRequestEventBus()).triggerEvent(eq(Event.ERROR), eq(secondRequest), any(ConnectionClosedException.class));
+		verify(firstRequest.getRequestEventBus(), never()).triggerEvent(eq(Event.ERROR), any(), any());
+		assertTrue(openPipelines.isEmpty());
+	}
+
+	@Test
+	public void responseClosingTheConnectionShouldStopPipelining() throws Exception {
+		pipeliningHandler.tryReserve(mockRequest());
+
+		DefaultHttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+		response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+		channel.writeInbound(response);
+
+		assertTrue(pipeliningHandler.isClosed());
+		assertTrue(openPipelines.isEmpty());
+		assertFalse(pipeliningHandler.tryReserve(mockRequest()));
+	}
+
+	@Test
+	public void closeListenerShouldBeCalledOnce() throws Exception {
+		AtomicInteger closes = new AtomicInteger();
+		EmbeddedChannel otherChannel = new EmbeddedChannel();
+		HttpPipeliningHandler handler = new HttpPipeliningHandler(otherChannel, firstRequest, closedPipeline -> closes.incrementAndGet(), 3);
+		otherChannel.pipeline().addLast(HttpPipeliningHandler.NAME, handler);
+
+		assertTrue(handler.complete(firstRequest));
+		otherChannel.close();
+
+		assertEquals(1, closes.get());
+	}
+
+	@Test
+	public void completedRequestsShouldBeCounted() throws Exception {
+		HttpRequestContext secondRequest = mockRequest();
+		pipeliningHandler.tryReserve(secondRequest);
+
+		pipeliningHandler.complete(firstRequest);
+		pipeliningHandler.complete(secondRequest);
+
+		assertEquals(2, pipeliningHandler.getCompletedRequests());
+	}
+
+	private HttpRequestContext mockRequest() {
+		HttpRequestContext httpRequestContext = mock(HttpRequestContext.class);
+		RequestEventBus requestEventBus = mock(RequestEventBus.class);
+		when(httpRequestContext.getRequestEventBus()).thenReturn(requestEventBus);
+		return httpRequestContext;
+	}
+}
@@ -0,0 +1,29 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import com.king.platform.net.http.netty.pool.NoChannelPool;
+import com.king.platform.net.http.netty.pool.ServerPoolConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NettyHttpClientBuilderTest {
+
+	@Test
+	public void serverPoolConfigShouldNotBeCombinedWithCustomChannelPool() throws Exception {
+		assertThrows(IllegalStateException.class, () -> new NettyHttpClientBuilder().setChannelPool(new NoChannelPool())
+			.setServerPoolConfig(new ServerPoolConfig()));
+		assertThrows(IllegalStateException.class, () -> new NettyHttpClientBuilder().setServerPoolConfig(new ServerPoolConfig())
+			.setChannelPool(new NoChannelPool()));
+	}
+
+	@Test
+	public void maxIdleConnectionsShouldNotBeCombinedWithCustomChannelPool() throws Exception {
+		assertThrows(IllegalStateException.class, () -> new NettyHttpClientBuilder().setChannelPool(new NoChannelPool()).setMaxIdleConnections(10));
+		assertThrows(IllegalStateException.class, () -> new NettyHttpClientBuilder().setMaxIdleConnections(10).setChannelPool(new NoChannelPool()));
+	}
+}
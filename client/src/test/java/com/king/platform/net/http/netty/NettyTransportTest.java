@@ -0,0 +1,80 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import com.king.platform.net.http.ConfKeys;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NettyTransportTest {
+
+	@Test
+	public void nioShouldBeUsedByDefault() throws Exception {
+		assertEquals(NettyTransport.NIO, NettyTransport.select(new ConfMap()));
+	}
+
+	@Test
+	public void ioUringShouldFallBackToEpollAndThenNio() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.USE_IO_URING, true);
+
+		NettyTransport expectedTransport = Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO;
+		if (NettyTransport.isIoUringAvailable()) {
+			expectedTransport = NettyTransport.IO_URING;
+		}
+		assertEquals(expectedTransport, NettyTransport.select(confMap));
+	}
+
+	@Test
+	public void epollShouldFallBackToNio() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.USE_EPOLL, true);
+
+		assertEquals(Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO, NettyTransport.select(confMap));
+	}
+
+	@Test
+	public void unixDomainSocketsShouldSelectEpoll() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.UNIX_DOMAIN_SOCKETS, Collections.singletonMap("sidecar", "/tmp/sidecar.sock"));
+
+		assertEquals(Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO, NettyTransport.select(confMap));
+	}
+
+	@Test
+	public void transportShouldMatchTheEventLoopGroup() throws Exception {
+		NettyTransport transport = Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO;
+		EventLoopGroup eventLoopGroup = transport.newEventLoopGroup(1, Executors.defaultThreadFactory());
+		try {
+			assertEquals(transport, NettyTransport.of(eventLoopGroup));
+			assertEquals(transport, NettyTransport.of(eventLoopGroup.next()));
+		} finally {
+			eventLoopGroup.shutdownGracefully();
+		}
+
+		NioEventLoopGroup nioEventLoopGroup = new NioEventLoopGroup(1);
+		try {
+			assertEquals(NettyTransport.NIO, NettyTransport.of(nioEventLoopGroup));
+		} finally {
+			nioEventLoopGroup.shutdownGracefully();
+		}
+	}
+
+	@Test
+	public void datagramChannelShouldMatchTheTransport() throws Exception {
+		assertEquals(NioDatagramChannel.class, NettyTransport.NIO.getDatagramChannelClass());
+		assertEquals(EpollDatagramChannel.class, NettyTransport.EPOLL.getDatagramChannelClass());
+	}
+}
@@ -0,0 +1,145 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import com.king.platform.net.http.netty.eventbus.Event;
+import com.king.platform.net.http.netty.eventbus.RequestEventBus;
+import com.king.platform.net.http.netty.util.TimeProviderForTesting;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+public class RequestTimeoutTest {
+	private TimeProviderForTesting timeProvider;
+	private EventExecutor executor;
+	private ScheduledFuture scheduledFuture;
+	private RequestEventBus requestEventBus;
+	private HttpRequestContext httpRequestContext;
+	private RequestTimeout requestTimeout;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		timeProvider = new TimeProviderForTesting();
+		executor = mock(EventExecutor.class);
+		scheduledFuture = mock(ScheduledFuture.class);
+		when(executor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenReturn(scheduledFuture);
+
+		requestEventBus = mock(RequestEventBus.class);
+		httpRequestContext = mock(HttpRequestContext.class);
+		when(httpRequestContext.getRequestEventBus()).thenReturn(requestEventBus);
+
+		requestTimeout = new RequestTimeout(executor, timeProvider);
+	}
+
+	@Test
+	public void shouldScheduleTheNearestDeadline() throws Exception {
+		requestTimeout.arm(httpRequestContext, 1000, 100);
+		verify(executor).schedule(requestTimeout, 100, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void shouldTimeoutAfterIdle() throws Exception {
+		requestTimeout.arm(httpRequestContext, 0, 100);
+		timeProvider.forwardMillis(200);
+
+		requestTimeout.run();
+
+		verify(requestEventBus).triggerEvent(eq(Event.ERROR), eq(httpRequestContext), any(TimeoutException.class));
+	}
+
+	@Test
+	public void shouldRescheduleIfTouched() throws Exception {
+		requestTimeout.arm(httpRequestContext, 0, 100);
+		timeProvider.forwardMillis(75);
+		requestTimeout.onTouch();
+		timeProvider.forwardMillis(75);
+
+		requestTimeout.run();
+
+		verify(requestEventBus, never()).triggerEvent(eq(Event.ERROR), any(HttpRequestContext.class), any(Throwable.class));
+		verify(executor).schedule(requestTimeout, 25, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void shouldTimeoutAfterTotalRequestTimeoutEvenIfTouched() throws Exception {
+		requestTimeout.arm(httpRequestContext, 150, 100);
+		timeProvider.forwardMillis(90);
+		requestTimeout.onTouch();
+		timeProvider.forwardMillis(10);
+
+		requestTimeout.run();
+		verify(executor).schedule(requestTimeout, 50, TimeUnit.MILLISECONDS);
+
+		timeProvider.forwardMillis(50);
+		requestTimeout.run();
+
+		ArgumentCaptor<Throwable> captor = ArgumentCaptor.forClass(Throwable.class);
+		verify(requestEventBus).triggerEvent(eq(Event.ERROR), eq(httpRequestContext), captor.capture());
+		assertEquals("Request timed out", captor.getValue().getMessage());
+	}
+
+	@Test
+	public void shouldNotTriggerTwice() throws Exception {
+		requestTimeout.arm(httpRequestContext, 100, 0);
+		timeProvider.forwardMillis(100);
+
+		requestTimeout.run();
+		requestTimeout.run();
+
+		verify(requestEventBus).triggerEvent(eq(Event.ERROR), eq(httpRequestContext), any(TimeoutException.class));
+	}
+
+	@Test
+	public void shouldNotTriggerIfCanceled() throws Exception {
+		requestTimeout.arm(httpRequestContext, 100, 50);
+		requestTimeout.cancel();
+		timeProvider.forwardMillis(200);
+
+		requestTimeout.run();
+
+		verify(scheduledFuture).cancel(false);
+		verify(requestEventBus, never()).triggerEvent(eq(Event.ERROR), any(HttpRequestContext.class), any(Throwable.class));
+	}
+
+	@Test
+	public void armingAgainShouldKeepTheTotalDeadlineAndReplaceTheRequest() throws Exception {
+		HttpRequestContext redirectRequestContext = mock(HttpRequestContext.class);
+		when(redirectRequestContext.getRequestEventBus()).thenReturn(requestEventBus);
+
+		requestTimeout.arm(httpRequestContext, 100, 0);
+		timeProvider.forwardMillis(80);
+		requestTimeout.cancel();
+		requestTimeout.arm(redirectRequestContext, 100, 0);
+		verify(executor).schedule(requestTimeout, 20, TimeUnit.MILLISECONDS);
+
+		timeProvider.forwardMillis(20);
+		requestTimeout.run();
+		verify(requestEventBus).triggerEvent(eq(Event.ERROR), eq(redirectRequestContext), any(TimeoutException.class));
+	}
+
+	@Test
+	public void armingAgainShouldRestartTheIdleTimeout() throws Exception {
+		requestTimeout.arm(httpRequestContext, 0, 100);
+		timeProvider.forwardMillis(80);
+		requestTimeout.cancel();
+		requestTimeout.arm(httpRequestContext, 0, 100);
+		timeProvider.forwardMillis(80);
+
+		requestTimeout.run();
+
+		verify(requestEventBus, never()).triggerEvent(eq(Event.ERROR), any(HttpRequestContext.class), any(Throwable.class));
+	}
+}
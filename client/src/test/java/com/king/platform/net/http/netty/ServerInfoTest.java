@@ -100,4 +100,13 @@ public class ServerInfoTest {
 		assertEquals(8443, serverInfo.getPort());
 		assertTrue(serverInfo.isSecure());
 	}
+
+	@Test
+	public void httpServerInfoOfWebSocketShouldKeepHostAndPort() throws Exception {
+		ServerInfo httpServerInfo = ServerInfo.buildFromUri("wss://someserver:8443/foo").getHttpServerInfo();
+		assertEquals(ServerInfo.buildFromUri("https://someserver:8443/bar"), httpServerInfo);
+		assertFalse(httpServerInfo.isWebSocket());
+
+		assertEquals(ServerInfo.buildFromUri("http://someserver/bar"), ServerInfo.buildFromUri("ws://someserver/foo").getHttpServerInfo());
+	}
 }
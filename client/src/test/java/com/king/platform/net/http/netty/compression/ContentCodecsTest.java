@@ -0,0 +1,219 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentCodecsTest {
+	private static final String BODY = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.";
+
+	@Test
+	public void customCodecShouldDecodeResponse() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new ContentCodecDecompressor(Collections.singletonList(new TestContentCodec())));
+
+		byte[] encoded = gzip(BODY.getBytes(StandardCharsets.UTF_8));
+		HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+		response.headers().set(HttpHeaderNames.CONTENT_ENCODING, "x-test");
+		channel.writeInbound(response);
+		channel.writeInbound(new DefaultHttpContent(Unpooled.wrappedBuffer(encoded, 0, 10)));
+		channel.writeInbound(new DefaultLastHttpContent(Unpooled.wrappedBuffer(encoded, 10, encoded.length - 10)));
+
+		HttpResponse decodedResponse = channel.readInbound();
+		assertFalse(decodedResponse.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+		assertEquals(BODY, readInboundContent(channel));
+	}
+
+	@Test
+	public void otherEncodingsShouldBeDecodedByNetty() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new ContentCodecDecompressor(Collections.singletonList(new TestContentCodec())));
+
+		HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+		response.headers().set(HttpHeaderNames.CONTENT_ENCODING, "gzip");
+		channel.writeInbound(response);
+		channel.writeInbound(new DefaultLastHttpContent(Unpooled.wrappedBuffer(gzip(BODY.getBytes(StandardCharsets.UTF_8)))));
+
+		channel.readInbound();
+		assertEquals(BODY, readInboundContent(channel));
+	}
+
+	@Test
+	public void encodedBodyLargerThanMaxShouldFail() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new InputStreamContentDecoder(GZIPInputStream::new, 10, 1024));
+
+		byte[] encoded = gzip(BODY.getBytes(StandardCharsets.UTF_8));
+		assertThrows(DecoderException.class, () -> channel.writeInbound(Unpooled.wrappedBuffer(encoded)));
+
+		channel.writeInbound(Unpooled.wrappedBuffer(encoded));
+		assertFalse(channel.finish());
+	}
+
+	@Test
+	public void decodedBodyLargerThanMaxShouldFail() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new InputStreamContentDecoder(GZIPInputStream::new, 1024, 10));
+
+		channel.writeInbound(Unpooled.wrappedBuffer(gzip(BODY.getBytes(StandardCharsets.UTF_8))));
+
+		assertThrows(DecoderException.class, channel::finish);
+		assertNull(channel.readInbound());
+	}
+
+	@Test
+	public void encoderShouldEncodeBodyBytes() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new ContentEncoder(ContentCodecs.GZIP));
+
+		byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+		HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/");
+		channel.writeOutbound(request);
+		channel.writeOutbound(Unpooled.wrappedBuffer(body, 0, 50));
+		channel.writeOutbound(Unpooled.wrappedBuffer(body, 50, body.length - 50));
+		channel.writeOutbound(new DefaultLastHttpContent());
+
+		assertSame(request, channel.readOutbound());
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		Object msg;
+		while ((msg = channel.readOutbound()) != null) {
+			ByteBuf content = msg instanceof HttpContent ? ((HttpContent) msg).content() : (ByteBuf) msg;
+			content.readBytes(encoded, content.readableBytes());
+			content.release();
+			if (msg instanceof LastHttpContent) {
+				break;
+			}
+		}
+
+		assertArrayEquals(body, gunzip(encoded.toByteArray()));
+	}
+
+	@Test
+	public void encoderShouldKeepHttpContentAsHttpContent() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel(new ContentEncoder(ContentCodecs.GZIP));
+
+		channel.writeOutbound(new DefaultHttpContent(Unpooled.copiedBuffer(BODY, StandardCharsets.UTF_8)));
+		channel.writeOutbound(new DefaultLastHttpContent());
+
+		Object msg;
+		while ((msg = channel.readOutbound()) != null) {
+			assertTrue(msg instanceof HttpContent);
+			((HttpContent) msg).release();
+		}
+	}
+
+	@Test
+	public void acceptEncodingShouldListCodecsThatCanDecode() throws Exception {
+		TestContentCodec encodeOnly = new TestContentCodec() {
+			@Override
+			public String getEncoding() {
+				return "x-encode-only";
+			}
+
+			@Override
+			public boolean canDecode() {
+				return false;
+			}
+		};
+
+		assertEquals("gzip,deflate,x-test", ContentCodecs.acceptEncoding(Arrays.asList(new TestContentCodec(), encodeOnly, ContentCodecs.GZIP)));
+	}
+
+	@Test
+	public void findShouldFallBackToGzip() throws Exception {
+		TestContentCodec testContentCodec = new TestContentCodec();
+
+		assertSame(testContentCodec, ContentCodecs.find(Collections.singletonList(testContentCodec), "X-Test"));
+		assertSame(ContentCodecs.GZIP, ContentCodecs.find(Collections.emptyList(), "gzip"));
+		assertNull(ContentCodecs.find(Collections.emptyList(), "x-test"));
+	}
+
+	private static String readInboundContent(EmbeddedChannel channel) {
+		StringBuilder content = new StringBuilder();
+		Object msg;
+		while ((msg = channel.readInbound()) != null) {
+			HttpContent httpContent = (HttpContent) msg;
+			content.append(httpContent.content().toString(StandardCharsets.UTF_8));
+			httpContent.release();
+		}
+		return content.toString();
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+			gzipOutputStream.write(data);
+		}
+		return outputStream.toByteArray();
+	}
+
+	private static byte[] gunzip(byte[] data) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+			byte[] buffer = new byte[1024];
+			int len;
+			while ((len = inputStream.read(buffer)) > 0) {
+				outputStream.write(buffer, 0, len);
+			}
+		}
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Stream based codec that is gzip under another name, so it isn't decoded by netty
+	 */
+	private static class TestContentCodec implements ContentCodec {
+		@Override
+		public String getEncoding() {
+			return "x-test";
+		}
+
+		@Override
+		public boolean canDecode() {
+			return true;
+		}
+
+		@Override
+		public ChannelHandler newDecoder() {
+			return new InputStreamContentDecoder(GZIPInputStream::new);
+		}
+
+		@Override
+		public boolean canEncode() {
+			return true;
+		}
+
+		@Override
+		public OutputStream newEncoder(OutputStream outputStream) throws IOException {
+			return new GZIPOutputStream(outputStream);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+import com.king.platform.net.http.netty.util.TimeProviderForTesting;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.ResolvedAddressTypes;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.resolver.dns.SingletonDnsServerAddressStreamProvider;
+import io.netty.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingDnsAddressResolverGroupTest {
+	private TestDnsServer dnsServer;
+	private EventLoopGroup eventLoopGroup;
+	private TimeProviderForTesting timeProvider;
+	private CachingDnsAddressResolverGroup resolverGroup;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		dnsServer = new TestDnsServer();
+		dnsServer.start();
+		dnsServer.addHost("myhost.test", "10.0.0.1");
+
+		eventLoopGroup = new NioEventLoopGroup(1);
+		timeProvider = new TimeProviderForTesting();
+	}
+
+	private void createResolverGroup(double prefetchRemainingTtlRatio) {
+		DnsNameResolverBuilder dnsNameResolverBuilder = new DnsNameResolverBuilder()
+			.channelType(NioDatagramChannel.class)
+			.nameServerProvider(new SingletonDnsServerAddressStreamProvider(dnsServer.getAddress()))
+			.resolvedAddressTypes(ResolvedAddressTypes.IPV4_ONLY)
+			.searchDomains(Collections.emptyList())
+			.optResourceEnabled(false);
+
+		resolverGroup = new CachingDnsAddressResolverGroup(dnsNameResolverBuilder, 0, Integer.MAX_VALUE, 5, prefetchRemainingTtlRatio, timeProvider);
+	}
+
+	@Test
+	public void secondLookupShouldBeAnsweredFromTheCache() throws Exception {
+		createResolverGroup(0);
+
+		assertEquals("10.0.0.1", resolve("myhost.test"));
+		assertEquals("10.0.0.1", resolve("myhost.test"));
+
+		assertEquals(1, dnsServer.getQueryCount());
+		DnsCacheStats stats = resolverGroup.getStats();
+		assertEquals(1, stats.getHits());
+		assertEquals(1, stats.getMisses());
+		assertEquals(1, stats.getCachedHosts());
+	}
+
+	@Test
+	public void expiredRecordsShouldBeQueriedAgain() throws Exception {
+		createResolverGroup(0);
+		dnsServer.setTtl(1);
+
+		resolve("myhost.test");
+		Thread.sleep(1500);
+		resolve("myhost.test");
+
+		assertEquals(2, dnsServer.getQueryCount());
+		assertEquals(2, resolverGroup.getStats().getMisses());
+	}
+
+	@Test
+	public void failedLookupShouldBeCached() throws Exception {
+		createResolverGroup(0);
+
+		assertThrows(ExecutionException.class, () -> resolve("unknown.test"));
+		int queryCount = dnsServer.getQueryCount();
+		assertThrows(ExecutionException.class, () -> resolve("unknown.test"));
+
+		assertEquals(queryCount, dnsServer.getQueryCount());
+		assertEquals(1, resolverGroup.getStats().getNegativeHits());
+	}
+
+	@Test
+	public void hostLookedUpCloseToExpiryShouldBeRefreshed() throws Exception {
+		createResolverGroup(0.5);
+		dnsServer.setTtl(10);
+
+		resolve("myhost.test");
+		timeProvider.forwardMillis(6000);
+		dnsServer.addHost("myhost.test", "10.0.0.2");
+
+		assertEquals("10.0.0.1", resolve("myhost.test"));
+		waitForQueryCount(2);
+
+		assertEquals("10.0.0.2", resolve("myhost.test"));
+		assertEquals(2, dnsServer.getQueryCount());
+		assertEquals(1, resolverGroup.getStats().getPrefetches());
+		assertEquals(1, resolverGroup.getStats().getMisses());
+	}
+
+	@Test
+	public void hostLookedUpEarlyShouldNotBeRefreshed() throws Exception {
+		createResolverGroup(0.5);
+		dnsServer.setTtl(10);
+
+		resolve("myhost.test");
+		timeProvider.forwardMillis(4000);
+		resolve("myhost.test");
+
+		assertEquals(1, dnsServer.getQueryCount());
+		assertEquals(0, resolverGroup.getStats().getPrefetches());
+	}
+
+	@Test
+	public void builderWithoutChannelTypeShouldUseTheTransportOfTheEventLoop() throws Exception {
+		eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+		eventLoopGroup = Epoll.isAvailable() ? new EpollEventLoopGroup(1) : new NioEventLoopGroup(1);
+
+		DnsNameResolverBuilder dnsNameResolverBuilder = new DnsNameResolverBuilder()
+			.nameServerProvider(new SingletonDnsServerAddressStreamProvider(dnsServer.getAddress()))
+			.resolvedAddressTypes(ResolvedAddressTypes.IPV4_ONLY)
+			.searchDomains(Collections.emptyList())
+			.optResourceEnabled(false);
+		resolverGroup = new CachingDnsAddressResolverGroup(dnsNameResolverBuilder, 0, Integer.MAX_VALUE, 5, 0, timeProvider);
+
+		assertEquals("10.0.0.1", resolve("myhost.test"));
+	}
+
+	private String resolve(String hostname) throws Exception {
+		AddressResolver<InetSocketAddress> resolver = resolverGroup.getResolver(eventLoopGroup.next());
+		Future<List<InetSocketAddress>> future = resolver.resolveAll(InetSocketAddress.createUnresolved(hostname, 80));
+		return future.get(5, TimeUnit.SECONDS).get(0).getAddress().getHostAddress();
+	}
+
+	private void waitForQueryCount(int queryCount) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (dnsServer.getQueryCount() < queryCount && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(100);  //let the refreshed records be cached
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (resolverGroup != null) {
+			resolverGroup.close();
+		}
+		eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+		dnsServer.shutdown();
+	}
+}
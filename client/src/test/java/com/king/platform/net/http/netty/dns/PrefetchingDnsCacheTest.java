@@ -0,0 +1,61 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+import com.king.platform.net.http.netty.util.TimeProviderForTesting;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.handler.codec.dns.DnsRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PrefetchingDnsCacheTest {
+	private static final DnsRecord[] NO_ADDITIONALS = new DnsRecord[0];
+
+	private EventLoopGroup eventLoopGroup;
+	private PrefetchingDnsCache dnsCache;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		eventLoopGroup = new NioEventLoopGroup(1);
+		dnsCache = new PrefetchingDnsCache(0, Integer.MAX_VALUE, 5, 0.1, new TimeProviderForTesting());
+	}
+
+	@Test
+	public void expiredHostsShouldBeForgotten() throws Exception {
+		dnsCache.cache("myhost.test", NO_ADDITIONALS, InetAddress.getByName("10.0.0.1"), 1, eventLoopGroup.next());
+		dnsCache.cache("otherhost.test", NO_ADDITIONALS, InetAddress.getByName("10.0.0.2"), 60, eventLoopGroup.next());
+		assertEquals(2, dnsCache.getTrackedHostCount());
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (dnsCache.getTrackedHostCount() > 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertEquals(1, dnsCache.getTrackedHostCount());
+	}
+
+	@Test
+	public void recachedHostShouldNotBeForgottenByTheEarlierExpiry() throws Exception {
+		dnsCache.cache("myhost.test", NO_ADDITIONALS, InetAddress.getByName("10.0.0.1"), 1, eventLoopGroup.next());
+		dnsCache.cache("myhost.test", NO_ADDITIONALS, InetAddress.getByName("10.0.0.1"), 60, eventLoopGroup.next());
+
+		Thread.sleep(1500);
+
+		assertEquals(1, dnsCache.getTrackedHostCount());
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+	}
+}
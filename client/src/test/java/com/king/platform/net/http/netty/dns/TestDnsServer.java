@@ -0,0 +1,104 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.codec.dns.DatagramDnsQuery;
+import io.netty.handler.codec.dns.DatagramDnsQueryDecoder;
+import io.netty.handler.codec.dns.DatagramDnsResponse;
+import io.netty.handler.codec.dns.DatagramDnsResponseEncoder;
+import io.netty.handler.codec.dns.DefaultDnsQuestion;
+import io.netty.handler.codec.dns.DefaultDnsRawRecord;
+import io.netty.handler.codec.dns.DnsQuestion;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.DnsResponseCode;
+import io.netty.handler.codec.dns.DnsSection;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in dns server answering A queries for the configured hosts, and NXDOMAIN for all other hosts.
+ */
+class TestDnsServer {
+	private final ConcurrentHashMap<String, InetAddress> hosts = new ConcurrentHashMap<>();
+	private final AtomicInteger queryCount = new AtomicInteger();
+	private volatile int ttl = 60;
+	private EventLoopGroup eventLoopGroup;
+	private Channel channel;
+
+	void start() throws Exception {
+		eventLoopGroup = new NioEventLoopGroup(1);
+		channel = new Bootstrap()
+			.group(eventLoopGroup)
+			.channel(NioDatagramChannel.class)
+			.handler(new ChannelInitializer<Channel>() {
+				@Override
+				protected void initChannel(Channel ch) {
+					ch.pipeline().addLast(new DatagramDnsQueryDecoder());
+					ch.pipeline().addLast(new DatagramDnsResponseEncoder());
+					ch.pipeline().addLast(new QueryHandler());
+				}
+			})
+			.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+			.sync()
+			.channel();
+	}
+
+	InetSocketAddress getAddress() {
+		return (InetSocketAddress) channel.localAddress();
+	}
+
+	void addHost(String hostname, String address) throws Exception {
+		hosts.put(hostname, InetAddress.getByName(address));
+	}
+
+	void setTtl(int ttl) {
+		this.ttl = ttl;
+	}
+
+	int getQueryCount() {
+		return queryCount.get();
+	}
+
+	void shutdown() throws Exception {
+		channel.close().sync();
+		eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+	}
+
+	private class QueryHandler extends SimpleChannelInboundHandler<DatagramDnsQuery> {
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, DatagramDnsQuery query) {
+			queryCount.incrementAndGet();
+
+			DnsQuestion question = query.recordAt(DnsSection.QUESTION);
+			String hostname = question.name().endsWith(".") ? question.name().substring(0, question.name().length() - 1) : question.name();
+			InetAddress address = hosts.get(hostname);
+
+			DatagramDnsResponse response = new DatagramDnsResponse(query.recipient(), query.sender(), query.id());
+			response.addRecord(DnsSection.QUESTION, new DefaultDnsQuestion(question.name(), question.type()));
+
+			if (address == null) {
+				response.setCode(DnsResponseCode.NXDOMAIN);
+			} else if (question.type() == DnsRecordType.A) {
+				response.addRecord(DnsSection.ANSWER, new DefaultDnsRawRecord(question.name(), DnsRecordType.A, ttl, Unpooled.wrappedBuffer(address.getAddress())));
+			}
+
+			ctx.writeAndFlush(response);
+		}
+	}
+}
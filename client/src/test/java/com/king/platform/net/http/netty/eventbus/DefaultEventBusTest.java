@@ -3,7 +3,18 @@ package com.king.platform.net.http.netty.eventbus;
 import com.king.platform.net.http.netty.HttpRequestContext;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class DefaultEventBusTest {
@@ -23,8 +34,120 @@ public class DefaultEventBusTest {
 		requestEventBus1.subscribePermanently(Event.COMPLETED, new COMPLETEDREQUEST());
 
 
-		assertEquals(1, rootEventBus.getPersistentEvent1Callbacks().get(Event.COMPLETED).size());
+		assertEquals(1, rootEventBus.getPersistentCallbacks(Event.COMPLETED).length);
+
+	}
+
+	@Test
+	public void requestBussesShouldShareSnapshotUntilRootSubscriptionsChange() throws Exception {
+		DefaultEventBus rootEventBus = new DefaultEventBus();
+		rootEventBus.subscribePermanently(Event.COMPLETED, new COMPLETED());
+
+		DefaultEventBus requestEventBus1 = (DefaultEventBus) rootEventBus.createRequestEventBus();
+		DefaultEventBus requestEventBus2 = (DefaultEventBus) rootEventBus.createRequestEventBus();
+		requestEventBus1.subscribePermanently(Event.COMPLETED, new COMPLETEDREQUEST());
+
+		assertSame(requestEventBus1.getInheritedCallbacks(), requestEventBus2.getInheritedCallbacks());
+
+		rootEventBus.subscribePermanently(Event.ERROR, new ERROR());
+		DefaultEventBus requestEventBus3 = (DefaultEventBus) rootEventBus.createRequestEventBus();
+
+		assertNotSame(requestEventBus1.getInheritedCallbacks(), requestEventBus3.getInheritedCallbacks());
+		assertEquals(1, rootEventBus.getPersistentCallbacks(Event.COMPLETED).length);
+		assertEquals(0, requestEventBus2.getPersistentCallbacks(Event.COMPLETED).length);
+	}
+
+	@Test
+	public void requestBusShouldTriggerCallbacksOfRootAtCreationAndItsOwn() throws Exception {
+		List<String> triggered = new ArrayList<>();
+		DefaultEventBus rootEventBus = new DefaultEventBus();
+		rootEventBus.subscribePermanently(Event.onConnected, payload -> triggered.add("root"));
+
+		RequestEventBus requestEventBus = rootEventBus.createRequestEventBus();
+		requestEventBus.subscribePermanently(Event.onConnected, payload -> triggered.add("request"));
+		rootEventBus.subscribePermanently(Event.onConnected, payload -> triggered.add("late root"));
+
+		RequestEventBus childEventBus = requestEventBus.createRequestEventBus();
+		childEventBus.subscribe(Event.onConnected, payload -> triggered.add("child"));
+
+		requestEventBus.triggerEvent(Event.onConnected);
+		assertEquals(Arrays.asList("root", "request"), triggered);
+
+		triggered.clear();
+		childEventBus.triggerEvent(Event.onConnected);
+		assertEquals(Arrays.asList("root", "request", "child"), triggered);
+	}
+
+	@Test
+	public void eventOrdinalsShouldBeDenseAndUnique() throws Exception {
+		Set<Integer> ordinals = new HashSet<>();
+		for (Field field : Event.class.getFields()) {
+			Event event = (Event) field.get(null);
+			assertTrue(ordinals.add(event.getOrdinal()), "Duplicate ordinal for " + event);
+		}
+
+		for (int ordinal = 0; ordinal < ordinals.size(); ordinal++) {
+			assertTrue(ordinals.contains(ordinal), "Missing ordinal " + ordinal);
+		}
+	}
+
+	@Test
+	public void permanentCallbacksShouldBeTriggeredBeforeRequestCallbacks() throws Exception {
+		List<String> triggered = new ArrayList<>();
+		DefaultEventBus rootEventBus = new DefaultEventBus();
+		rootEventBus.subscribePermanently(Event.onReceivedContentPart, (length, content) -> triggered.add("root:" + length));
+
+		RequestEventBus requestEventBus = rootEventBus.createRequestEventBus();
+		requestEventBus.subscribe(Event.onReceivedContentPart, (length, content) -> triggered.add("request1:" + length));
+		requestEventBus.subscribe(Event.onReceivedContentPart, (length, content) -> triggered.add("request2:" + length));
+		requestEventBus.subscribe(Event.onConnected, payload -> triggered.add("connected"));
+
+		requestEventBus.triggerEvent(Event.onReceivedContentPart, 5, null);
+
+		assertEquals(Arrays.asList("root:5", "request1:5", "request2:5"), triggered);
+	}
+
+	@Test
+	public void subscribingFromCallbackShouldNotAffectOngoingTrigger() throws Exception {
+		List<String> triggered = new ArrayList<>();
+		DefaultEventBus eventBus = new DefaultEventBus();
+		eventBus.subscribe(Event.onConnected, payload -> {
+			triggered.add("first");
+			eventBus.subscribe(Event.onConnected, innerPayload -> triggered.add("added"));
+		});
+
+		eventBus.triggerEvent(Event.onConnected);
+		assertEquals(Arrays.asList("first"), triggered);
+
+		eventBus.triggerEvent(Event.onConnected);
+		assertEquals(Arrays.asList("first", "first", "added"), triggered);
+	}
+
+	@Test
+	public void subscribingShouldNotModifyPublishedTable() throws Exception {
+		DefaultEventBus eventBus = new DefaultEventBus();
+		eventBus.subscribe(Event.onConnected, payload -> {
+		});
+		EventBusCallback[][] publishedTable = eventBus.getCallbackTable();
+		EventBusCallback[][] publishedCopy = publishedTable.clone();
+
+		eventBus.subscribe(Event.onConnected, payload -> {
+		});
+		eventBus.subscribe(Event.onConnecting, payload -> {
+		});
+
+		assertNotSame(publishedTable, eventBus.getCallbackTable());
+		assertArrayEquals(publishedCopy, publishedTable);
+		assertEquals(2, eventBus.getCallbacks(Event.onConnected).length);
+	}
+
+	@Test
+	public void triggeringEventWithoutSubscribersShouldDoNothing() throws Exception {
+		DefaultEventBus eventBus = new DefaultEventBus();
+		eventBus.triggerEvent(Event.onConnected);
+		eventBus.triggerEvent(Event.ERROR, null, null);
 
+		assertEquals(0, eventBus.getCallbacks(Event.onConnected).length);
 	}
 
 	private static class ERROR implements EventBusCallback2<HttpRequestContext, Throwable> {
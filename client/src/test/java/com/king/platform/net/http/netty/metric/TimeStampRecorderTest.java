@@ -117,4 +117,29 @@ public class TimeStampRecorderTest {
 	}
 
 
+
+	@Test
+	public void recycleShouldClearPooledRecorder() throws Exception {
+		TimeStampRecorder pooledRecorder = TimeStampRecorder.newInstance(timeProvider);
+		pooledRecorder.recordCreatedRequest();
+		pooledRecorder.startWriteHeaders();
+		pooledRecorder.responseBodyCompleted();
+		pooledRecorder.recycle();
+
+		assertEquals(0, pooledRecorder.getCreatedRequest());
+		assertEquals(0, pooledRecorder.getStartWriteHeaders());
+		assertEquals(0, pooledRecorder.getResponseBodyCompleted());
+
+		TimeStampRecorder reusedRecorder = TimeStampRecorder.newInstance(timeProvider);
+		assertEquals(0, reusedRecorder.getCreatedRequest());
+		reusedRecorder.recordCreatedRequest();
+		assertEquals(5005, reusedRecorder.getCreatedRequest());
+	}
+
+	@Test
+	public void recycleShouldNotClearRecorderThatIsNotPooled() throws Exception {
+		timeStampRecorder.recordCreatedRequest();
+		timeStampRecorder.recycle();
+		assertEquals(5005, timeStampRecorder.getCreatedRequest());
+	}
 }
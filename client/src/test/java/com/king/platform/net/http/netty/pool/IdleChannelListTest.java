@@ -0,0 +1,160 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+import io.netty.channel.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class IdleChannelListTest {
+	private IdleChannelList idleChannelList;
+	private int idGenerator;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		idleChannelList = new IdleChannelList();
+	}
+
+	@Test
+	public void pollFirstShouldReturnTheLastAddedChannel() throws Exception {
+		PooledChannel first = createPooledChannel(0, 1000);
+		PooledChannel second = createPooledChannel(10, 1000);
+		idleChannelList.add(first);
+		idleChannelList.add(second);
+
+		assertEquals(2, idleChannelList.size());
+		assertSame(second, idleChannelList.pollFirst());
+		assertSame(first, idleChannelList.pollFirst());
+		assertNull(idleChannelList.pollFirst());
+		assertTrue(idleChannelList.isEmpty());
+	}
+
+	@Test
+	public void removeShouldUnlinkChannelInTheMiddle() throws Exception {
+		PooledChannel first = createPooledChannel(0, 1000);
+		PooledChannel middle = createPooledChannel(10, 1000);
+		PooledChannel last = createPooledChannel(20, 1000);
+		idleChannelList.add(first);
+		idleChannelList.add(middle);
+		idleChannelList.add(last);
+
+		assertTrue(idleChannelList.remove(middle));
+		assertFalse(idleChannelList.remove(middle));
+
+		assertEquals(2, idleChannelList.size());
+		assertSame(last, idleChannelList.pollFirst());
+		assertSame(first, idleChannelList.pollFirst());
+	}
+
+	@Test
+	public void addingAnIdleChannelAgainShouldMoveItFirst() throws Exception {
+		PooledChannel first = createPooledChannel(0, 1000);
+		PooledChannel second = createPooledChannel(10, 1000);
+		idleChannelList.add(first);
+		idleChannelList.add(second);
+		first.lastUsedTimeStamp = 20;
+		idleChannelList.add(first);
+
+		assertEquals(2, idleChannelList.size());
+		assertSame(first, idleChannelList.pollFirst());
+		assertSame(second, idleChannelList.pollFirst());
+	}
+
+	@Test
+	public void channelPutBackWithAnOlderTimeStampShouldKeepTheListOrdered() throws Exception {
+		PooledChannel oldest = createPooledChannel(0, 1000);
+		PooledChannel newest = createPooledChannel(500, 1000);
+		PooledChannel polled = createPooledChannel(100, 1000);
+		idleChannelList.add(oldest);
+		idleChannelList.add(newest);
+		idleChannelList.add(polled);
+
+		List<PooledChannel> expiredChannels = idleChannelList.removeExpired(1100);
+
+		assertEquals(2, expiredChannels.size());
+		assertSame(oldest, expiredChannels.get(0));
+		assertSame(polled, expiredChannels.get(1));
+		assertSame(newest, idleChannelList.pollFirst());
+	}
+
+	@Test
+	public void removingTheShortestTTLChannelShouldNotAffectLaterSweeps() throws Exception {
+		PooledChannel longLived = createPooledChannel(0, 5000);
+		PooledChannel shortLived = createPooledChannel(100, 10);
+		idleChannelList.add(longLived);
+		idleChannelList.add(shortLived);
+
+		assertSame(shortLived, idleChannelList.pollFirst());
+		assertTrue(idleChannelList.removeExpired(1100).isEmpty());
+		assertEquals(1, idleChannelList.removeExpired(5000).size());
+		assertTrue(idleChannelList.isEmpty());
+	}
+
+	@Test
+	public void channelShouldOnlyBeLinkedIntoOneList() throws Exception {
+		PooledChannel pooledChannel = createPooledChannel(0, 1000);
+		IdleChannelList otherList = new IdleChannelList();
+		idleChannelList.add(pooledChannel);
+		otherList.add(pooledChannel);
+
+		assertEquals(1, idleChannelList.size());
+		assertEquals(0, otherList.size());
+		assertFalse(otherList.remove(pooledChannel));
+	}
+
+	@Test
+	public void removeExpiredShouldOnlyRemoveExpiredChannels() throws Exception {
+		PooledChannel oldest = createPooledChannel(0, 1000);
+		PooledChannel older = createPooledChannel(100, 1000);
+		PooledChannel newest = createPooledChannel(500, 1000);
+		idleChannelList.add(oldest);
+		idleChannelList.add(older);
+		idleChannelList.add(newest);
+
+		List<PooledChannel> expiredChannels = idleChannelList.removeExpired(1100);
+
+		assertEquals(2, expiredChannels.size());
+		assertTrue(expiredChannels.contains(oldest));
+		assertTrue(expiredChannels.contains(older));
+		assertEquals(1, idleChannelList.size());
+		assertSame(newest, idleChannelList.pollFirst());
+	}
+
+	@Test
+	public void removeExpiredShouldHandleChannelsWithLongerTTL() throws Exception {
+		PooledChannel longLived = createPooledChannel(0, 5000);
+		PooledChannel shortLived = createPooledChannel(100, 1000);
+		idleChannelList.add(longLived);
+		idleChannelList.add(shortLived);
+
+		List<PooledChannel> expiredChannels = idleChannelList.removeExpired(1100);
+
+		assertEquals(1, expiredChannels.size());
+		assertSame(shortLived, expiredChannels.get(0));
+		assertSame(longLived, idleChannelList.pollFirst());
+	}
+
+	@Test
+	public void removeAllShouldEmptyTheList() throws Exception {
+		idleChannelList.add(createPooledChannel(0, 1000));
+		idleChannelList.add(createPooledChannel(0, 1000));
+
+		assertEquals(2, idleChannelList.removeAll().size());
+		assertTrue(idleChannelList.isEmpty());
+		assertNull(idleChannelList.pollFirst());
+	}
+
+	private PooledChannel createPooledChannel(long lastUsedTimeStamp, int maxTTL) {
+		PooledChannel pooledChannel = new PooledChannel(null, ++idGenerator, lastUsedTimeStamp, mock(Channel.class), maxTTL);
+		pooledChannel.lastUsedTimeStamp = lastUsedTimeStamp;
+		return pooledChannel;
+	}
+}
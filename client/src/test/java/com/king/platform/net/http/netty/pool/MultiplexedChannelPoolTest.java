@@ -0,0 +1,129 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+import com.king.platform.net.http.netty.ServerInfo;
+import com.king.platform.net.http.netty.util.TimeProviderForTesting;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MultiplexedChannelPoolTest {
+	private MultiplexedChannelPool multiplexedChannelPool;
+	private ChannelConnector channelConnector;
+	private Promise<Channel> connectPromise;
+	private ServerInfo serverInfo;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		serverInfo = ServerInfo.buildFromUri("https://somehost:8443");
+		channelConnector = mock(ChannelConnector.class);
+		connectPromise = ImmediateEventExecutor.INSTANCE.newPromise();
+		when(channelConnector.connectMultiplexed(serverInfo)).thenReturn(connectPromise);
+
+		multiplexedChannelPool = new MultiplexedChannelPool(mock(Timer.class), new TimeProviderForTesting(), 2, channelConnector);
+	}
+
+	@Test
+	public void requestsShouldWaitForTheConnectionBeingOpened() throws Exception {
+		CompletableFuture<Channel> first = multiplexedChannelPool.acquire(serverInfo);
+		CompletableFuture<Channel> second = multiplexedChannelPool.acquire(serverInfo);
+
+		assertFalse(first.isDone());
+		assertFalse(second.isDone());
+
+		EmbeddedChannel channel = new EmbeddedChannel();
+		connectPromise.setSuccess(channel);
+
+		assertSame(channel, first.get());
+		assertSame(channel, second.get());
+		assertEquals(1, multiplexedChannelPool.getConnectionCount(serverInfo));
+		verify(channelConnector, times(1)).connectMultiplexed(serverInfo);
+	}
+
+	@Test
+	public void fullConnectionShouldOpenANewConnection() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		connectPromise.setSuccess(channel);
+		multiplexedChannelPool.acquire(serverInfo);
+		multiplexedChannelPool.acquire(serverInfo);
+
+		Promise<Channel> secondConnectPromise = ImmediateEventExecutor.INSTANCE.newPromise();
+		when(channelConnector.connectMultiplexed(serverInfo)).thenReturn(secondConnectPromise);
+		CompletableFuture<Channel> third = multiplexedChannelPool.acquire(serverInfo);
+		assertFalse(third.isDone());
+
+		multiplexedChannelPool.release(serverInfo, channel);
+		assertSame(channel, multiplexedChannelPool.acquire(serverInfo).get());
+	}
+
+	@Test
+	public void serverMaxConcurrentStreamsShouldBeRespected() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		channel.attr(MultiplexedChannelPool.MAX_CONCURRENT_STREAMS).set(1);
+		connectPromise.setSuccess(channel);
+		multiplexedChannelPool.acquire(serverInfo);
+
+		when(channelConnector.connectMultiplexed(serverInfo)).thenReturn(ImmediateEventExecutor.INSTANCE.newPromise());
+		assertFalse(multiplexedChannelPool.acquire(serverInfo).isDone());
+	}
+
+	@Test
+	public void goingAwayConnectionShouldNotBeUsed() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		connectPromise.setSuccess(channel);
+		multiplexedChannelPool.acquire(serverInfo);
+		channel.attr(MultiplexedChannelPool.GOING_AWAY).set(true);
+
+		when(channelConnector.connectMultiplexed(serverInfo)).thenReturn(ImmediateEventExecutor.INSTANCE.newPromise());
+		assertFalse(multiplexedChannelPool.acquire(serverInfo).isDone());
+	}
+
+	@Test
+	public void closedConnectionShouldBeRemoved() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		connectPromise.setSuccess(channel);
+		multiplexedChannelPool.acquire(serverInfo);
+
+		channel.close();
+
+		assertEquals(0, multiplexedChannelPool.getConnectionCount(serverInfo));
+	}
+
+	@Test
+	public void serverNotAgreeingToMultiplexShouldUseHttp1() throws Exception {
+		CompletableFuture<Channel> future = multiplexedChannelPool.acquire(serverInfo);
+		connectPromise.setSuccess(null);
+
+		assertNull(future.get());
+		assertFalse(multiplexedChannelPool.isMultiplexed(serverInfo));
+		assertEquals(0, multiplexedChannelPool.getConnectionCount(serverInfo));
+	}
+
+	@Test
+	public void failedConnectShouldFailAllWaitingRequests() throws Exception {
+		CompletableFuture<Channel> first = multiplexedChannelPool.acquire(serverInfo);
+		CompletableFuture<Channel> second = multiplexedChannelPool.acquire(serverInfo);
+		connectPromise.setFailure(new IOException("Connection refused"));
+
+		assertTrue(first.isCompletedExceptionally());
+		assertTrue(second.isCompletedExceptionally());
+		assertTrue(multiplexedChannelPool.isMultiplexed(serverInfo));
+	}
+}
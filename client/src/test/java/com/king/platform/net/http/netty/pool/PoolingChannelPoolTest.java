@@ -9,6 +9,8 @@ import com.king.platform.net.http.netty.ServerInfo;
 import com.king.platform.net.http.netty.metric.MetricCallback;
 import com.king.platform.net.http.netty.util.TimeProviderForTesting;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.util.DefaultAttributeMap;
 import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import io.netty.util.TimerTask;
@@ -22,7 +24,10 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PoolingChannelPoolTest {
@@ -61,6 +66,9 @@ public class PoolingChannelPoolTest {
 		Channel channel = mock(Channel.class);
 		when(channel.isActive()).thenReturn(true);
 		when(channel.isOpen()).thenReturn(true);
+		when(channel.pipeline()).thenReturn(mock(ChannelPipeline.class));
+		DefaultAttributeMap attributes = new DefaultAttributeMap();
+		when(channel.attr(any())).thenAnswer(invocation -> attributes.attr(invocation.getArgument(0)));
 		return channel;
 	}
 
@@ -191,6 +199,60 @@ public class PoolingChannelPoolTest {
 
 	}
 
+	@Test
+	public void maxIdleConnectionsShouldEvictTheLeastRecentlyUsedChannelOfAnyServer() throws Exception {
+		ServerInfo server1 = ServerInfo.buildFromUri("http://host1:8081/");
+		ServerInfo server2 = ServerInfo.buildFromUri("http://host2:8081/");
+		ServerInfo server3 = ServerInfo.buildFromUri("http://host3:8081/");
+		Channel channel1 = getActiveChannelMock();
+		Channel channel2 = getActiveChannelMock();
+		Channel channel3 = getActiveChannelMock();
+		poolingChannelPool.setMaxIdleConnections(2);
+
+		poolingChannelPool.offer(server1, channel1, keepAliveTimeoutMillis);
+		poolingChannelPool.offer(server2, channel2, keepAliveTimeoutMillis);
+		poolingChannelPool.offer(server3, channel3, keepAliveTimeoutMillis);
+
+		assertEquals(0, poolingChannelPool.getPoolSize(server1));
+		assertEquals(1, poolingChannelPool.getPoolSize(server2));
+		assertEquals(1, poolingChannelPool.getPoolSize(server3));
+		verify(channel1).close();
+		verify(channel2, never()).close();
+	}
+
+	@Test
+	public void reusedChannelShouldBeTheMostRecentlyUsedWhenOfferedAgain() throws Exception {
+		ServerInfo server1 = ServerInfo.buildFromUri("http://host1:8081/");
+		ServerInfo server2 = ServerInfo.buildFromUri("http://host2:8081/");
+		Channel channel1 = getActiveChannelMock();
+		Channel channel2 = getActiveChannelMock();
+		Channel channel3 = getActiveChannelMock();
+		poolingChannelPool.setMaxIdleConnections(2);
+
+		poolingChannelPool.offer(server1, channel1, keepAliveTimeoutMillis);
+		poolingChannelPool.offer(server2, channel2, keepAliveTimeoutMillis);
+		assertSame(channel1, poolingChannelPool.get(server1));
+		poolingChannelPool.offer(server1, channel1, keepAliveTimeoutMillis);
+
+		poolingChannelPool.offer(server2, channel3, keepAliveTimeoutMillis);
+
+		assertEquals(1, poolingChannelPool.getPoolSize(server1));
+		assertSame(channel3, poolingChannelPool.get(server2));
+		assertNull(poolingChannelPool.get(server2));
+		verify(channel2).close();
+	}
+
+	@Test
+	public void statsShouldBeReturnedPerServer() throws Exception {
+		assertNull(poolingChannelPool.getStats(serverInfo));
+
+		poolingChannelPool.offer(serverInfo, getActiveChannelMock(), keepAliveTimeoutMillis);
+		poolingChannelPool.offer(serverInfo, getActiveChannelMock(), keepAliveTimeoutMillis);
+
+		assertEquals(2, poolingChannelPool.getStats(serverInfo).getIdleConnections());
+		assertEquals(2, poolingChannelPool.getStats().get(serverInfo).getIdleConnections());
+	}
+
 	@Test
 	public void discard() throws Exception {
 
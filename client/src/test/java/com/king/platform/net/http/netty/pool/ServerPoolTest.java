@@ -7,14 +7,37 @@ package com.king.platform.net.http.netty.pool;
 
 import com.king.platform.net.http.netty.ServerInfo;
 import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.metric.RetirementReason;
 import com.king.platform.net.http.netty.util.TimeProviderForTesting;
+import com.king.platform.net.http.KingHttpException;
+import com.king.platform.net.http.netty.TimeoutException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.DefaultAttributeMap;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -55,10 +78,25 @@ public class ServerPoolTest {
 		serverPool.discard(validChannel);
 
 		assertEquals(0, serverPool.getChannelSize());
-		assertEquals(1, serverPool.getPoolSize()); //the channel should still be in the pool since its not removed from the queue
+		assertEquals(0, serverPool.getPoolSize());
 		verify(validChannel).close();
 	}
 
+	@Test
+	public void detachingAChannelShouldRemoveItWithoutClosingIt() throws Exception {
+		Channel validChannel = createStateFullChannel();
+		serverPool.offer(validChannel, keepAliveTimeoutMillis);
+		assertSame(validChannel, serverPool.poll());
+		serverPool.detach(validChannel);
+
+		assertEquals(0, serverPool.getChannelSize());
+		assertEquals(0, serverPool.getPoolSize());
+		verify(validChannel, never()).close();
+
+		serverPool.offer(createStateFullChannel(), keepAliveTimeoutMillis);
+		assertNotSame(validChannel, serverPool.poll());
+	}
+
 	@Test
 	public void cleanShouldRemoveDiscardedConnections() throws Exception {
 		Channel validChannel = createStateFullChannel();
@@ -152,6 +190,545 @@ public class ServerPoolTest {
 		assertNull(channel);
 	}
 
+	@Test
+	public void acquireShouldReturnPooledChannel() throws Exception {
+		Channel channel = createStateFullChannel();
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+
+		RecordingAcquireCallback callback = new RecordingAcquireCallback();
+		serverPool.acquire(callback);
+
+		assertSame(channel, callback.channel);
+		assertEquals(0, serverPool.getConnectionCount());
+	}
+
+	@Test
+	public void acquireShouldAllowNewConnectionsUpToMax() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(2), mock(Timer.class), timeProvider,
+			mock(MetricCallback.class));
+
+		RecordingAcquireCallback callback1 = new RecordingAcquireCallback();
+		RecordingAcquireCallback callback2 = new RecordingAcquireCallback();
+		RecordingAcquireCallback callback3 = new RecordingAcquireCallback();
+		serverPool.acquire(callback1);
+		serverPool.acquire(callback2);
+		serverPool.acquire(callback3);
+
+		assertTrue(callback1.newConnection);
+		assertTrue(callback2.newConnection);
+		assertFalse(callback3.newConnection);
+		assertEquals(2, serverPool.getConnectionCount());
+		assertEquals(1, serverPool.getPendingAcquireCount());
+	}
+
+	@Test
+	public void offeredChannelShouldBeHandedToPendingAcquire() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(1), mock(Timer.class), timeProvider,
+			mock(MetricCallback.class));
+
+		serverPool.acquire(new RecordingAcquireCallback());
+		RecordingAcquireCallback pending = new RecordingAcquireCallback();
+		serverPool.acquire(pending);
+		assertNull(pending.channel);
+
+		Channel channel = createStateFullChannel();
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+
+		assertSame(channel, pending.channel);
+		assertEquals(0, serverPool.getPoolSize());
+		assertEquals(0, serverPool.getPendingAcquireCount());
+	}
+
+	@Test
+	public void pendingAcquiresShouldBeServedInOrder() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(1), mock(Timer.class), timeProvider,
+			mock(MetricCallback.class));
+
+		serverPool.acquire(new RecordingAcquireCallback());
+		RecordingAcquireCallback pending1 = new RecordingAcquireCallback();
+		RecordingAcquireCallback pending2 = new RecordingAcquireCallback();
+		serverPool.acquire(pending1);
+		serverPool.acquire(pending2);
+
+		serverPool.releaseConnection();
+		assertTrue(pending1.newConnection);
+		assertFalse(pending2.newConnection);
+
+		serverPool.releaseConnection();
+		assertTrue(pending2.newConnection);
+		assertEquals(1, serverPool.getConnectionCount());
+	}
+
+	@Test
+	public void pendingAcquiresThatAreDoneShouldBeSkipped() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(1), mock(Timer.class), timeProvider,
+			mock(MetricCallback.class));
+
+		serverPool.acquire(new RecordingAcquireCallback());
+		RecordingAcquireCallback pending1 = new RecordingAcquireCallback();
+		RecordingAcquireCallback pending2 = new RecordingAcquireCallback();
+		serverPool.acquire(pending1);
+		serverPool.acquire(pending2);
+		pending1.done = true;
+
+		serverPool.releaseConnection();
+		assertFalse(pending1.newConnection);
+		assertTrue(pending2.newConnection);
+	}
+
+	@Test
+	public void acquireShouldFailWhenTooManyArePending() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(1).setMaxPendingAcquires(1), mock
+			(Timer.class), timeProvider, mock(MetricCallback.class));
+
+		serverPool.acquire(new RecordingAcquireCallback());
+		serverPool.acquire(new RecordingAcquireCallback());
+		RecordingAcquireCallback rejected = new RecordingAcquireCallback();
+		serverPool.acquire(rejected);
+
+		assertTrue(rejected.failure instanceof KingHttpException);
+		assertEquals(1, serverPool.getPendingAcquireCount());
+	}
+
+	@Test
+	public void pendingAcquireShouldTimeout() throws Exception {
+		Timer timer = mock(Timer.class);
+		MetricCallback metricCallback = mock(MetricCallback.class);
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(1).setMaxPendingWaitMillis(500),
+			timer, timeProvider, metricCallback);
+
+		serverPool.acquire(new RecordingAcquireCallback());
+		RecordingAcquireCallback pending = new RecordingAcquireCallback();
+		serverPool.acquire(pending);
+
+		ArgumentCaptor<TimerTask> taskCaptor = ArgumentCaptor.forClass(TimerTask.class);
+		verify(timer).newTimeout(taskCaptor.capture(), eq(500L), eq(TimeUnit.MILLISECONDS));
+
+		timeProvider.forwardMillis(500);
+		taskCaptor.getValue().run(mock(Timeout.class));
+
+		assertTrue(pending.failure instanceof TimeoutException);
+		assertEquals(0, serverPool.getPendingAcquireCount());
+		verify(metricCallback).onServerPoolAcquireWaitTime("localhost", 500);
+
+		serverPool.releaseConnection();
+		assertFalse(pending.newConnection);
+	}
+
+	@Test
+	public void poolWithOpenConnectionsShouldNotBeRemoved() throws Exception {
+		serverPool.acquire(new RecordingAcquireCallback());
+		timeProvider.forwardSeconds(20);
+		assertFalse(serverPool.shouldRemovePool());
+
+		serverPool.releaseConnection();
+		assertTrue(serverPool.shouldRemovePool());
+	}
+
+	@Test
+	public void prewarmShouldPoolConnectedChannels() throws Exception {
+		ChannelConnector channelConnector = mock(ChannelConnector.class);
+		when(channelConnector.getKeepAliveTimeoutMillis()).thenReturn(keepAliveTimeoutMillis);
+		when(channelConnector.connect(any(), any())).thenAnswer(invocation -> ImmediateEventExecutor.INSTANCE.newSucceededFuture(createStateFullChannel()));
+
+		CompletableFuture<Integer> future = serverPool.prewarm(3, channelConnector);
+
+		assertEquals(3, (int) future.get());
+		assertEquals(3, serverPool.getPoolSize());
+		assertEquals(3, serverPool.getConnectionCount());
+	}
+
+	@Test
+	public void prewarmShouldNotOpenMoreThanMaxConnections() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(2), mock(Timer.class), timeProvider,
+			mock(MetricCallback.class));
+		ChannelConnector channelConnector = mock(ChannelConnector.class);
+		when(channelConnector.getKeepAliveTimeoutMillis()).thenReturn(keepAliveTimeoutMillis);
+		when(channelConnector.connect(any(), any())).thenAnswer(invocation -> ImmediateEventExecutor.INSTANCE.newSucceededFuture(createStateFullChannel()));
+
+		CompletableFuture<Integer> future = serverPool.prewarm(3, channelConnector);
+
+		assertEquals(2, (int) future.get());
+		assertEquals(2, serverPool.getPoolSize());
+		verify(channelConnector, times(2)).connect(any(), any());
+	}
+
+	@Test
+	public void adoptedConnectionShouldBeCountedAndPooled() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(1), mock(Timer.class), timeProvider,
+			mock(MetricCallback.class));
+		Channel channel = createStateFullChannel();
+
+		serverPool.adopt(channel, keepAliveTimeoutMillis);
+
+		assertEquals(1, serverPool.getConnectionCount());
+		assertEquals(1, serverPool.getPoolSize());
+		verify(channel.closeFuture()).addListener(any());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void detachedConnectionShouldNoLongerBeCounted() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(1), mock(Timer.class), timeProvider,
+			mock(MetricCallback.class));
+		Channel channel = createStateFullChannel();
+		serverPool.adopt(channel, keepAliveTimeoutMillis);
+		assertSame(channel, serverPool.poll());
+
+		serverPool.detach(channel);
+		assertEquals(0, serverPool.getConnectionCount());
+
+		ArgumentCaptor<GenericFutureListener> captor = ArgumentCaptor.forClass(GenericFutureListener.class);
+		verify(channel.closeFuture()).addListener(captor.capture());
+		captor.getValue().operationComplete(channel.closeFuture());
+		assertEquals(0, serverPool.getConnectionCount());
+	}
+
+	@Test
+	public void adoptedConnectionOverMaxConnectionsShouldBeClosed() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnections(1), mock(Timer.class), timeProvider,
+			mock(MetricCallback.class));
+		serverPool.acquire(new RecordingAcquireCallback());
+		Channel channel = createStateFullChannel();
+
+		serverPool.adopt(channel, keepAliveTimeoutMillis);
+
+		verify(channel).close();
+		assertEquals(1, serverPool.getConnectionCount());
+		assertEquals(0, serverPool.getPoolSize());
+	}
+
+	@Test
+	public void failedPrewarmShouldReleaseTheConnection() throws Exception {
+		ChannelConnector channelConnector = mock(ChannelConnector.class);
+		when(channelConnector.connect(any(), any())).thenAnswer(invocation -> ImmediateEventExecutor.INSTANCE.newFailedFuture(new IOException("Connection refused")));
+
+		CompletableFuture<Integer> future = serverPool.prewarm(2, channelConnector);
+
+		assertEquals(0, (int) future.get());
+		assertEquals(0, serverPool.getPoolSize());
+		assertEquals(0, serverPool.getConnectionCount());
+	}
+
+	@Test
+	public void refillShouldOpenMissingIdleConnections() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMinIdleConnections(2), mock(Timer.class),
+			timeProvider, mock(MetricCallback.class));
+		ChannelConnector channelConnector = mock(ChannelConnector.class);
+		when(channelConnector.getKeepAliveTimeoutMillis()).thenReturn(keepAliveTimeoutMillis);
+		when(channelConnector.connect(any(), any())).thenAnswer(invocation -> ImmediateEventExecutor.INSTANCE.newSucceededFuture(createStateFullChannel()));
+
+		serverPool.offer(createStateFullChannel(), keepAliveTimeoutMillis);
+		serverPool.refillIdleConnections(channelConnector);
+
+		assertEquals(2, serverPool.getPoolSize());
+		verify(channelConnector, times(1)).connect(any(), any());
+
+		serverPool.refillIdleConnections(channelConnector);
+		verify(channelConnector, times(1)).connect(any(), any());
+		assertFalse(serverPool.shouldRemovePool());
+	}
+
+	@Test
+	public void acquireWithEventLoopAffinityShouldPreferChannelOfTheAssignedEventLoop() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setEventLoopAffinity(true), mock(Timer.class),
+			timeProvider, mock(MetricCallback.class));
+		EventLoop eventLoop1 = mock(EventLoop.class);
+		EventLoop eventLoop2 = mock(EventLoop.class);
+		Channel channel1 = createStateFullChannel(eventLoop1);
+		Channel channel2 = createStateFullChannel(eventLoop2);
+
+		serverPool.offer(channel1, keepAliveTimeoutMillis);
+		serverPool.offer(channel2, keepAliveTimeoutMillis);
+		assertEquals(2, serverPool.getPoolSize());
+
+		RecordingAcquireCallback callback = new RecordingAcquireCallback();
+		callback.eventLoop = eventLoop1;
+		serverPool.acquire(callback);
+
+		assertSame(channel1, callback.channel);
+		assertEquals(1, serverPool.getPoolSize());
+	}
+
+	@Test
+	public void acquireWithEventLoopAffinityShouldStealFromOtherEventLoopsWhenEmpty() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setEventLoopAffinity(true), mock(Timer.class),
+			timeProvider, mock(MetricCallback.class));
+		Channel channel = createStateFullChannel(mock(EventLoop.class));
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+
+		RecordingAcquireCallback callback = new RecordingAcquireCallback();
+		callback.eventLoop = mock(EventLoop.class);
+		serverPool.acquire(callback);
+
+		assertSame(channel, callback.channel);
+		assertEquals(0, serverPool.getPoolSize());
+	}
+
+	@Test
+	public void cleanExpiredConnectionsWithEventLoopAffinityShouldCleanAllEventLoops() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setEventLoopAffinity(true), mock(Timer.class),
+			timeProvider, mock(MetricCallback.class));
+		Channel channel1 = createStateFullChannel(mock(EventLoop.class));
+		Channel channel2 = createStateFullChannel(mock(EventLoop.class));
+		serverPool.offer(channel1, keepAliveTimeoutMillis);
+		serverPool.offer(channel2, keepAliveTimeoutMillis);
+
+		timeProvider.forwardMillis(keepAliveTimeoutMillis);
+		serverPool.cleanExpiredConnections();
+
+		assertEquals(0, serverPool.getPoolSize());
+		assertEquals(0, serverPool.getChannelSize());
+	}
+	@Test
+	public void closedIdleChannelShouldBeEvictedDirectly() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		assertEquals(1, serverPool.getPoolSize());
+
+		channel.close();
+
+		assertEquals(0, serverPool.getPoolSize());
+		assertEquals(0, serverPool.getChannelSize());
+		assertNull(serverPool.poll());
+	}
+
+	@Test
+	public void dataOnIdleChannelShouldEvictAndCloseIt() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+
+		channel.writeInbound(Unpooled.copiedBuffer("HTTP/1.1 408 Request Timeout\r\n", StandardCharsets.US_ASCII));
+
+		assertFalse(channel.isOpen());
+		assertEquals(0, serverPool.getPoolSize());
+		assertEquals(0, serverPool.getChannelSize());
+		assertNull(channel.readInbound());
+	}
+
+	@Test
+	public void dataOnChannelInUseShouldBePassedOn() throws Exception {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		assertSame(channel, serverPool.poll());
+
+		channel.writeInbound(Unpooled.copiedBuffer("HTTP/1.1 200 OK\r\n", StandardCharsets.US_ASCII));
+
+		assertTrue(channel.isOpen());
+		assertEquals(1, serverPool.getChannelSize());
+		ByteBuf byteBuf = channel.readInbound();
+		assertNotNull(byteBuf);
+		byteBuf.release();
+	}
+
+	@Test
+	public void offerShouldRetireConnectionAfterMaxRequests() throws Exception {
+		MetricCallback metricCallback = mock(MetricCallback.class);
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxRequestsPerConnection(2), mock(Timer.class),
+			timeProvider, metricCallback);
+		Channel channel = createStateFullChannel();
+
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		assertSame(channel, serverPool.poll());
+
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+
+		assertEquals(0, serverPool.getPoolSize());
+		assertEquals(0, serverPool.getChannelSize());
+		verify(channel).close();
+		verify(metricCallback).onServerPoolRetiredConnection("localhost", RetirementReason.MAX_REQUESTS);
+	}
+
+	@Test
+	public void pipelinedRequestsShouldCountTowardsMaxRequests() throws Exception {
+		MetricCallback metricCallback = mock(MetricCallback.class);
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxRequestsPerConnection(3), mock(Timer.class),
+			timeProvider, metricCallback);
+		Channel channel = createStateFullChannel();
+
+		serverPool.offer(channel, keepAliveTimeoutMillis, 2);
+		assertSame(channel, serverPool.poll());
+
+		serverPool.offer(channel, keepAliveTimeoutMillis, 1);
+
+		assertEquals(0, serverPool.getPoolSize());
+		verify(channel).close();
+		verify(metricCallback).onServerPoolRetiredConnection("localhost", RetirementReason.MAX_REQUESTS);
+	}
+
+	@Test
+	public void offerShouldRetireConnectionAfterMaxLifetime() throws Exception {
+		MetricCallback metricCallback = mock(MetricCallback.class);
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnectionLifetimeMillis(60_000),
+			mock(Timer.class), timeProvider, metricCallback);
+		Channel channel = createStateFullChannel();
+
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		assertSame(channel, serverPool.poll());
+		timeProvider.forwardSeconds(30);
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		assertSame(channel, serverPool.poll());
+
+		timeProvider.forwardSeconds(30);
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+
+		assertNull(serverPool.poll());
+		assertEquals(0, serverPool.getChannelSize());
+		verify(metricCallback).onServerPoolRetiredConnection("localhost", RetirementReason.MAX_LIFETIME);
+	}
+
+	@Test
+	public void maxLifetimeShouldBeMeasuredFromWhenTheConnectionWasRegistered() throws Exception {
+		MetricCallback metricCallback = mock(MetricCallback.class);
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxConnectionLifetimeMillis(60_000),
+			mock(Timer.class), timeProvider, metricCallback);
+		Channel channel = createStateFullChannel();
+
+		serverPool.registerConnection(channel);
+		timeProvider.forwardSeconds(50);
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		assertSame(channel, serverPool.poll());
+
+		timeProvider.forwardSeconds(10);
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+
+		assertNull(serverPool.poll());
+		verify(metricCallback).onServerPoolRetiredConnection("localhost", RetirementReason.MAX_LIFETIME);
+	}
+
+	@Test
+	public void prewarmedConnectionShouldNotCountAsARequest() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setMaxRequestsPerConnection(1), mock(Timer.class),
+			timeProvider, mock(MetricCallback.class));
+		ChannelConnector channelConnector = mock(ChannelConnector.class);
+		when(channelConnector.getKeepAliveTimeoutMillis()).thenReturn(keepAliveTimeoutMillis);
+		when(channelConnector.connect(any(), any())).thenAnswer(invocation -> ImmediateEventExecutor.INSTANCE.newSucceededFuture(createStateFullChannel()));
+
+		serverPool.prewarm(1, channelConnector).get();
+		Channel channel = serverPool.poll();
+		assertNotNull(channel);
+
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		assertEquals(0, serverPool.getPoolSize());
+	}
+
+	@Test
+	public void newConnectionsShouldBeSpreadOverResolvedAddresses() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setSpreadOverResolvedAddresses(true), mock(Timer.class),
+			timeProvider, mock(MetricCallback.class));
+		InetSocketAddress address1 = new InetSocketAddress(InetAddress.getByAddress(new byte[]{10, 0, 0, 1}), 80);
+		InetSocketAddress address2 = new InetSocketAddress(InetAddress.getByAddress(new byte[]{10, 0, 0, 2}), 80);
+		serverPool.updateResolvedAddresses(Arrays.asList(address1, address2));
+
+		RecordingAcquireCallback callback1 = new RecordingAcquireCallback();
+		serverPool.acquire(callback1);
+		assertNotNull(callback1.remoteAddress);
+		serverPool.registerConnection(createStateFullChannel(callback1.remoteAddress));
+
+		RecordingAcquireCallback callback2 = new RecordingAcquireCallback();
+		serverPool.acquire(callback2);
+		assertNotNull(callback2.remoteAddress);
+		assertNotEquals(callback1.remoteAddress, callback2.remoteAddress);
+		serverPool.registerConnection(createStateFullChannel(callback2.remoteAddress));
+
+		assertEquals(1, serverPool.getAddressConnectionCount(address1));
+		assertEquals(1, serverPool.getAddressConnectionCount(address2));
+	}
+
+	@Test
+	public void idleConnectionToAddressRemovedFromDnsShouldBeRetired() throws Exception {
+		MetricCallback metricCallback = mock(MetricCallback.class);
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setSpreadOverResolvedAddresses(true), mock(Timer.class),
+			timeProvider, metricCallback);
+		InetSocketAddress address1 = new InetSocketAddress(InetAddress.getByAddress(new byte[]{10, 0, 0, 1}), 80);
+		InetSocketAddress address2 = new InetSocketAddress(InetAddress.getByAddress(new byte[]{10, 0, 0, 2}), 80);
+		serverPool.updateResolvedAddresses(Arrays.asList(address1, address2));
+
+		Channel channel1 = createStateFullChannel(address1);
+		Channel channel2 = createStateFullChannel(address2);
+		serverPool.offer(channel1, keepAliveTimeoutMillis);
+		serverPool.offer(channel2, keepAliveTimeoutMillis);
+
+		serverPool.updateResolvedAddresses(Collections.singletonList(address2));
+
+		assertEquals(1, serverPool.getPoolSize());
+		verify(channel1).close();
+		verify(metricCallback).onServerPoolRetiredConnection("localhost", RetirementReason.ADDRESS_REMOVED);
+		assertSame(channel2, serverPool.poll());
+	}
+
+	@Test
+	public void connectionInUseToAddressRemovedFromDnsShouldBeRetiredWhenOffered() throws Exception {
+		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), new ServerPoolConfig().setSpreadOverResolvedAddresses(true), mock(Timer.class),
+			timeProvider, mock(MetricCallback.class));
+		InetSocketAddress address1 = new InetSocketAddress(InetAddress.getByAddress(new byte[]{10, 0, 0, 1}), 80);
+		InetSocketAddress address2 = new InetSocketAddress(InetAddress.getByAddress(new byte[]{10, 0, 0, 2}), 80);
+		serverPool.updateResolvedAddresses(Arrays.asList(address1, address2));
+
+		Channel channel = createStateFullChannel(address1);
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		assertSame(channel, serverPool.poll());
+
+		serverPool.updateResolvedAddresses(Collections.singletonList(address2));
+		verify(channel, never()).close();
+
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		assertEquals(0, serverPool.getPoolSize());
+		verify(channel).close();
+	}
+
+	@Test
+	public void statsShouldDescribeThePool() throws Exception {
+		RecordingAcquireCallback callback = new RecordingAcquireCallback();
+		serverPool.acquire(callback);
+		assertTrue(callback.newConnection);
+
+		EmbeddedChannel channel = new EmbeddedChannel();
+		serverPool.registerConnection(channel);
+
+		ChannelPoolStats stats = serverPool.getStats();
+		assertEquals(0, stats.getIdleConnections());
+		assertEquals(1, stats.getInUseConnections());
+		assertEquals(1, stats.getCreatedConnections());
+
+		serverPool.offer(channel, keepAliveTimeoutMillis);
+		timeProvider.forwardMillis(500);
+
+		stats = serverPool.getStats();
+		assertEquals(1, stats.getIdleConnections());
+		assertEquals(0, stats.getInUseConnections());
+		assertEquals(500, stats.getAverageIdleAgeMillis());
+
+		serverPool.acquire(new RecordingAcquireCallback());
+		stats = serverPool.getStats();
+		assertEquals(0, stats.getIdleConnections());
+		assertEquals(0.5, stats.getReuseRatio(), 0.001);
+
+		channel.close();
+		serverPool.rollStatsInterval();
+
+		stats = serverPool.getStats();
+		assertEquals(1, stats.getClosedConnections());
+		assertEquals(1, stats.getCreatedConnectionsLastInterval());
+		assertEquals(1, stats.getClosedConnectionsLastInterval());
+
+		serverPool.rollStatsInterval();
+		stats = serverPool.getStats();
+		assertEquals(0, stats.getCreatedConnectionsLastInterval());
+		assertEquals(0, stats.getClosedConnectionsLastInterval());
+	}
+
+	private Channel createStateFullChannel(InetSocketAddress remoteAddress) {
+		Channel channel = createStateFullChannel();
+		when(channel.remoteAddress()).thenReturn(remoteAddress);
+		return channel;
+	}
+
+	private Channel createStateFullChannel(EventLoop eventLoop) {
+		Channel channel = createStateFullChannel();
+		when(channel.eventLoop()).thenReturn(eventLoop);
+		return channel;
+	}
 
 	private Channel createStateFullChannel() {
 		final AtomicBoolean state = new AtomicBoolean(true);
@@ -167,6 +744,10 @@ public class ServerPoolTest {
 		};
 		when(channel.isActive()).thenAnswer(answer);
 		when(channel.isOpen()).thenAnswer(answer);
+		when(channel.closeFuture()).thenReturn(mock(ChannelFuture.class));
+		when(channel.pipeline()).thenReturn(mock(ChannelPipeline.class));
+		DefaultAttributeMap attributes = new DefaultAttributeMap();
+		when(channel.attr(any())).thenAnswer(invocation -> attributes.attr(invocation.getArgument(0)));
 
 		when(channel.close()).thenAnswer(new Answer<ChannelFuture>() {
 			@Override
@@ -178,4 +759,47 @@ public class ServerPoolTest {
 
 		return channel;
 	}
+
+	private static class RecordingAcquireCallback implements ChannelAcquireCallback {
+		private Channel channel;
+		private boolean newConnection;
+		private Throwable failure;
+		private boolean done;
+		private EventLoop eventLoop;
+		private InetSocketAddress remoteAddress;
+
+		@Override
+		public void onPooledChannel(Channel channel) {
+			this.channel = channel;
+			done = true;
+		}
+
+		@Override
+		public void onNewConnection() {
+			newConnection = true;
+			done = true;
+		}
+
+		@Override
+		public void onNewConnection(InetSocketAddress remoteAddress) {
+			this.remoteAddress = remoteAddress;
+			onNewConnection();
+		}
+
+		@Override
+		public void onFailure(Throwable cause) {
+			failure = cause;
+			done = true;
+		}
+
+		@Override
+		public boolean isDone() {
+			return done;
+		}
+
+		@Override
+		public EventLoop getEventLoop() {
+			return eventLoop;
+		}
+	}
 }
@@ -0,0 +1,179 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+import com.king.platform.net.http.netty.ServerInfo;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WarmServerStoreTest {
+	@TempDir
+	Path tempDir;
+
+	private Path file;
+	private ChannelPool channelPool;
+	private TestTimer timer;
+	private ServerInfo firstServer;
+	private ServerInfo secondServer;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		file = tempDir.resolve("warm-servers");
+		channelPool = mock(ChannelPool.class);
+		when(channelPool.prewarm(any(), anyInt())).thenReturn(CompletableFuture.completedFuture(0));
+		timer = new TestTimer();
+
+		firstServer = ServerInfo.buildFromUri("http://somehost:8081");
+		secondServer = ServerInfo.buildFromUri("https://otherhost:8443");
+	}
+
+	@Test
+	public void writtenServersShouldBeReadBack() throws Exception {
+		Map<ServerInfo, Integer> servers = new LinkedHashMap<>();
+		servers.put(firstServer, 3);
+		servers.put(secondServer, 5);
+
+		WarmServerStore.write(file, servers);
+
+		assertEquals(servers, WarmServerStore.read(file));
+	}
+
+	@Test
+	public void ipv6ServersShouldBeReadBack() throws Exception {
+		Map<ServerInfo, Integer> servers = new LinkedHashMap<>();
+		servers.put(ServerInfo.buildFromUri("http://[::1]:8081"), 2);
+		servers.put(ServerInfo.buildFromUri("https://[2001:db8::1]"), 4);
+
+		WarmServerStore.write(file, servers);
+
+		assertEquals(servers, WarmServerStore.read(file));
+	}
+
+	@Test
+	public void ipv6HostWithoutBracketsShouldBeWrittenAsValidUri() throws Exception {
+		WarmServerStore.write(file, Collections.singletonMap(new ServerInfo("http", "::1", 8081, false, false), 2));
+
+		assertEquals(Collections.singletonList("http://[::1]:8081 2"), Files.readAllLines(file, StandardCharsets.UTF_8));
+		assertEquals(Collections.singletonMap(ServerInfo.buildFromUri("http://[::1]:8081"), 2), WarmServerStore.read(file));
+	}
+
+	@Test
+	public void saveShouldWriteServersWithOpenConnections() throws Exception {
+		Map<ServerInfo, ChannelPoolStats> stats = new HashMap<>();
+		stats.put(firstServer, createStats(2, 1));
+		stats.put(secondServer, createStats(0, 0));
+		when(channelPool.getStats()).thenReturn(stats);
+
+		new WarmServerStore(file, 10, channelPool, timer).save();
+
+		assertEquals(Collections.singletonMap(firstServer, 3), WarmServerStore.read(file));
+	}
+
+	@Test
+	public void restoreShouldPrewarmAtMostConnectionsPerSecond() throws Exception {
+		Map<ServerInfo, Integer> servers = new LinkedHashMap<>();
+		servers.put(firstServer, 3);
+		servers.put(secondServer, 2);
+		WarmServerStore.write(file, servers);
+
+		new WarmServerStore(file, 2, channelPool, timer).restore();
+
+		timer.invoke();
+		verify(channelPool).prewarm(firstServer, 2);
+		verify(channelPool, never()).prewarm(secondServer, 2);
+
+		timer.invoke();
+		verify(channelPool).prewarm(firstServer, 1);
+		verify(channelPool).prewarm(secondServer, 1);
+
+		timer.invoke();
+		verify(channelPool, times(2)).prewarm(secondServer, 1);
+		assertTrue(timer.tasks.isEmpty());
+	}
+
+	@Test
+	public void saveShouldStopAnOngoingRestore() throws Exception {
+		WarmServerStore.write(file, Collections.singletonMap(firstServer, 4));
+		when(channelPool.getStats()).thenReturn(Collections.emptyMap());
+
+		WarmServerStore warmServerStore = new WarmServerStore(file, 2, channelPool, timer);
+		warmServerStore.restore();
+		timer.invoke();
+		warmServerStore.save();
+		timer.invoke();
+
+		verify(channelPool).prewarm(firstServer, 2);
+		assertTrue(timer.tasks.isEmpty());
+	}
+
+	@Test
+	public void restoreWithoutFileShouldDoNothing() throws Exception {
+		new WarmServerStore(file, 2, channelPool, timer).restore();
+
+		assertTrue(timer.tasks.isEmpty());
+	}
+
+	@Test
+	public void restoreOfAnInvalidFileShouldDoNothing() throws Exception {
+		Files.write(file, "http://somehost:8081 three\n".getBytes(StandardCharsets.UTF_8));
+
+		new WarmServerStore(file, 2, channelPool, timer).restore();
+
+		assertTrue(timer.tasks.isEmpty());
+	}
+
+	private ChannelPoolStats createStats(int idleConnections, int inUseConnections) {
+		return new ChannelPoolStats(idleConnections, inUseConnections, 0, 0, 0, 0, 0, 0, 0);
+	}
+
+	private static class TestTimer implements Timer {
+		private final Deque<TimerTask> tasks = new ArrayDeque<>();
+
+		@Override
+		public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+			tasks.add(task);
+			return mock(Timeout.class);
+		}
+
+		@Override
+		public Set<Timeout> stop() {
+			return Collections.emptySet();
+		}
+
+		public void invoke() throws Exception {
+			TimerTask timerTask = tasks.poll();
+			if (timerTask != null) {
+				timerTask.run(mock(Timeout.class));
+			}
+		}
+	}
+}
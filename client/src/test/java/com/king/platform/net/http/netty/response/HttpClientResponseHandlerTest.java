@@ -3,6 +3,7 @@ package com.king.platform.net.http.netty.response;
 import com.king.platform.net.http.ResponseBodyConsumer;
 import com.king.platform.net.http.netty.BaseHttpRequestHandler;
 import com.king.platform.net.http.netty.HttpRequestContext;
+import com.king.platform.net.http.netty.RequestLifecycleListener;
 import com.king.platform.net.http.netty.eventbus.RequestEventBus;
 import com.king.platform.net.http.netty.metric.TimeStampRecorder;
 import io.netty.channel.Channel;
@@ -58,6 +59,7 @@ public class HttpClientResponseHandlerTest {
         when(mockErrorAttr.get()).thenReturn(false);
 
         when(mockRequestCtx.hasCompletedContent()).thenReturn(false);
+        when(mockRequestCtx.getLifecycleListener()).thenReturn(RequestLifecycleListener.NOOP);
 
         when(mockRequestCtx.getNettyHttpClientResponse()).thenReturn(mockNettyHttpClientResp);
         when(mockNettyHttpClientResp.getRequestEventBus()).thenReturn(mockRequestEventBus);
@@ -0,0 +1,270 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+
+import javax.net.ssl.KeyManagerFactory;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server built on netty that speaks http2 over https (negotiated with ALPN), only http/1.1 over https, cleartext http2 (h2c) with prior knowledge
+ * or cleartext http/1.1, over tcp or a unix domain socket.
+ * Every request is answered with "protocol:uri:request body" after the configured delay.
+ */
+public class NettyHttp2IntegrationServer {
+	private final AtomicInteger connectionCount = new AtomicInteger();
+	private final AtomicInteger maxConcurrentStreams = new AtomicInteger(100);
+	private final AtomicInteger responseDelayMillis = new AtomicInteger();
+	private final AtomicInteger resumedSessionCount = new AtomicInteger();
+	private final Set<String> sessionIds = ConcurrentHashMap.newKeySet();
+	private String[] tlsProtocols;
+	private EventLoopGroup eventLoopGroup;
+	private Channel serverChannel;
+	private int port;
+
+	public void startHttps(boolean http2) throws Exception {
+		port = JettyIntegrationServer.findFreePort();
+		SslContext sslContext = createSslContext(http2);
+
+		eventLoopGroup = new NioEventLoopGroup(2);
+		serverChannel = new ServerBootstrap()
+			.group(eventLoopGroup)
+			.channel(NioServerSocketChannel.class)
+			.childHandler(new ChannelInitializer<Channel>() {
+				@Override
+				protected void initChannel(Channel ch) {
+					connectionCount.incrementAndGet();
+					SslHandler sslHandler = sslContext.newHandler(ch.alloc());
+					sslHandler.handshakeFuture().addListener(future -> {
+						if (future.isSuccess()) {
+							countSession(sslHandler.engine().getSession().getId());
+						}
+					});
+					ch.pipeline().addLast(sslHandler);
+					ch.pipeline().addLast(new ApplicationProtocolNegotiationHandler(ApplicationProtocolNames.HTTP_1_1) {
+						@Override
+						protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+							if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+								configureHttp2(ctx.pipeline());
+							} else {
+								configureHttp1(ctx.pipeline());
+							}
+						}
+					});
+				}
+			})
+			.bind(port)
+			.sync()
+			.channel();
+	}
+
+	public void startH2c() throws Exception {
+		port = JettyIntegrationServer.findFreePort();
+
+		eventLoopGroup = new NioEventLoopGroup(2);
+		serverChannel = new ServerBootstrap()
+			.group(eventLoopGroup)
+			.channel(NioServerSocketChannel.class)
+			.childHandler(new ChannelInitializer<Channel>() {
+				@Override
+				protected void initChannel(Channel ch) {
+					connectionCount.incrementAndGet();
+					configureHttp2(ch.pipeline());
+				}
+			})
+			.bind(port)
+			.sync()
+			.channel();
+	}
+
+	public void startHttp() throws Exception {
+		port = JettyIntegrationServer.findFreePort();
+
+		eventLoopGroup = new NioEventLoopGroup(2);
+		serverChannel = new ServerBootstrap()
+			.group(eventLoopGroup)
+			.channel(NioServerSocketChannel.class)
+			.childHandler(new ChannelInitializer<Channel>() {
+				@Override
+				protected void initChannel(Channel ch) {
+					connectionCount.incrementAndGet();
+					configureHttp1(ch.pipeline());
+				}
+			})
+			.bind(port)
+			.sync()
+			.channel();
+	}
+
+	public void startDomainSocket(String path) throws Exception {
+		eventLoopGroup = new EpollEventLoopGroup(2);
+		serverChannel = new ServerBootstrap()
+			.group(eventLoopGroup)
+			.channel(EpollServerDomainSocketChannel.class)
+			.childHandler(new ChannelInitializer<Channel>() {
+				@Override
+				protected void initChannel(Channel ch) {
+					connectionCount.incrementAndGet();
+					configureHttp1(ch.pipeline());
+				}
+			})
+			.bind(new DomainSocketAddress(path))
+			.sync()
+			.channel();
+	}
+
+	/**
+	 * Only allow these tls protocols, for example TLSv1.2 where resumed sessions keep their session id
+	 */
+	public void setTlsProtocols(String... tlsProtocols) {
+		this.tlsProtocols = tlsProtocols;
+	}
+
+	public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+		this.maxConcurrentStreams.set(maxConcurrentStreams);
+	}
+
+	public void setResponseDelayMillis(int responseDelayMillis) {
+		this.responseDelayMillis.set(responseDelayMillis);
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public int getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	public int getResumedSessionCount() {
+		return resumedSessionCount.get();
+	}
+
+	public void shutdown() throws Exception {
+		if (eventLoopGroup.isShutdown()) {
+			return;
+		}
+		if (serverChannel != null) {
+			serverChannel.close().sync();
+		}
+		eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+	}
+
+	private void countSession(byte[] sessionId) {
+		if (sessionId.length > 0 && !sessionIds.add(Base64.getEncoder().encodeToString(sessionId))) {
+			resumedSessionCount.incrementAndGet();
+		}
+	}
+
+	private void configureHttp2(ChannelPipeline pipeline) {
+		pipeline.addLast(Http2FrameCodecBuilder.forServer()
+			.initialSettings(Http2Settings.defaultSettings().maxConcurrentStreams(maxConcurrentStreams.get()))
+			.build());
+		pipeline.addLast(new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+			@Override
+			protected void initChannel(Channel ch) {
+				ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+				ch.pipeline().addLast(new HttpObjectAggregator(1024 * 1024));
+				ch.pipeline().addLast(new EchoHandler("h2"));
+			}
+		}));
+	}
+
+	private void configureHttp1(ChannelPipeline pipeline) {
+		pipeline.addLast(new HttpServerCodec());
+		pipeline.addLast(new HttpObjectAggregator(1024 * 1024));
+		pipeline.addLast(new EchoHandler("http/1.1"));
+	}
+
+	private SslContext createSslContext(boolean http2) throws Exception {
+		KeyStore keyStore = KeyStore.getInstance("JKS");
+		try (InputStream inputStream = getClass().getResourceAsStream("/keystore.jks")) {
+			keyStore.load(inputStream, "changeme".toCharArray());
+		}
+
+		KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagerFactory.init(keyStore, "changeme".toCharArray());
+
+		String[] protocols = http2 ? new String[]{ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1} : new String[]{ApplicationProtocolNames.HTTP_1_1};
+
+		return SslContextBuilder.forServer(keyManagerFactory)
+			.applicationProtocolConfig(new ApplicationProtocolConfig(ApplicationProtocolConfig.Protocol.ALPN,
+				ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE, ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+				protocols))
+			.protocols(tlsProtocols)
+			.build();
+	}
+
+	@ChannelHandler.Sharable
+	private class EchoHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+		private final String protocol;
+
+		EchoHandler(String protocol) {
+			this.protocol = protocol;
+		}
+
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+			String body = protocol + ":" + request.uri() + ":" + request.content().toString(StandardCharsets.UTF_8);
+			ByteBuf content = Unpooled.copiedBuffer(body, StandardCharsets.UTF_8);
+			FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+			response.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+			boolean close = request.uri().startsWith("/close");  //the server closes the connection after the response
+			HttpUtil.setKeepAlive(response, HttpUtil.isKeepAlive(request) && !close);
+
+			ctx.executor().schedule(() -> {
+				ChannelFuture writeFuture = ctx.writeAndFlush(response);
+				if (close) {
+					writeFuture.addListener(ChannelFutureListener.CLOSE);
+				}
+			}, responseDelayMillis.get(), TimeUnit.MILLISECONDS);
+		}
+	}
+}
@@ -0,0 +1,226 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.compression.ContentCodec;
+import com.king.platform.net.http.netty.compression.InputStreamContentDecoder;
+import io.netty.channel.ChannelHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedRequestBody {
+	IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+	private TemporaryFile temporaryFile;
+
+	private final AtomicReference<String> contentEncoding = new AtomicReference<>();
+	private final AtomicReference<String> transferEncoding = new AtomicReference<>();
+	private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+	private final AtomicReference<byte[]> receivedBody = new AtomicReference<>();
+
+	private String okBody = "Morbi ut pretium augue, eu fringilla tortor. Nulla quis feugiat velit. Proin iaculis justo ut gravida cursus. Fusce nec posuere " +
+		"nibh. Donec suscipit orci quis est luctus porta. Cras eget nulla justo. Quisque ut nibh ac ligula fringilla mattis.";
+
+	@BeforeEach
+	public void setUp(@TempDir Path tempDir) throws Exception {
+		temporaryFile = new TemporaryFile(tempDir);
+
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				contentEncoding.set(req.getHeader("content-encoding"));
+				transferEncoding.set(req.getHeader("transfer-encoding"));
+				InputStream inputStream = "gzip".equals(req.getHeader("content-encoding")) ? new GZIPInputStream(req.getInputStream()) : req.getInputStream();
+				receivedBody.set(readFully(inputStream));
+				resp.getWriter().write("OK");
+			}
+
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				acceptEncoding.set(req.getHeader("accept-encoding"));
+				byte[] compressed = gzip(okBody.getBytes(StandardCharsets.UTF_8));
+				resp.setHeader("content-encoding", "x-test");
+				resp.setContentLength(compressed.length);
+				resp.getOutputStream().write(compressed);
+			}
+		}, "/test");
+
+		httpClient = new TestingHttpClientFactory()
+			.useChannelPool()
+			.setOption(ConfKeys.CONTENT_CODECS, Collections.singletonList(new TestContentCodec()))
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void postCompressedBody() throws Exception {
+		byte[] content = okBody.getBytes(StandardCharsets.UTF_8);
+
+		HttpResponse<String> response = httpClient.createPost("http://localhost:" + port + "/test")
+			.content(content)
+			.compressContent("gzip")
+			.build()
+			.execute()
+			.join();
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals("gzip", contentEncoding.get());
+		assertEquals("chunked", transferEncoding.get());
+		assertArrayEquals(content, receivedBody.get());
+	}
+
+	@Test
+	public void postCompressedFile() throws Exception {
+		temporaryFile.generateContent(512);
+
+		HttpResponse<String> response = httpClient.createPost("http://localhost:" + port + "/test")
+			.content(temporaryFile.getFile())
+			.compressContent("gzip")
+			.build()
+			.execute()
+			.join();
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals("gzip", contentEncoding.get());
+		assertArrayEquals(temporaryFile.getFileMd5(), MessageDigest.getInstance("MD5").digest(receivedBody.get()));
+	}
+
+	@Test
+	public void postCompressedInputStreamWithCustomCodec() throws Exception {
+		byte[] content = okBody.getBytes(StandardCharsets.UTF_8);
+
+		HttpResponse<String> response = httpClient.createPost("http://localhost:" + port + "/test")
+			.content(new ByteArrayInputStream(content))
+			.compressContent("x-test")
+			.build()
+			.execute()
+			.join();
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals("x-test", contentEncoding.get());
+		assertArrayEquals(content, gunzip(receivedBody.get()));
+	}
+
+	@Test
+	public void uncompressedBodyAfterCompressedBodyOnSameConnection() throws Exception {
+		byte[] content = okBody.getBytes(StandardCharsets.UTF_8);
+
+		httpClient.createPost("http://localhost:" + port + "/test").content(content).compressContent("gzip").build().execute().join();
+		HttpResponse<String> response = httpClient.createPost("http://localhost:" + port + "/test").content(content).build().execute().join();
+
+		assertEquals(200, response.getStatusCode());
+		assertNull(contentEncoding.get());
+		assertArrayEquals(content, receivedBody.get());
+	}
+
+	@Test
+	public void unknownContentEncodingShouldBeRejected() throws Exception {
+		assertThrows(IllegalArgumentException.class, () -> httpClient.createPost("http://localhost:" + port + "/test")
+			.content(new byte[10])
+			.compressContent("x-unknown")
+			.build());
+	}
+
+	@Test
+	public void responseShouldBeDecodedWithCustomCodec() throws Exception {
+		HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/test")
+			.acceptCompressedResponse(true)
+			.build()
+			.execute()
+			.join();
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals("gzip,deflate,x-test", acceptEncoding.get());
+		assertEquals(okBody, response.getBody());
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+
+	private static byte[] readFully(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int len;
+		while ((len = inputStream.read(buffer)) > 0) {
+			outputStream.write(buffer, 0, len);
+		}
+		return outputStream.toByteArray();
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+			gzipOutputStream.write(data);
+		}
+		return outputStream.toByteArray();
+	}
+
+	private static byte[] gunzip(byte[] data) throws IOException {
+		return readFully(new GZIPInputStream(new ByteArrayInputStream(data)));
+	}
+
+	/**
+	 * Stream based codec that is gzip under another name, standing in for brotli and zstd which aren't on the test classpath
+	 */
+	private static class TestContentCodec implements ContentCodec {
+		@Override
+		public String getEncoding() {
+			return "x-test";
+		}
+
+		@Override
+		public boolean canDecode() {
+			return true;
+		}
+
+		@Override
+		public ChannelHandler newDecoder() {
+			return new InputStreamContentDecoder(GZIPInputStream::new);
+		}
+
+		@Override
+		public boolean canEncode() {
+			return true;
+		}
+
+		@Override
+		public OutputStream newEncoder(OutputStream outputStream) throws IOException {
+			return new GZIPOutputStream(outputStream);
+		}
+	}
+}
@@ -16,6 +16,7 @@ import com.king.platform.net.http.netty.metric.MetricCallback;
 import com.king.platform.net.http.netty.pool.ChannelPool;
 import com.king.platform.net.http.netty.pool.NoChannelPool;
 import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.pool.ServerPoolConfig;
 import com.king.platform.net.http.netty.util.SystemTimeProvider;
 import io.netty.util.HashedWheelTimer;
 import org.junit.jupiter.api.AfterEach;
@@ -27,11 +28,18 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 
@@ -65,12 +73,16 @@ public class ConnectionPool {
 
 
 	private void createHttpClient(boolean useConnectionPool) {
+		createHttpClient(useConnectionPool, new ServerPoolConfig());
+	}
+
+	private void createHttpClient(boolean useConnectionPool, ServerPoolConfig serverPoolConfig) {
 		HashedWheelTimer cleanupTimer = new HashedWheelTimer();
 		SystemTimeProvider timeProvider = new SystemTimeProvider();
 
 		ChannelPool pool = new NoChannelPool();
 		if (useConnectionPool) {
-			pool = new PoolingChannelPool(cleanupTimer, timeProvider,  mock(MetricCallback.class));
+			pool = new PoolingChannelPool(cleanupTimer, timeProvider,  mock(MetricCallback.class), serverPoolConfig);
 		}
 
 		NettyHttpClientBuilder nettyHttpClientBuilder = new NettyHttpClientBuilder()
@@ -178,6 +190,106 @@ public class ConnectionPool {
 
 	}
 
+	@Test
+	public void concurrentGetsShouldWaitForPooledConnectionWhenMaxConnectionsIsReached() throws Exception {
+		Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				remotePorts.add(req.getRemotePort());
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException ignored) {
+				}
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testSlow");
+
+		createHttpClient(true, new ServerPoolConfig().setMaxConnections(1));
+
+		List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			futures.add(httpClient.createGet("http://localhost:" + port + "/testSlow").build().execute());
+		}
+
+		for (CompletableFuture<HttpResponse<String>> future : futures) {
+			HttpResponse<String> response = future.get(1, TimeUnit.SECONDS);
+			assertEquals(okBody, response.getBody());
+			assertEquals(200, response.getStatusCode());
+		}
+
+		assertEquals(1, remotePorts.size());
+	}
+
+	@Test
+	public void getAfterPrewarmShouldReusePrewarmedConnection() throws Exception {
+		createHttpClient(true);
+
+		int openedConnections = httpClient.prewarm("http://localhost:" + port, 1).get(1, TimeUnit.SECONDS);
+		assertEquals(1, openedConnections);
+
+		HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().get(1, TimeUnit.SECONDS);
+
+		assertEquals(okBody, response.getBody());
+		assertEquals(200, response.getStatusCode());
+
+		List<Event> expectedEvents = new ArrayList<>();
+		expectedEvents.add(Event.REUSED_CONNECTION);
+		expectedEvents.add(Event.COMPLETED);
+
+		validateExpectedEvents(expectedEvents);
+	}
+
+	@Test
+	public void prewarmOfInvalidOrWebSocketUriShouldFailTheFuture() throws Exception {
+		createHttpClient(true);
+
+		CompletableFuture<Integer> invalidUri = httpClient.prewarm("http://local host:" + port, 1);
+		ExecutionException invalidUriException = assertThrows(ExecutionException.class, () -> invalidUri.get(1, TimeUnit.SECONDS));
+		assertTrue(invalidUriException.getCause() instanceof URISyntaxException);
+
+		CompletableFuture<Integer> webSocketUri = httpClient.prewarm("ws://localhost:" + port, 1);
+		ExecutionException webSocketUriException = assertThrows(ExecutionException.class, () -> webSocketUri.get(1, TimeUnit.SECONDS));
+		assertTrue(webSocketUriException.getCause() instanceof IllegalArgumentException);
+	}
+
+	@Test
+	public void getsWithEventLoopAffinityShouldReuseConnection() throws Exception {
+		createHttpClient(true, new ServerPoolConfig().setEventLoopAffinity(true));
+
+		for (int i = 0; i < 3; i++) {
+			HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().get(1, TimeUnit.SECONDS);
+			assertEquals(okBody, response.getBody());
+			assertEquals(200, response.getStatusCode());
+		}
+
+		List<Event> expectedEvents = new ArrayList<>();
+		expectedEvents.add(Event.REUSED_CONNECTION);
+		expectedEvents.add(Event.COMPLETED);
+		expectedEvents.add(Event.POOLED_CONNECTION);
+
+		validateExpectedEvents(expectedEvents);
+	}
+
+	@Test
+	public void getsWithSpreadOverResolvedAddressesShouldReuseConnection() throws Exception {
+		createHttpClient(true, new ServerPoolConfig().setSpreadOverResolvedAddresses(true));
+
+		for (int i = 0; i < 3; i++) {
+			HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().get(1, TimeUnit.SECONDS);
+			assertEquals(okBody, response.getBody());
+			assertEquals(200, response.getStatusCode());
+		}
+
+		List<Event> expectedEvents = new ArrayList<>();
+		expectedEvents.add(Event.REUSED_CONNECTION);
+		expectedEvents.add(Event.COMPLETED);
+		expectedEvents.add(Event.POOLED_CONNECTION);
+
+		validateExpectedEvents(expectedEvents);
+	}
+
 	private void validateExpectedEvents(List<Event> expectedEvents) {
 		List<RecordingEventBus.Interaction> filteredInteractions = rootEventBus.getFilteredInteractions(RecordingEventBus.InteractionType.TRIGGER);
 
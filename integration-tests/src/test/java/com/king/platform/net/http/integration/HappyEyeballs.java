@@ -0,0 +1,158 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import io.netty.resolver.AbstractAddressResolver;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HappyEyeballs {
+	private IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	private final String okBody = "EVERYTHING IS OKAY!";
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer(5000);
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+	}
+
+	private void start(InetSocketAddress... addresses) throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.CONNECT_TIMEOUT_MILLIS, 5000)
+			.setOption(ConfKeys.HAPPY_EYEBALLS, true)
+			.setOption(ConfKeys.HAPPY_EYEBALLS_CONNECTION_ATTEMPT_DELAY_MILLIS, 100)
+			.setOption(ConfKeys.DNS_RESOLVER, new StaticAddressResolverGroup(addresses))
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void unresponsiveFirstAddressShouldNotWaitForTheConnectTimeout() throws Exception {
+		try (ServerSocket unresponsiveServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			List<Socket> backlog = fillBacklog(unresponsiveServer);
+			start((InetSocketAddress) unresponsiveServer.getLocalSocketAddress(), new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+
+			long startTime = System.currentTimeMillis();
+			HttpResponse<String> response = httpClient.createGet("http://somehost:" + port + "/testOk").build().execute().join();
+
+			assertEquals(okBody, response.getBody());
+			assertTrue(System.currentTimeMillis() - startTime < 2000);
+
+			for (Socket socket : backlog) {
+				socket.close();
+			}
+		}
+	}
+
+	@Test
+	public void refusedFirstAddressShouldTryTheNextAddress() throws Exception {
+		int closedPort = JettyIntegrationServer.findFreePort();
+		start(new InetSocketAddress(InetAddress.getLoopbackAddress(), closedPort), new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+
+		HttpResponse<String> response = httpClient.createGet("http://somehost:" + port + "/testOk").build().execute().join();
+
+		assertEquals(okBody, response.getBody());
+	}
+
+	@Test
+	public void allAddressesFailingShouldFailTheRequest() throws Exception {
+		start(new InetSocketAddress(InetAddress.getLoopbackAddress(), JettyIntegrationServer.findFreePort()),
+			new InetSocketAddress(InetAddress.getLoopbackAddress(), JettyIntegrationServer.findFreePort()));
+
+		assertThrows(CompletionException.class, () -> httpClient.createGet("http://somehost:" + port + "/testOk").build().execute().join());
+	}
+
+	/**
+	 * Fill the accept queue of a server that never accepts, so that new connection attempts to it hang
+	 */
+	private List<Socket> fillBacklog(ServerSocket serverSocket) throws IOException {
+		List<Socket> sockets = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			Socket socket = new Socket();
+			try {
+				socket.connect(serverSocket.getLocalSocketAddress(), 200);
+				sockets.add(socket);
+			} catch (SocketTimeoutException e) {
+				socket.close();
+				break;
+			}
+		}
+		return sockets;
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+
+	private static class StaticAddressResolverGroup extends AddressResolverGroup<InetSocketAddress> {
+		private final List<InetSocketAddress> addresses;
+
+		StaticAddressResolverGroup(InetSocketAddress... addresses) {
+			this.addresses = Arrays.asList(addresses);
+		}
+
+		@Override
+		protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) {
+			return new AbstractAddressResolver<InetSocketAddress>(executor) {
+				@Override
+				protected boolean doIsResolved(InetSocketAddress address) {
+					return !address.isUnresolved();
+				}
+
+				@Override
+				protected void doResolve(InetSocketAddress unresolvedAddress, Promise<InetSocketAddress> promise) {
+					promise.setSuccess(addresses.get(0));
+				}
+
+				@Override
+				protected void doResolveAll(InetSocketAddress unresolvedAddress, Promise<List<InetSocketAddress>> promise) {
+					promise.setSuccess(addresses);
+				}
+			};
+		}
+	}
+}
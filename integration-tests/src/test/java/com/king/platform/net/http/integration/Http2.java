@@ -0,0 +1,137 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class Http2 {
+	private NettyHttp2IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		integrationServer = new NettyHttp2IntegrationServer();
+	}
+
+	private void start(boolean serverHttp2, int maxConcurrentStreams) throws Exception {
+		integrationServer.startHttps(serverHttp2);
+		port = integrationServer.getPort();
+
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.HTTP2, true)
+			.setOption(ConfKeys.HTTP2_MAX_CONCURRENT_STREAMS, maxConcurrentStreams)
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void getOverHttp2() throws Exception {
+		start(true, 100);
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("https://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals("h2:/testOk:", httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+	}
+
+	@Test
+	public void postOverHttp2() throws Exception {
+		start(true, 100);
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createPost("https://localhost:" + port + "/testOk").content("some content".getBytes(StandardCharsets.UTF_8)).build()
+			.withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals("h2:/testOk:some content", httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+	}
+
+	@Test
+	public void concurrentRequestsShouldShareOneConnection() throws Exception {
+		start(true, 100);
+		integrationServer.setResponseDelayMillis(200);
+
+		List<BlockingHttpCallback> httpCallbacks = executeGets(20);
+
+		for (BlockingHttpCallback httpCallback : httpCallbacks) {
+			httpCallback.waitForCompletion();
+			assertEquals(200, httpCallback.getStatusCode());
+		}
+
+		assertEquals(1, integrationServer.getConnectionCount());
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("https://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals("h2:/testOk:", httpCallback.getBody());
+		assertEquals(1, integrationServer.getConnectionCount());
+	}
+
+	@Test
+	public void maxConcurrentStreamsShouldOpenMoreConnections() throws Exception {
+		start(true, 5);
+		integrationServer.setResponseDelayMillis(200);
+
+		List<BlockingHttpCallback> httpCallbacks = executeGets(20);
+
+		for (BlockingHttpCallback httpCallback : httpCallbacks) {
+			httpCallback.waitForCompletion();
+			assertEquals(200, httpCallback.getStatusCode());
+		}
+
+		assertEquals(4, integrationServer.getConnectionCount());
+	}
+
+	@Test
+	public void serverWithoutHttp2ShouldBeCalledWithHttp1() throws Exception {
+		start(false, 100);
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("https://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals("http/1.1:/testOk:", httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+
+		httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("https://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals("http/1.1:/testOk:", httpCallback.getBody());
+	}
+
+	private List<BlockingHttpCallback> executeGets(int count) {
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createGet("https://localhost:" + port + "/test" + i).build().withHttpCallback(httpCallback).execute();
+			httpCallbacks.add(httpCallback);
+		}
+		return httpCallbacks;
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+}
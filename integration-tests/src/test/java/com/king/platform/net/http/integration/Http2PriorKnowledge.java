@@ -0,0 +1,113 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class Http2PriorKnowledge {
+	private NettyHttp2IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		integrationServer = new NettyHttp2IntegrationServer();
+		integrationServer.startH2c();
+		port = integrationServer.getPort();
+	}
+
+	@Test
+	public void getWithPriorKnowledge() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.HTTP2_PRIOR_KNOWLEDGE, true)
+			.create();
+		httpClient.start();
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals("h2:/testOk:", httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+	}
+
+	@Test
+	public void postWithPriorKnowledgeForHost() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.HTTP2_PRIOR_KNOWLEDGE_HOSTS, Collections.singleton("localhost:" + port))
+			.create();
+		httpClient.start();
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createPost("http://localhost:" + port + "/testOk").content("some content".getBytes(StandardCharsets.UTF_8)).build()
+			.withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals("h2:/testOk:some content", httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+	}
+
+	@Test
+	public void putFileWithPriorKnowledge(@TempDir Path tempDir) throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.HTTP2_PRIOR_KNOWLEDGE, true)
+			.create();
+		httpClient.start();
+
+		Path file = tempDir.resolve("content.txt");
+		Files.write(file, "file content".getBytes(StandardCharsets.UTF_8));
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createPut("http://localhost:" + port + "/putFile").content(file.toFile()).build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals("h2:/putFile:file content", httpCallback.getBody());
+	}
+
+	@Test
+	public void concurrentRequestsShouldShareOneConnection() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.HTTP2_PRIOR_KNOWLEDGE, true)
+			.create();
+		httpClient.start();
+		integrationServer.setResponseDelayMillis(200);
+
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createGet("http://localhost:" + port + "/test" + i).build().withHttpCallback(httpCallback).execute();
+			httpCallbacks.add(httpCallback);
+		}
+
+		for (int i = 0; i < httpCallbacks.size(); i++) {
+			httpCallbacks.get(i).waitForCompletion();
+			assertEquals("h2:/test" + i + ":", httpCallbacks.get(i).getBody());
+		}
+
+		assertEquals(1, integrationServer.getConnectionCount());
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+}
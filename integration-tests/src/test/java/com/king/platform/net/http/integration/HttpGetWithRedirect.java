@@ -9,6 +9,7 @@ package com.king.platform.net.http.integration;
 import com.king.platform.net.http.ConfKeys;
 import com.king.platform.net.http.HttpClient;
 import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.TimeoutException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -24,6 +25,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HttpGetWithRedirect {
 
@@ -89,6 +91,36 @@ public class HttpGetWithRedirect {
 
 	}
 
+	@Test
+	public void redirectChainSlowerThanTheTotalRequestTimeoutShouldFail() throws Exception {
+		for (int i = 1; i <= 3; i++) {
+			String next = i < 3 ? "/slow" + (i + 1) : null;
+			integrationServer.addServlet(new HttpServlet() {
+				@Override
+				protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+					try {
+						Thread.sleep(150);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+
+					if (next != null) {
+						resp.sendRedirect(next);
+					} else {
+						resp.getWriter().write(okBody);
+						resp.getWriter().flush();
+					}
+				}
+			}, "/slow" + i);
+		}
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://localhost:" + port + "/slow1").totalRequestTimeoutMillis(300).build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertTrue(httpCallback.getException() instanceof TimeoutException);
+	}
+
 	@Test
 	public void getWithRelativeUrlAbsolutRedirect() throws Exception {
 
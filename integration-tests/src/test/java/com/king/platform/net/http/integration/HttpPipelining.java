@@ -0,0 +1,147 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class HttpPipelining {
+	private NettyHttp2IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		integrationServer = new NettyHttp2IntegrationServer();
+		integrationServer.startHttp();
+		port = integrationServer.getPort();
+
+		httpClient = new TestingHttpClientFactory()
+			.useChannelPool()
+			.setOption(ConfKeys.HTTP_PIPELINING, true)
+			.setOption(ConfKeys.HTTP_PIPELINING_MAX_REQUESTS, 5)
+			.create();
+		httpClient.start();
+
+		integrationServer.setResponseDelayMillis(300);
+	}
+
+	@Test
+	public void getsShouldBePipelinedOnTheSameConnection() throws Exception {
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		httpCallbacks.add(executeGet("/test0"));
+		Thread.sleep(100);
+		for (int i = 1; i < 5; i++) {
+			httpCallbacks.add(executeGet("/test" + i));
+		}
+
+		for (int i = 0; i < httpCallbacks.size(); i++) {
+			BlockingHttpCallback httpCallback = httpCallbacks.get(i);
+			httpCallback.waitForCompletion();
+			assertEquals(200, httpCallback.getStatusCode());
+			assertEquals("http/1.1:/test" + i + ":", httpCallback.getBody());
+		}
+
+		assertEquals(1, integrationServer.getConnectionCount());
+
+		BlockingHttpCallback httpCallback = executeGet("/testOk");
+		httpCallback.waitForCompletion();
+		assertEquals("http/1.1:/testOk:", httpCallback.getBody());
+		assertEquals(1, integrationServer.getConnectionCount());
+	}
+
+	@Test
+	public void maxRequestsShouldOpenMoreConnections() throws Exception {
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		httpCallbacks.add(executeGet("/test0"));
+		Thread.sleep(100);
+		for (int i = 1; i < 6; i++) {
+			httpCallbacks.add(executeGet("/test" + i));
+		}
+
+		for (int i = 0; i < httpCallbacks.size(); i++) {
+			BlockingHttpCallback httpCallback = httpCallbacks.get(i);
+			httpCallback.waitForCompletion();
+			assertEquals("http/1.1:/test" + i + ":", httpCallback.getBody());
+		}
+
+		assertEquals(2, integrationServer.getConnectionCount());
+	}
+
+	@Test
+	public void postShouldNotBePipelined() throws Exception {
+		BlockingHttpCallback getCallback = executeGet("/test0");
+		Thread.sleep(100);
+
+		BlockingHttpCallback postCallback = new BlockingHttpCallback();
+		httpClient.createPost("http://localhost:" + port + "/post").content("some content".getBytes(StandardCharsets.UTF_8)).build()
+			.withHttpCallback(postCallback).execute();
+
+		getCallback.waitForCompletion();
+		postCallback.waitForCompletion();
+
+		assertEquals("http/1.1:/test0:", getCallback.getBody());
+		assertEquals("http/1.1:/post:some content", postCallback.getBody());
+		assertEquals(2, integrationServer.getConnectionCount());
+	}
+
+	@Test
+	public void waitingRequestsShouldFailWhenConnectionIsClosed() throws Exception {
+		BlockingHttpCallback firstCallback = executeGet("/test0");
+		Thread.sleep(100);
+		BlockingHttpCallback secondCallback = executeGet("/test1");
+		Thread.sleep(50);
+
+		integrationServer.shutdown();
+
+		firstCallback.waitForCompletion();
+		secondCallback.waitForCompletion();
+
+		assertNotNull(firstCallback.getException());
+		assertNotNull(secondCallback.getException());
+	}
+
+	@Test
+	public void responseClosingTheConnectionShouldStopPipeliningOnIt() throws Exception {
+		BlockingHttpCallback closeCallback = executeGet("/close");
+		Thread.sleep(100);
+		BlockingHttpCallback pipelinedCallback = executeGet("/test1");
+
+		closeCallback.waitForCompletion();
+		assertEquals("http/1.1:/close:", closeCallback.getBody());
+
+		pipelinedCallback.waitForCompletion();
+		assertNotNull(pipelinedCallback.getException());
+
+		BlockingHttpCallback httpCallback = executeGet("/testOk");
+		httpCallback.waitForCompletion();
+		assertEquals("http/1.1:/testOk:", httpCallback.getBody());
+		assertEquals(2, integrationServer.getConnectionCount());
+	}
+
+	private BlockingHttpCallback executeGet(String uri) {
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://localhost:" + port + uri).build().withHttpCallback(httpCallback).execute();
+		return httpCallback;
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+}
@@ -0,0 +1,69 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HttpsSessionResumption {
+	private NettyHttp2IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		integrationServer = new NettyHttp2IntegrationServer();
+		integrationServer.setTlsProtocols("TLSv1.2");
+		integrationServer.startHttps(false);
+		port = integrationServer.getPort();
+	}
+
+	@Test
+	public void newConnectionsShouldResumeTheSslSession() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.SSL_SESSION_CACHE_SIZE, 100)
+			.setOption(ConfKeys.SSL_SESSION_TIMEOUT_SECONDS, 60)
+			.create();
+		httpClient.start();
+
+		for (int i = 0; i < 3; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createGet("https://localhost:" + port + "/test" + i).build().withHttpCallback(httpCallback).execute();
+			httpCallback.waitForCompletion();
+			assertEquals("http/1.1:/test" + i + ":", httpCallback.getBody());
+		}
+
+		assertEquals(3, integrationServer.getConnectionCount());
+		assertEquals(2, integrationServer.getResumedSessionCount());
+	}
+
+	@Test
+	public void openSslOptionShouldFallBackWhenNotAvailable() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.SSL_USE_OPENSSL, true)
+			.create();
+		httpClient.start();
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("https://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals(200, httpCallback.getStatusCode());
+		assertEquals("http/1.1:/testOk:", httpCallback.getBody());
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+}
@@ -0,0 +1,118 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.NettyTransport;
+import com.king.platform.net.http.netty.eventbus.Event;
+import io.netty.channel.epoll.Epoll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NativeTransports {
+	private IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+	private final ConcurrentLinkedQueue<NettyTransport> usedTransports = new ConcurrentLinkedQueue<>();
+
+	private final String okBody = "EVERYTHING IS OKAY!";
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer(5000);
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				byte[] body = new byte[req.getContentLength()];
+				int read = 0;
+				while (read < body.length) {
+					read += req.getInputStream().read(body, read, body.length - read);
+				}
+				resp.getOutputStream().write(body);
+				resp.getOutputStream().flush();
+			}
+		}, "/testOk");
+	}
+
+	@Test
+	public void getWithEpoll() throws Exception {
+		httpClient = createHttpClient(new TestingHttpClientFactory().setOption(ConfKeys.USE_EPOLL, true));
+
+		HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().join();
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals(okBody, response.getBody());
+		assertEquals(Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO, usedTransports.poll());
+	}
+
+	@Test
+	public void getWithUnavailableIoUringShouldFallBack() throws Exception {
+		httpClient = createHttpClient(new TestingHttpClientFactory().useChannelPool().setOption(ConfKeys.USE_IO_URING, true));
+
+		for (int i = 0; i < 3; i++) {
+			HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().join();
+
+			assertEquals(200, response.getStatusCode());
+			assertEquals(okBody, response.getBody());
+			assertEquals(fallbackTransport(), usedTransports.poll());
+		}
+	}
+
+	@Test
+	public void postWithUnavailableIoUringShouldFallBack() throws Exception {
+		httpClient = createHttpClient(new TestingHttpClientFactory().setOption(ConfKeys.USE_IO_URING, true));
+
+		HttpResponse<String> response = httpClient.createPost("http://localhost:" + port + "/testOk").content("some content".getBytes(StandardCharsets.UTF_8))
+			.build().execute().join();
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals("some content", response.getBody());
+		assertEquals(fallbackTransport(), usedTransports.poll());
+	}
+
+	private HttpClient createHttpClient(TestingHttpClientFactory testingHttpClientFactory) {
+		testingHttpClientFactory.getRecordingEventBus().subscribePermanently(Event.onAttachedToChannel,
+			channel -> usedTransports.add(NettyTransport.of(channel.eventLoop())));
+		HttpClient httpClient = testingHttpClientFactory.create();
+		httpClient.start();
+		return httpClient;
+	}
+
+	/**
+	 * io_uring needs a newer netty than the client is built against, so requesting it falls back to epoll and then nio
+	 */
+	private static NettyTransport fallbackTransport() {
+		return Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO;
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+}
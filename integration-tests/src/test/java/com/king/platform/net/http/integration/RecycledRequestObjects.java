@@ -0,0 +1,172 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.metric.RecordedTimeStamps;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecycledRequestObjects {
+	IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	private final AtomicInteger completedRequests = new AtomicInteger();
+	private final ConcurrentLinkedQueue<String> invalidTimeStamps = new ConcurrentLinkedQueue<>();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				resp.getWriter().write(req.getParameter("id"));
+			}
+		}, "/echo");
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				resp.sendRedirect("/echo?id=" + req.getParameter("id"));
+			}
+		}, "/redirect");
+
+		MetricCallback metricCallback = new MetricCallbackAdapter() {
+			@Override
+			public void onCompletedRequest(String host, RecordedTimeStamps recordedTimeStamps) {
+				completedRequests.incrementAndGet();
+				if (recordedTimeStamps.getCreatedRequest() == 0 || recordedTimeStamps.getResponseBodyCompleted() < recordedTimeStamps.getCreatedRequest()) {
+					invalidTimeStamps.add(recordedTimeStamps.toString());
+				}
+			}
+		};
+
+		httpClient = new TestingHttpClientFactory()
+			.useChannelPool()
+			.setHttpCallbackExecutorThreads(4)
+			.setMetricCallback(metricCallback)
+			.setOption(ConfKeys.RECYCLE_REQUEST_OBJECTS, true)
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void concurrentRequestsShouldGetTheirOwnResponses() throws Exception {
+		for (int batch = 0; batch < 25; batch++) {
+			List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				futures.add(httpClient.createGet("http://localhost:" + port + "/echo").addQueryParameter("id", batch + "-" + i).build().execute());
+			}
+
+			for (int i = 0; i < futures.size(); i++) {
+				HttpResponse<String> response = futures.get(i).join();
+				assertEquals(200, response.getStatusCode());
+				assertEquals(batch + "-" + i, response.getBody());
+			}
+		}
+
+		assertEquals(500, completedRequests.get());
+		assertTrue(invalidTimeStamps.isEmpty(), "Invalid time stamps " + invalidTimeStamps);
+	}
+
+	@Test
+	public void redirectedRequestsShouldGetTheirOwnResponses() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/redirect").addQueryParameter("id", String.valueOf(i))
+				.build()
+				.execute()
+				.join();
+
+			assertEquals(200, response.getStatusCode());
+			assertEquals(String.valueOf(i), response.getBody());
+		}
+	}
+
+	@Test
+	public void failedRequestsShouldNotAffectFollowingRequests() throws Exception {
+		int closedPort = JettyIntegrationServer.findFreePort();
+
+		for (int i = 0; i < 50; i++) {
+			CompletableFuture<HttpResponse<String>> failed = httpClient.createGet("http://localhost:" + closedPort + "/echo").build().execute();
+			assertThrows(CompletionException.class, failed::join);
+
+			HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/echo").addQueryParameter("id", String.valueOf(i))
+				.build()
+				.execute()
+				.join();
+			assertEquals(String.valueOf(i), response.getBody());
+		}
+
+		assertEquals(50, completedRequests.get());
+		assertTrue(invalidTimeStamps.isEmpty(), "Invalid time stamps " + invalidTimeStamps);
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+
+	private static class MetricCallbackAdapter implements MetricCallback {
+		@Override
+		public void onClosedConnectionTo(String host) {
+		}
+
+		@Override
+		public void onCreatedConnectionTo(String host) {
+		}
+
+		@Override
+		public void onReusedConnectionTo(String host) {
+		}
+
+		@Override
+		public void onError(String host, RecordedTimeStamps timeStampRecorder) {
+		}
+
+		@Override
+		public void onCompletedRequest(String host, RecordedTimeStamps recordedTimeStamps) {
+		}
+
+		@Override
+		public void onCreatedServerPool(String host) {
+		}
+
+		@Override
+		public void onRemovedServerPool(String host) {
+		}
+
+		@Override
+		public void onServerPoolClosedConnection(String host, int poolSize) {
+		}
+
+		@Override
+		public void onServerPoolAddedConnection(String host, int poolSize) {
+		}
+	}
+}
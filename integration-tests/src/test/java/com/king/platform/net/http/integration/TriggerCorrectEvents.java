@@ -83,8 +83,7 @@ public class TriggerCorrectEvents {
 		expectedEvents.add(Event.CLOSED_CONNECTION);
 		expectedEvents.add(Event.COMPLETED);
 
-		List<RecordingEventBus.Interaction> filteredInteractions = recordingEventBus.getFilteredInteractions(RecordingEventBus.InteractionType.TRIGGER, Event
-			.TOUCH);
+		List<RecordingEventBus.Interaction> filteredInteractions = recordingEventBus.getFilteredInteractions(RecordingEventBus.InteractionType.TRIGGER);
 
 		assertEquals(expectedEvents.size(), filteredInteractions.size());
 
@@ -0,0 +1,84 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import io.netty.channel.epoll.Epoll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class UnixDomainSockets {
+	private NettyHttp2IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private Path socketPath;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		assumeTrue(Epoll.isAvailable(), "Unix domain sockets need epoll");
+
+		socketPath = Files.createTempDirectory("king-http-client").resolve("sidecar.sock");
+		integrationServer = new NettyHttp2IntegrationServer();
+		integrationServer.startDomainSocket(socketPath.toString());
+
+		httpClient = new TestingHttpClientFactory()
+			.useChannelPool()
+			.setOption(ConfKeys.UNIX_DOMAIN_SOCKETS, Collections.singletonMap("sidecar", socketPath.toString()))
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void getOverDomainSocket() throws Exception {
+		HttpResponse<String> response = httpClient.createGet("http://sidecar/testOk").build().execute().join();
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals("http/1.1:/testOk:", response.getBody());
+	}
+
+	@Test
+	public void postOverDomainSocket() throws Exception {
+		HttpResponse<String> response = httpClient.createPost("http://sidecar:8080/testOk").content("some content".getBytes(StandardCharsets.UTF_8))
+			.build().execute().join();
+
+		assertEquals("http/1.1:/testOk:some content", response.getBody());
+	}
+
+	@Test
+	public void domainSocketConnectionsShouldBePooled() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			HttpResponse<String> response = httpClient.createGet("http://sidecar/test" + i).build().execute().join();
+			assertEquals("http/1.1:/test" + i + ":", response.getBody());
+		}
+
+		assertEquals(1, integrationServer.getConnectionCount());
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (integrationServer != null) {
+			integrationServer.shutdown();
+		}
+		if (httpClient != null) {
+			httpClient.shutdown();
+		}
+		if (socketPath != null) {
+			Files.deleteIfExists(socketPath);
+			Files.deleteIfExists(socketPath.getParent());
+		}
+	}
+}
@@ -0,0 +1,149 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.WebSocketClient;
+import com.king.platform.net.http.WebSocketMessageListenerAdapter;
+import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebSocketPooledUpgrade {
+	IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	private final AtomicInteger httpRemotePort = new AtomicInteger();
+	private final AtomicInteger webSocketRemotePort = new AtomicInteger();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				httpRemotePort.set(req.getRemotePort());
+				resp.getWriter().write("OK");
+			}
+		}, "/test");
+
+		integrationServer.addServlet(new WebSocketServlet() {
+			@Override
+			public void configure(WebSocketServletFactory factory) {
+				factory.setCreator((req, resp) -> {
+					webSocketRemotePort.set(req.getRemotePort());
+					return new WebSocketTest.EchoWebSocketEndpoint();
+				});
+			}
+		}, "/websocket/test");
+	}
+
+	@Test
+	public void webSocketShouldUpgradeIdlePooledConnection() throws Exception {
+		createHttpClient(true);
+
+		HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/test").build().execute().join();
+		assertEquals(200, response.getStatusCode());
+
+		WebSocketClient webSocketClient = connectAndEcho();
+
+		assertEquals(httpRemotePort.get(), webSocketRemotePort.get());
+		webSocketClient.close();
+	}
+
+	@Test
+	public void webSocketShouldOpenNewConnectionWhenPoolIsEmpty() throws Exception {
+		createHttpClient(true);
+
+		WebSocketClient webSocketClient = connectAndEcho();
+
+		assertNotEquals(0, webSocketRemotePort.get());
+		webSocketClient.close();
+	}
+
+	@Test
+	public void webSocketShouldOpenNewConnectionWhenOptionIsDisabled() throws Exception {
+		createHttpClient(false);
+
+		HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/test").build().execute().join();
+		assertEquals(200, response.getStatusCode());
+
+		WebSocketClient webSocketClient = connectAndEcho();
+
+		assertNotEquals(httpRemotePort.get(), webSocketRemotePort.get());
+		webSocketClient.close();
+	}
+
+	@Test
+	public void pooledConnectionShouldNotBeReusedForHttpAfterUpgrade() throws Exception {
+		createHttpClient(true);
+
+		httpClient.createGet("http://localhost:" + port + "/test").build().execute().join();
+		int upgradedPort = httpRemotePort.get();
+
+		WebSocketClient webSocketClient = connectAndEcho();
+		assertEquals(upgradedPort, webSocketRemotePort.get());
+
+		HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/test").build().execute().join();
+		assertEquals(200, response.getStatusCode());
+		assertNotEquals(upgradedPort, httpRemotePort.get());
+
+		webSocketClient.close();
+	}
+
+	private WebSocketClient connectAndEcho() throws Exception {
+		CompletableFuture<String> echo = new CompletableFuture<>();
+
+		WebSocketClient webSocketClient = httpClient.createWebSocket("ws://localhost:" + port + "/websocket/test").build().build();
+		webSocketClient.addListener(new WebSocketMessageListenerAdapter() {
+			@Override
+			public void onTextMessage(String message) {
+				echo.complete(message);
+			}
+		});
+
+		webSocketClient.connect().join();
+		webSocketClient.sendTextMessage("hello");
+
+		assertEquals("hello", echo.get(5, TimeUnit.SECONDS));
+		return webSocketClient;
+	}
+
+	private void createHttpClient(boolean upgradePooledConnection) {
+		httpClient = new TestingHttpClientFactory()
+			.useChannelPool()
+			.setOption(ConfKeys.IDLE_TIMEOUT_MILLIS, 0)
+			.setOption(ConfKeys.TOTAL_REQUEST_TIMEOUT_MILLIS, 0)
+			.setOption(ConfKeys.WEB_SOCKET_UPGRADE_POOLED_CONNECTION, upgradePooledConnection)
+			.create();
+		httpClient.start();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+}